@@ -0,0 +1,81 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.BalanceLedger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures debits per second on one account shared by many buyers, e.g. a corporate account.
+ * {@code SYNCHRONIZED} is the baseline of a balance guarded by a monitor; the ledger variants use the
+ * compare-and-set ledger with and without keeping its recent movements. Compare the results with {@code -t 1} and {@code -t 16}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class BalanceLedgerBenchmark {
+    @Param({"LEDGER", "RECORDING_LEDGER", "SYNCHRONIZED"})
+    public Account account;
+
+    private BalanceLedger ledger;
+    private long balanceCents;
+
+    @Setup
+    public void setUp() {
+        ledger = new BalanceLedger(Long.MAX_VALUE / 2, account == Account.RECORDING_LEDGER ? 1024 : 0);
+        balanceCents = Long.MAX_VALUE / 2;
+    }
+
+    /**
+     * Debits a small amount, as every buyer's checkout does.
+     */
+    @Benchmark
+    public boolean debit() {
+        if (account == Account.SYNCHRONIZED) {
+            return lockedDebit(199);
+        }
+        return ledger.tryDebit(199);
+    }
+
+    /**
+     * A checkout that holds the amount first and captures it once the order is recorded.
+     */
+    @Benchmark
+    public boolean holdAndCapture() {
+        if (account == Account.SYNCHRONIZED) {
+            return lockedDebit(199);
+        }
+        BalanceLedger.Hold hold = ledger.hold(199);
+        ledger.capture(hold);
+        return hold != null;
+    }
+
+    private synchronized boolean lockedDebit(long amountCents) {
+        if (amountCents > balanceCents) {
+            return false;
+        }
+        balanceCents -= amountCents;
+        return true;
+    }
+
+    public enum Account {
+        LEDGER,
+        RECORDING_LEDGER,
+        SYNCHRONIZED
+    }
+}
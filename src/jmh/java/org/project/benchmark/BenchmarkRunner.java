@@ -0,0 +1,40 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once per thread count and writes one JSON result file per run,
+ * so results can be compared between releases.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar org.project.benchmark.BenchmarkRunner [include-regex] [thread-counts]}
+ * <br>
+ * Example: {@code ... BenchmarkRunner Checkout 1,4,8} writes {@code target/jmh/threads-1.json} and so on.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "org.project.benchmark.*";
+        String threadCounts = args.length > 1 ? args[1] : "1," + Runtime.getRuntime().availableProcessors();
+
+        File outputDirectory = new File("target/jmh");
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IllegalStateException("Cannot create " + outputDirectory);
+        }
+
+        for (String threadCount : threadCounts.split(",")) {
+            int threads = Integer.parseInt(threadCount.trim());
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(outputDirectory, "threads-" + threads + ".json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.project.Cart;
+import org.project.CartItem;
+import org.project.Product;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building and reading carts.
+ * Run with {@code -prof gc} to see the bytes allocated per operation by the different read paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int cartSize;
+
+    @Param({"MIXED", "GROCERY", "ELECTRONICS", "DIGITAL"})
+    public ProductMix productMix;
+
+    private List<Product> products;
+    private Cart fullCart;
+    private int nextLine;
+
+    @Setup
+    public void setUp() {
+        products = productMix.createProducts(cartSize, 1_000);
+        fullCart = new Cart();
+        for (Product product : products) {
+            fullCart.addProduct(product, 1);
+        }
+    }
+
+    /**
+     * Builds a cart from scratch, one new line per product.
+     */
+    @Benchmark
+    public Cart buildCart() {
+        Cart cart = new Cart();
+        for (Product product : products) {
+            cart.addProduct(product, 1);
+        }
+        return cart;
+    }
+
+    /**
+     * Builds a cart and adds every product a second time, which hits the merge path for each line.
+     */
+    @Benchmark
+    public Cart buildCartWithMerges() {
+        Cart cart = new Cart();
+        for (Product product : products) {
+            cart.addProduct(product, 1);
+        }
+        for (Product product : products) {
+            cart.addProduct(product, 1);
+        }
+        return cart;
+    }
+
+    @Benchmark
+    public void readCopy(Blackhole blackhole) {
+        for (CartItem item : fullCart.getItems()) {
+            blackhole.consume(item.getQuantity());
+        }
+    }
+
+    @Benchmark
+    public void readView(Blackhole blackhole) {
+        for (CartItem item : fullCart.getItemsView()) {
+            blackhole.consume(item.getQuantity());
+        }
+    }
+
+    @Benchmark
+    public void readForEach(Blackhole blackhole) {
+        fullCart.forEachItem(item -> blackhole.consume(item.getQuantity()));
+    }
+
+    /**
+     * What the storefront does after every change: update one line, then read the subtotal and the shipping estimate.
+     * Both come from the cart's running totals, so the cost does not grow with the cart size.
+     */
+    @Benchmark
+    public long updateAndReadTotals() {
+        int line = nextLine++;
+        if (nextLine == cartSize) {
+            nextLine = 0;
+        }
+        fullCart.updateQuantity(products.get(line), 1 + (line & 1));
+        return fullCart.getSubtotalCents() + fullCart.getShippingEstimateCents();
+    }
+}
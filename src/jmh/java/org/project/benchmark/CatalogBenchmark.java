@@ -0,0 +1,68 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.Product;
+import org.project.ProductCatalog;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures catalog lookup latency. The catalog is shared by all benchmark threads,
+ * so running with more threads shows how reads scale.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogBenchmark {
+    @Param({"1000000"})
+    public int products;
+
+    private ProductCatalog catalog;
+    private long[] ids;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        catalog = new ProductCatalog();
+        List<Product> created = ProductMix.MIXED.createProducts(products, 100);
+        ids = new long[products];
+        names = new String[products];
+        for (int i = 0; i < products; i++) {
+            Product product = created.get(i);
+            catalog.add(product);
+            ids[i] = product.getId();
+            names[i] = product.getName();
+        }
+    }
+
+    @Benchmark
+    public Product findById() {
+        return catalog.findById(ids[ThreadLocalRandom.current().nextInt(products)]);
+    }
+
+    @Benchmark
+    public List<Product> findByName() {
+        return catalog.findByName(names[ThreadLocalRandom.current().nextInt(products)]);
+    }
+
+    @Benchmark
+    public List<Product> findByNamePrefix() {
+        String name = names[ThreadLocalRandom.current().nextInt(products)];
+        return catalog.findByNamePrefix(name.substring(0, name.length() - 1), 10);
+    }
+}
@@ -0,0 +1,81 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.CheckoutMetrics;
+import org.project.CheckoutService;
+import org.project.Customer;
+import org.project.Product;
+import org.project.ReceiptSink;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full checkout: reservation, balance debit, receipt and shipment notice.
+ * Every thread checks out its own products, so the thread count measures how checkouts of
+ * non-overlapping carts scale. Receipts are discarded so console output does not dominate the result.
+ * With {@code metrics=true} every checkout also records its stage latencies, which shows the cost of instrumentation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutBenchmark {
+    private static final int STOCK = 1_000_000;
+
+    @Param({"10", "1000"})
+    public int cartSize;
+
+    @Param({"MIXED", "GROCERY", "ELECTRONICS", "DIGITAL"})
+    public ProductMix productMix;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private List<Product> products;
+    private Customer customer;
+    private ReceiptSink originalSink;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        products = productMix.createProducts(cartSize, STOCK);
+        originalSink = CheckoutService.getReceiptSink();
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        CheckoutService.setMetrics(metrics ? new CheckoutMetrics() : null);
+    }
+
+    @Setup(Level.Invocation)
+    public void fillCart() {
+        customer = new Customer("Benchmark Customer", 1_000_000_000.0);
+        for (Product product : products) {
+            product.setQuantity(STOCK);
+            customer.addToCart(product, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        CheckoutService.setReceiptSink(originalSink);
+        CheckoutService.setMetrics(null);
+    }
+
+    @Benchmark
+    public Customer checkout() {
+        CheckoutService.processCheckout(customer);
+        return customer;
+    }
+}
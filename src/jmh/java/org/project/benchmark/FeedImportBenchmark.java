@@ -0,0 +1,99 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.CatalogImporter;
+import org.project.ImportResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures importing a product feed with a growing number of worker threads, next to plainly reading
+ * the same file as the I/O bound. Products are counted and dropped so the catalog does not dominate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class FeedImportBenchmark {
+    @Param({"2000000"})
+    public int rows;
+
+    @Param({"CSV", "JSON_LINES"})
+    public CatalogImporter.Format format;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("feed", format == CatalogImporter.Format.CSV ? ".csv" : ".jsonl");
+        String expiration = LocalDate.now().plusYears(1).toString();
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < rows; i++) {
+                String category = i % 3 == 0 ? "GROCERY" : i % 3 == 1 ? "ELECTRONICS" : "DIGITAL";
+                String price = (1 + i % 997) + "." + (i % 100);
+                String weight = i % 3 == 2 ? "" : "0." + (1 + i % 9);
+                String date = i % 3 == 0 ? expiration : "";
+                if (format == CatalogImporter.Format.CSV) {
+                    writer.write(category + ",Product " + i + "," + price + "," + (i % 500) + "," + weight + "," + date + "\n");
+                } else {
+                    writer.write("{\"category\":\"" + category + "\",\"name\":\"Product " + i + "\",\"price\":" + price
+                            + ",\"quantity\":" + (i % 500)
+                            + (weight.isEmpty() ? "" : ",\"weight\":" + weight)
+                            + (date.isEmpty() ? "" : ",\"expirationDate\":\"" + date + "\"") + "}\n");
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long importFeed() throws IOException {
+        LongAdder count = new LongAdder();
+        ImportResult result = new CatalogImporter(threads, 8 * 1024 * 1024, 1_000)
+                .importFeed(file, format, product -> count.increment());
+        return count.sum() + result.getFailedCount();
+    }
+
+    @Benchmark
+    public long readOnly() throws IOException {
+        long total = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int read;
+            while ((read = channel.read(buffer)) >= 0) {
+                total += read;
+                buffer.clear();
+            }
+        }
+        return total;
+    }
+}
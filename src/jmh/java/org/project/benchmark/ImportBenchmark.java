@@ -0,0 +1,96 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.DigitalProduct;
+import org.project.Product;
+import org.project.ProductIdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a bulk import of 10 million products split across import threads, with the default
+ * time-sequenced ids and with the former {@code UUID.randomUUID().toString()} cost as a baseline.
+ * With per-thread id blocks the import should scale with the thread count; the UUID baseline serializes
+ * on its shared {@code SecureRandom}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImportBenchmark {
+    private static final int NAMES = 1_000;
+
+    @Param({"10000000"})
+    public int products;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    @Param({"timeSequenced", "uuid"})
+    public String generator;
+
+    private final String[] names = new String[NAMES];
+    private ProductIdGenerator previous;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "Imported " + i;
+        }
+        previous = Product.getIdGenerator();
+        if (generator.equals("uuid")) {
+            // Same work per product as the former string ids: a SecureRandom UUID rendered to 36 chars
+            Product.setIdGenerator(() -> UUID.randomUUID().toString().hashCode());
+        } else {
+            Product.setIdGenerator(ProductIdGenerator.timeSequenced());
+        }
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+        Product.setIdGenerator(previous);
+    }
+
+    @Benchmark
+    public long importProducts() throws Exception {
+        int perThread = products / threads;
+        List<Future<Long>> parts = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            parts.add(executor.submit(() -> {
+                long checksum = 0;
+                for (int i = 0; i < perThread; i++) {
+                    Product product = new DigitalProduct(names[i % NAMES], 1.0 + (i % 997), 100);
+                    checksum += product.getId();
+                }
+                return checksum;
+            }));
+        }
+        long checksum = 0;
+        for (Future<Long> part : parts) {
+            checksum += part.get();
+        }
+        return checksum;
+    }
+}
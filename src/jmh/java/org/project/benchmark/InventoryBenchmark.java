@@ -0,0 +1,117 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.ColumnarInventory;
+import org.project.Product;
+import org.project.ProductCategory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares bulk scans over the object model (a list of products) with the columnar inventory.
+ * Run {@link #main(String[])} for the memory footprint of both models.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class InventoryBenchmark {
+    @Param({"1000000"})
+    public int products;
+
+    private List<Product> objects;
+    private ColumnarInventory columns;
+
+    @Setup
+    public void setUp() {
+        objects = ProductMix.MIXED.createProducts(products, 100);
+        columns = new ColumnarInventory(products);
+        for (Product product : objects) {
+            columns.add(product);
+        }
+    }
+
+    @Benchmark
+    public long stockValueObjects() {
+        long total = 0;
+        for (Product product : objects) {
+            total += product.getPriceCents() * product.getQuantity();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long stockValueColumns() {
+        return columns.stockValueCents();
+    }
+
+    /**
+     * Raises and lowers electronics prices by 1%, so prices stay stable across invocations.
+     */
+    @Benchmark
+    public int priceUpdateObjects() {
+        int count = 0;
+        for (int factor : new int[]{10_100, 9_900}) {
+            for (Product product : objects) {
+                if (product.getCategory() == ProductCategory.ELECTRONICS) {
+                    product.setPriceCents((product.getPriceCents() * factor + 5_000) / 10_000);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int priceUpdateColumns() {
+        return columns.applyPriceChange(ProductCategory.ELECTRONICS, 100)
+                + columns.applyPriceChange(ProductCategory.ELECTRONICS, -100);
+    }
+
+    /**
+     * Prints the retained heap of one million products in both models.
+     *
+     * @param args Optionally the number of products.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long baseline = usedHeap();
+        List<Product> objects = ProductMix.MIXED.createProducts(count, 100);
+        long objectBytes = usedHeap() - baseline;
+
+        baseline = usedHeap();
+        ColumnarInventory columns = new ColumnarInventory(count);
+        for (Product product : objects) {
+            columns.add(product);
+        }
+        long columnBytes = usedHeap() - baseline;
+
+        System.out.printf("Object model:   %,d bytes (%d bytes/product)%n", objectBytes, objectBytes / count);
+        System.out.printf("Columnar store: %,d bytes (%d bytes/product)%n", columnBytes, columnBytes / count);
+        if (objects.size() != columns.size()) {
+            throw new IllegalStateException("Both models must hold the same products.");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,71 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.CartItem;
+import org.project.CheckoutJournal;
+import org.project.Customer;
+import org.project.Product;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures durable checkout records per second with and without group commit.
+ * Every operation waits until its record is synced, as a checkout does; with group commit the
+ * concurrent threads share one sync, without it every record pays for its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(16)
+public class JournalBenchmark {
+    @Param({"true", "false"})
+    public boolean groupCommit;
+
+    private Path file;
+    private CheckoutJournal journal;
+    private Customer customer;
+    private List<CartItem> items;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("checkout", ".journal");
+        journal = new CheckoutJournal(file, groupCommit);
+        customer = new Customer("Benchmark Customer", 1_000_000.0);
+        items = new ArrayList<>();
+        for (Product product : ProductMix.MIXED.createProducts(5, 1_000)) {
+            items.add(new CartItem(product, 2));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void logCheckout() throws IOException {
+        journal.logCheckout(customer, 12_345, items);
+    }
+}
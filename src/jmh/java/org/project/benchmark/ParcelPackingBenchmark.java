@@ -0,0 +1,61 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.Parcel;
+import org.project.ParcelPacker;
+import org.project.Product;
+import org.project.ShipmentLine;
+import org.project.Shippable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks packing an order into parcels of at most 20 kg. With 1000 lines of 100 units an order
+ * has 100,000 units; packing works on the lines, so its cost follows the number of lines and parcels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParcelPackingBenchmark {
+    @Param({"10", "1000"})
+    public int lines;
+
+    @Param({"1", "100"})
+    public int unitsPerLine;
+
+    private final ParcelPacker packer = new ParcelPacker(20.0);
+    private List<ShipmentLine> shipmentLines;
+
+    @Setup
+    public void setUp() {
+        shipmentLines = new ArrayList<>(lines);
+        for (Product product : ProductMix.MIXED.createProducts(lines * 3, unitsPerLine)) {
+            if (shipmentLines.size() == lines) {
+                break;
+            }
+            if (product instanceof Shippable) {
+                shipmentLines.add(new ShipmentLine((Shippable) product, unitsPerLine));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Parcel> pack() {
+        return packer.pack(shipmentLines);
+    }
+}
@@ -0,0 +1,50 @@
+package org.project.benchmark;
+
+import org.project.DigitalProduct;
+import org.project.ElectronicsProduct;
+import org.project.GroceryProduct;
+import org.project.Product;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The kinds of products a benchmark cart is built from.
+ * Grocery products are shippable and expirable, electronics only shippable, digital products neither,
+ * so each mix exercises a different part of the checkout path.
+ */
+public enum ProductMix {
+    GROCERY,
+    ELECTRONICS,
+    DIGITAL,
+    MIXED;
+
+    /**
+     * Creates distinct products (unique business keys) for this mix.
+     *
+     * @param count The number of products to create.
+     * @param stock The initial stock of every product.
+     * @return The created products.
+     */
+    public List<Product> createProducts(int count, int stock) {
+        LocalDate expirationDate = LocalDate.now().plusYears(1);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductMix kind = this == MIXED ? values()[i % 3] : this;
+            double price = 1.0 + (i % 997);
+            switch (kind) {
+                case GROCERY:
+                    products.add(new GroceryProduct("Grocery " + i, price, stock, 0.1 + (i % 7) * 0.1, expirationDate));
+                    break;
+                case ELECTRONICS:
+                    products.add(new ElectronicsProduct("Electronics " + i, price, stock, 1.0 + (i % 20)));
+                    break;
+                default:
+                    products.add(new DigitalProduct("Digital " + i, price, stock));
+                    break;
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,59 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.CheckoutResult;
+import org.project.CheckoutService;
+import org.project.Customer;
+import org.project.Product;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures rejected checkouts per second, as during a flash sale where most attempts find the stock sold out.
+ * {@code throwing} is the exception-based {@link CheckoutService#processCheckout(Customer)}, which builds a message
+ * and a stack trace for every rejection; {@code returning} is {@link CheckoutService#tryCheckout(Customer)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectedCheckoutBenchmark {
+    private Customer customer;
+
+    @Setup
+    public void setUp() {
+        List<Product> products = ProductMix.MIXED.createProducts(5, 10);
+        customer = new Customer("Flash Sale Customer", 1_000_000.0);
+        for (Product product : products) {
+            customer.addToCart(product, 1);
+        }
+        products.get(products.size() - 1).setQuantity(0); // Sold out after it was put in the cart
+    }
+
+    @Benchmark
+    public String throwing() {
+        try {
+            CheckoutService.processCheckout(customer);
+            return null;
+        } catch (IllegalStateException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public CheckoutResult returning() {
+        return CheckoutService.tryCheckout(customer);
+    }
+}
@@ -0,0 +1,104 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.Cart;
+import org.project.CartItem;
+import org.project.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a flash-pricing run over many products while many carts are open.
+ * {@code flashPricing} reprices through the product change notifications, which only reach the carts
+ * holding a changed product; {@code scanAllCarts} is the cost of finding those carts by visiting every cart.
+ * {@code reconcileTouchedCarts} is the deferred work the affected carts do on their next use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RepricingBenchmark {
+    private static final int LINES_PER_CART = 5;
+
+    @Param({"100000"})
+    public int products;
+
+    @Param({"200000"})
+    public int carts;
+
+    @Param({"10000"})
+    public int changedProducts;
+
+    private List<Product> catalog;
+    private List<Product> changed;
+    private Set<Product> changedSet;
+    private List<Cart> openCarts;
+    private long priceShift;
+
+    @Setup
+    public void setUp() {
+        catalog = ProductMix.DIGITAL.createProducts(products, 1_000_000);
+        SplittableRandom random = new SplittableRandom(42);
+        openCarts = new ArrayList<>(carts);
+        for (int i = 0; i < carts; i++) {
+            Cart cart = new Cart();
+            for (int line = 0; line < LINES_PER_CART; line++) {
+                cart.addProduct(catalog.get(random.nextInt(products)), 1);
+            }
+            openCarts.add(cart);
+        }
+        changed = catalog.subList(0, changedProducts);
+        changedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        changedSet.addAll(changed);
+    }
+
+    @Benchmark
+    public int flashPricing() {
+        priceShift = priceShift == 0 ? 1 : 0; // Alternate so every run is a real change
+        for (Product product : changed) {
+            product.setPriceCents(product.getPriceCents() + (priceShift == 1 ? 1 : -1));
+        }
+        return changed.size();
+    }
+
+    @Benchmark
+    public int scanAllCarts() {
+        int affectedLines = 0;
+        for (Cart cart : openCarts) {
+            for (CartItem item : cart.getItemsView()) {
+                if (changedSet.contains(item.getProduct())) {
+                    affectedLines++;
+                }
+            }
+        }
+        return affectedLines;
+    }
+
+    @Benchmark
+    public long reconcileTouchedCarts() {
+        flashPricing();
+        long total = 0;
+        for (Cart cart : openCarts) {
+            total += cart.getSubtotalCents();
+        }
+        return total;
+    }
+}
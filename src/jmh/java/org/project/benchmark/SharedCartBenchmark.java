@@ -0,0 +1,101 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.Cart;
+import org.project.CartSnapshot;
+import org.project.Product;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of one cart shared by many sessions, each changing its own lines.
+ * {@code SYNCHRONIZED} is the baseline: the same cart behind a single lock, as a plain cart would have to be
+ * guarded. {@code CONCURRENT} uses the cart directly, so only sessions working on the same line contend.
+ * Compare the two with {@code -t 1} and with several threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class SharedCartBenchmark {
+    @Param({"CONCURRENT", "SYNCHRONIZED"})
+    public Locking locking;
+
+    private List<Product> products;
+    private Cart cart;
+
+    @Setup
+    public void setUp() {
+        products = ProductMix.MIXED.createProducts(64, Integer.MAX_VALUE / 2);
+        cart = new Cart();
+        for (Product product : products) {
+            cart.addProduct(product, 1);
+        }
+    }
+
+    /**
+     * A session adds a unit to a line and reads the new subtotal.
+     */
+    @Benchmark
+    public long addAndReadSubtotal() {
+        Product product = products.get(ThreadLocalRandom.current().nextInt(products.size()));
+        return locking == Locking.CONCURRENT ? addAndRead(product) : lockedAddAndRead(product);
+    }
+
+    /**
+     * Mostly line updates, with an occasional consistent snapshot as a checkout would take.
+     */
+    @Benchmark
+    public long updateWithSnapshots() {
+        int random = ThreadLocalRandom.current().nextInt(products.size() * 16);
+        if (random < products.size()) {
+            return locking == Locking.CONCURRENT ? cart.snapshot().getSubtotalCents() : lockedSnapshot().getSubtotalCents();
+        }
+        Product product = products.get(random % products.size());
+        int quantity = 1 + (random & 3);
+        if (locking == Locking.CONCURRENT) {
+            cart.updateQuantity(product, quantity);
+        } else {
+            lockedUpdate(product, quantity);
+        }
+        return quantity;
+    }
+
+    private long addAndRead(Product product) {
+        cart.addProduct(product, 1);
+        return cart.getSubtotalCents();
+    }
+
+    private synchronized long lockedAddAndRead(Product product) {
+        return addAndRead(product);
+    }
+
+    private synchronized void lockedUpdate(Product product, int quantity) {
+        cart.updateQuantity(product, quantity);
+    }
+
+    private synchronized CartSnapshot lockedSnapshot() {
+        return cart.snapshot();
+    }
+
+    public enum Locking {
+        CONCURRENT,
+        SYNCHRONIZED
+    }
+}
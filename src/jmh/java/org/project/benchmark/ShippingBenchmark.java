@@ -0,0 +1,74 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.Product;
+import org.project.ShipmentLine;
+import org.project.Shippable;
+import org.project.ShippingService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the shipping cost calculation, comparing the per-unit list API with the per-line API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShippingBenchmark {
+    @Param({"10", "1000"})
+    public int lines;
+
+    @Param({"1", "100"})
+    public int unitsPerLine;
+
+    @Param({"MIXED", "GROCERY", "ELECTRONICS"})
+    public ProductMix productMix;
+
+    private List<Shippable> units;
+    private List<ShipmentLine> shipmentLines;
+
+    @Setup
+    public void setUp() {
+        units = new ArrayList<>(lines * unitsPerLine);
+        shipmentLines = new ArrayList<>(lines);
+        int created = 0;
+        for (Product product : productMix.createProducts(lines * 3, unitsPerLine)) {
+            if (created == lines) {
+                break;
+            }
+            if (product instanceof Shippable) {
+                Shippable item = (Shippable) product;
+                shipmentLines.add(new ShipmentLine(item, unitsPerLine));
+                for (int i = 0; i < unitsPerLine; i++) {
+                    units.add(item);
+                }
+                created++;
+            }
+        }
+    }
+
+    @Benchmark
+    public double costPerUnit() {
+        return ShippingService.calculateShippingCost(units);
+    }
+
+    @Benchmark
+    public double costPerLine() {
+        return ShippingService.calculateShippingCostForLines(shipmentLines);
+    }
+}
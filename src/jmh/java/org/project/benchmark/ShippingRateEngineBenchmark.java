@@ -0,0 +1,92 @@
+package org.project.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.project.ProductCategory;
+import org.project.ShippingRateEngine;
+import org.project.TableShippingRateEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of pricing one order's shipping. {@code table} quotes with a {@link TableShippingRateEngine}
+ * compiled from the given number of rules, spread over {@value #ZONES} zones as weight brackets plus a surcharge per
+ * zone and category; {@code flat} is the default flat-rate engine. Each call prices the next of a set of random
+ * orders to different zones, so bracket lookups do not always take the same path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShippingRateEngineBenchmark {
+    private static final int ZONES = 8;
+    private static final int ORDERS = 1024; // A power of two, so the next order is picked with a mask
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    @Param({"50", "500", "5000"})
+    public int rules;
+
+    private ShippingRateEngine table;
+    private ShippingRateEngine flat;
+    private int[] zones;
+    private long[][] weights;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<TableShippingRateEngine.CategorySurcharge> surcharges = new ArrayList<>();
+        for (int zone = 0; zone < ZONES; zone++) {
+            for (ProductCategory category : CATEGORIES) {
+                surcharges.add(new TableShippingRateEngine.CategorySurcharge(zone, category, random.nextInt(500), random.nextInt(100)));
+            }
+        }
+        int bracketsPerZone = Math.max(1, (rules - surcharges.size()) / ZONES);
+        List<TableShippingRateEngine.WeightBracket> brackets = new ArrayList<>();
+        for (int zone = 0; zone < ZONES; zone++) {
+            for (int i = 0; i < bracketsPerZone; i++) {
+                brackets.add(new TableShippingRateEngine.WeightBracket(zone, i * 0.5, 300 + i * 40L, 50 + random.nextInt(200)));
+            }
+        }
+        table = new TableShippingRateEngine(brackets, surcharges);
+        flat = ShippingRateEngine.flatRate(500);
+
+        zones = new int[ORDERS];
+        weights = new long[ORDERS][CATEGORIES.length];
+        double maxKg = bracketsPerZone * 0.5 * 1.1; // Some orders go past the last bracket
+        for (int i = 0; i < ORDERS; i++) {
+            zones[i] = random.nextInt(ZONES);
+            for (int category = 0; category < CATEGORIES.length; category++) {
+                if (random.nextBoolean()) {
+                    weights[i][category] = (long) (random.nextDouble() * maxKg * 1_000_000);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public long table() {
+        int order = next++ & (ORDERS - 1);
+        return table.quoteCents(zones[order], weights[order]);
+    }
+
+    @Benchmark
+    public long flat() {
+        int order = next++ & (ORDERS - 1);
+        return flat.quoteCents(zones[order], weights[order]);
+    }
+}
@@ -0,0 +1,179 @@
+package org.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A receipt sink that appends receipts to a file from a background thread.
+ * Checkout threads only enqueue the rendered receipt into a bounded ring buffer; the writer thread
+ * drains whatever has accumulated, encodes it into one direct buffer and writes it to the file channel
+ * in blocks. When the buffer is full, checkout threads wait rather than lose receipts.
+ * Close the sink to flush all pending receipts: the writer thread only stops once the sink is closed, no
+ * {@link #write(String)} is still in progress and the buffer is empty, so every receipt that was accepted is written.
+ * Once a write to the file has failed, the sink refuses further receipts.
+ */
+public class AsyncFileReceiptSink implements ReceiptSink, AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 8_192; // Receipts that may wait in the ring buffer.
+    private static final int BLOCK_SIZE = 64 * 1024; // Bytes written to the file per block.
+
+    private final BlockingQueue<String> pending;
+    private final FileChannel channel;
+    private final Thread writer;
+    private volatile boolean closed;
+    private final AtomicInteger writesInProgress = new AtomicInteger(); // Writes that may still enqueue a receipt
+    private volatile IOException failure; // First write error, reported by close().
+
+    /**
+     * Opens (or creates) the file and starts the writer thread.
+     *
+     * @param file The file receipts are appended to.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncFileReceiptSink(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens (or creates) the file and starts the writer thread.
+     *
+     * @param file     The file receipts are appended to.
+     * @param capacity The number of receipts the ring buffer can hold before writers have to wait.
+     * @throws IOException if the file cannot be opened.
+     */
+    public AsyncFileReceiptSink(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.writer = new Thread(this::drainLoop, "receipt-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Enqueues a receipt for writing. Waits if the ring buffer is full.
+     *
+     * @param receipt The receipt text.
+     * @throws IllegalStateException if the sink is closed.
+     * @throws UncheckedIOException if the writer thread failed to write to the file before the receipt was queued.
+     */
+    @Override
+    public void write(String receipt) {
+        // Announce the write before checking closed; the writer thread checks in the opposite order,
+        // so either this write sees the sink closed or the writer thread waits for it.
+        writesInProgress.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Receipt sink is closed.");
+            }
+            checkFailure();
+            // The writer stops draining once it has failed, so don't wait for space forever
+            while (!pending.offer(receipt, 10, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing receipt.", e);
+        } finally {
+            writesInProgress.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting receipts, writes everything still queued and closes the file.
+     *
+     * @throws UncheckedIOException if writing any receipt failed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Failed to write receipts.", failure);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Failed to write receipts.", failure);
+        }
+    }
+
+    private void drainLoop() {
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        List<String> batch = new ArrayList<>();
+        try {
+            // Read in this order: a write that finished before writesInProgress is read has already queued its receipt
+            while (!closed || writesInProgress.get() > 0 || !pending.isEmpty()) {
+                String first = pending.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch);
+                for (String receipt : batch) {
+                    encode(receipt, encoder, block);
+                }
+                batch.clear();
+                flush(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void encode(String receipt, CharsetEncoder encoder, ByteBuffer block) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(receipt);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, block, true);
+            if (result.isOverflow()) {
+                flush(block);
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        while (encoder.flush(block).isOverflow()) {
+            flush(block);
+        }
+    }
+
+    private void flush(ByteBuffer block) throws IOException {
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+    }
+}
@@ -0,0 +1,352 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The balance of one account, in cents, with atomic debits, credits and holds.
+ * <p>
+ * The available balance is a single compare-and-set counter: a debit either takes the whole amount or nothing,
+ * so concurrent checkouts on a shared account can never overdraw it. Threads that lose a race back off for a
+ * random, growing number of spins before retrying, which keeps a hot account from collapsing under many buyers.
+ * <p>
+ * A hold takes an amount out of the available balance until it is either captured (the money is spent) or
+ * released (the money becomes available again). The most recent movements are kept in a fixed-size ring, without
+ * locking; older movements are overwritten and only counted, see {@link #getEvictedMovementCount()}. The ring is a
+ * view for support and debugging, not a complete record: checkouts are made durable by the {@link CheckoutJournal}.
+ */
+public final class BalanceLedger {
+    private static final AtomicLongFieldUpdater<BalanceLedger> AVAILABLE =
+            AtomicLongFieldUpdater.newUpdater(BalanceLedger.class, "availableCents");
+    private static final int MAX_BACKOFF_SHIFT = 10; // At most about a thousand spins between retries
+
+    private volatile long availableCents; // Spendable balance, only ever changed through CAS
+    private final LongAdder heldCents = new LongAdder(); // Sum of all open holds
+    private final AtomicLong nextSequence = new AtomicLong(1); // Numbers movements, one ring slot each
+    private final AtomicLong nextHoldId = new AtomicLong(1); // 0 means no hold
+    private final AtomicReferenceArray<Movement> recentMovements; // Ring of the most recent movements, null if none are kept
+    private final LongAdder evictedMovements = new LongAdder(); // Movements overwritten in the ring
+
+    /**
+     * Creates a ledger.
+     *
+     * @param initialCents     The opening balance, in cents.
+     * @param movementCapacity The number of most recent movements to keep, rounded up to a power of two; 0 keeps none.
+     * @throws IllegalArgumentException if the opening balance or the capacity is negative.
+     */
+    public BalanceLedger(long initialCents, int movementCapacity) {
+        if (initialCents < 0) {
+            throw new IllegalArgumentException("Initial balance cannot be negative.");
+        }
+        if (movementCapacity < 0 || movementCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Movement capacity must be between 0 and 2^30.");
+        }
+        this.availableCents = initialCents;
+        this.recentMovements = movementCapacity == 0 ? null
+                : new AtomicReferenceArray<>(Integer.highestOneBit(Math.max(1, movementCapacity - 1)) << 1);
+        if (initialCents > 0) {
+            record(MovementType.CREDIT, initialCents, initialCents, 0);
+        }
+    }
+
+    /**
+     * Gets the balance that can be debited or held right now.
+     *
+     * @return The available balance in cents.
+     */
+    public long getAvailableCents() {
+        return availableCents;
+    }
+
+    /**
+     * Gets the amount taken out of the available balance by open holds.
+     *
+     * @return The held amount in cents.
+     */
+    public long getHeldCents() {
+        return heldCents.sum();
+    }
+
+    /**
+     * Debits the given amount if the available balance covers it.
+     *
+     * @param amountCents The amount to debit, in cents.
+     * @return true if the amount was debited, false if the available balance was insufficient.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public boolean tryDebit(long amountCents) {
+        validateAmount(amountCents);
+        long balance = take(amountCents);
+        if (balance < 0) {
+            return false;
+        }
+        record(MovementType.DEBIT, amountCents, balance, 0);
+        return true;
+    }
+
+    /**
+     * Credits the given amount to the available balance.
+     *
+     * @param amountCents The amount to credit, in cents.
+     * @throws IllegalArgumentException if the amount is negative.
+     * @throws ArithmeticException if the balance would overflow.
+     */
+    public void credit(long amountCents) {
+        validateAmount(amountCents);
+        record(MovementType.CREDIT, amountCents, give(amountCents), 0);
+    }
+
+    /**
+     * Holds the given amount if the available balance covers it.
+     *
+     * @param amountCents The amount to hold, in cents.
+     * @return The hold, or null if the available balance was insufficient.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public Hold hold(long amountCents) {
+        validateAmount(amountCents);
+        long balance = take(amountCents);
+        if (balance < 0) {
+            return null;
+        }
+        heldCents.add(amountCents);
+        Hold hold = new Hold(this, nextHoldId.getAndIncrement(), amountCents);
+        record(MovementType.HOLD, amountCents, balance, hold.id);
+        return hold;
+    }
+
+    /**
+     * Captures a hold: the held amount is spent and does not return to the balance.
+     *
+     * @param hold The hold to capture.
+     * @throws IllegalArgumentException if the hold belongs to another ledger.
+     * @throws IllegalStateException if the hold was already captured or released.
+     */
+    public void capture(Hold hold) {
+        complete(hold, Hold.CAPTURED);
+        record(MovementType.CAPTURE, hold.amountCents, availableCents, hold.id);
+    }
+
+    /**
+     * Releases a hold, returning the held amount to the available balance.
+     *
+     * @param hold The hold to release.
+     * @throws IllegalArgumentException if the hold belongs to another ledger.
+     * @throws IllegalStateException if the hold was already captured or released.
+     */
+    public void releaseHold(Hold hold) {
+        complete(hold, Hold.RELEASED);
+        record(MovementType.RELEASE, hold.amountCents, give(hold.amountCents), hold.id);
+    }
+
+    /**
+     * Gets the most recent movements, oldest first. This is not the full history: once the ring is full, each new
+     * movement overwrites the oldest one. Movements recorded while the ring is read may be missing.
+     *
+     * @return The kept movements ordered by sequence number, or an empty list if the ledger keeps none.
+     */
+    public List<Movement> getRecentMovements() {
+        List<Movement> movements = new ArrayList<>();
+        if (recentMovements == null) {
+            return movements;
+        }
+        for (int i = 0; i < recentMovements.length(); i++) {
+            Movement movement = recentMovements.get(i);
+            if (movement != null) {
+                movements.add(movement);
+            }
+        }
+        movements.sort((a, b) -> Long.compare(a.sequence, b.sequence));
+        return movements;
+    }
+
+    /**
+     * Gets the number of movements that were overwritten by newer ones and are no longer in
+     * {@link #getRecentMovements()}.
+     *
+     * @return The number of evicted movements; 0 if the ledger keeps none, as nothing is evicted then.
+     */
+    public long getEvictedMovementCount() {
+        return evictedMovements.sum();
+    }
+
+    /**
+     * Takes an amount out of the available balance.
+     *
+     * @return The balance after the amount was taken, or -1 if the balance was insufficient.
+     */
+    private long take(long amountCents) {
+        for (int attempt = 0; ; attempt++) {
+            long balance = availableCents;
+            if (balance < amountCents) {
+                return -1;
+            }
+            if (AVAILABLE.compareAndSet(this, balance, balance - amountCents)) {
+                return balance - amountCents;
+            }
+            backoff(attempt);
+        }
+    }
+
+    /**
+     * Adds an amount to the available balance.
+     *
+     * @return The balance after the amount was added.
+     */
+    private long give(long amountCents) {
+        for (int attempt = 0; ; attempt++) {
+            long balance = availableCents;
+            long updated = Math.addExact(balance, amountCents);
+            if (AVAILABLE.compareAndSet(this, balance, updated)) {
+                return updated;
+            }
+            backoff(attempt);
+        }
+    }
+
+    private void complete(Hold hold, int newState) {
+        if (hold.ledger != this) {
+            throw new IllegalArgumentException("Hold belongs to another ledger.");
+        }
+        if (!hold.state.compareAndSet(Hold.PENDING, newState)) {
+            throw new IllegalStateException("Hold " + hold.id + " is already completed.");
+        }
+        heldCents.add(-hold.amountCents);
+    }
+
+    private void record(MovementType type, long amountCents, long balanceAfterCents, long holdId) {
+        if (recentMovements == null) {
+            return;
+        }
+        long sequence = nextSequence.getAndIncrement();
+        Movement evicted = recentMovements.getAndSet((int) (sequence & (recentMovements.length() - 1)),
+                new Movement(sequence, type, amountCents, balanceAfterCents, holdId));
+        if (evicted != null) {
+            evictedMovements.increment();
+        }
+    }
+
+    private static void validateAmount(long amountCents) {
+        if (amountCents < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative.");
+        }
+    }
+
+    private static void backoff(int attempt) {
+        int spins = ThreadLocalRandom.current().nextInt(1 << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        for (int i = 0; i < spins; i++) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * The kinds of balance movements.
+     */
+    public enum MovementType {
+        DEBIT,
+        CREDIT,
+        HOLD,
+        CAPTURE,
+        RELEASE
+    }
+
+    /**
+     * One balance movement of a ledger.
+     */
+    public static final class Movement {
+        private final long sequence;
+        private final MovementType type;
+        private final long amountCents;
+        private final long balanceAfterCents; // Available balance right after this movement.
+        private final long holdId; // The hold this movement belongs to, 0 for debits and credits.
+
+        private Movement(long sequence, MovementType type, long amountCents, long balanceAfterCents, long holdId) {
+            this.sequence = sequence;
+            this.type = type;
+            this.amountCents = amountCents;
+            this.balanceAfterCents = balanceAfterCents;
+            this.holdId = holdId;
+        }
+
+        /**
+         * Gets the position of this movement in the ledger's history. Concurrent movements are numbered
+         * in the order they were recorded, which may differ from the order their balance changes took effect.
+         *
+         * @return The sequence number.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public MovementType getType() {
+            return type;
+        }
+
+        public long getAmountCents() {
+            return amountCents;
+        }
+
+        public long getBalanceAfterCents() {
+            return balanceAfterCents;
+        }
+
+        public long getHoldId() {
+            return holdId;
+        }
+
+        @Override
+        public String toString() {
+            return "Movement{" +
+                    "sequence=" + sequence +
+                    ", type=" + type +
+                    ", amount=" + Money.format(amountCents) +
+                    ", balanceAfter=" + Money.format(balanceAfterCents) +
+                    (holdId != 0 ? ", hold=" + holdId : "") +
+                    '}';
+        }
+    }
+
+    /**
+     * An amount held on a ledger for a pending payment.
+     * A hold can be completed exactly once, either by capturing or by releasing it.
+     */
+    public static final class Hold {
+        private static final int PENDING = 0;
+        private static final int CAPTURED = 1;
+        private static final int RELEASED = 2;
+
+        private final BalanceLedger ledger;
+        private final long id;
+        private final long amountCents;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Hold(BalanceLedger ledger, long id, long amountCents) {
+            this.ledger = ledger;
+            this.id = id;
+            this.amountCents = amountCents;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getAmountCents() {
+            return amountCents;
+        }
+
+        /**
+         * Checks whether the hold is still open.
+         *
+         * @return true if the hold was neither captured nor released yet.
+         */
+        public boolean isPending() {
+            return state.get() == PENDING;
+        }
+    }
+}
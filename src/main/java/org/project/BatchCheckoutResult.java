@@ -0,0 +1,114 @@
+package org.project;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a batch checkout: one result per customer plus throughput metrics for the whole batch.
+ * A failed checkout in the batch does not affect the other customers.
+ */
+public final class BatchCheckoutResult {
+    private final List<CustomerResult> results; // One entry per customer, in submission order.
+    private final int successCount;
+    private final long elapsedNanos; // Wall-clock time of the whole batch.
+
+    BatchCheckoutResult(List<CustomerResult> results, long elapsedNanos) {
+        this.results = Collections.unmodifiableList(results);
+        int successes = 0;
+        for (CustomerResult result : results) {
+            if (result.isSuccess()) {
+                successes++;
+            }
+        }
+        this.successCount = successes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the per-customer results.
+     *
+     * @return The results, in the order the customers were submitted.
+     */
+    public List<CustomerResult> getResults() {
+        return results;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getFailureCount() {
+        return results.size() - successCount;
+    }
+
+    /**
+     * Gets the wall-clock time the batch took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates the batch throughput.
+     *
+     * @return The number of processed checkouts (successful or not) per second.
+     */
+    public double getCheckoutsPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return results.size() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchCheckoutResult{" +
+                "checkouts=" + results.size() +
+                ", successes=" + successCount +
+                ", failures=" + getFailureCount() +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", checkoutsPerSecond=" + (long) getCheckoutsPerSecond() +
+                '}';
+    }
+
+    /**
+     * The outcome of the checkout of a single customer in a batch.
+     */
+    public static final class CustomerResult {
+        private final Customer customer;
+        private final CheckoutResult result;
+
+        CustomerResult(Customer customer, CheckoutResult result) {
+            this.customer = customer;
+            this.result = result;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        /**
+         * Gets the outcome of the customer's checkout.
+         *
+         * @return The checkout result.
+         */
+        public CheckoutResult getResult() {
+            return result;
+        }
+
+        public boolean isSuccess() {
+            return result.isSuccess();
+        }
+
+        /**
+         * Gets the reason the checkout failed.
+         *
+         * @return The failure reason, or null if the checkout succeeded.
+         */
+        public String getFailureReason() {
+            return result.getMessage();
+        }
+    }
+}
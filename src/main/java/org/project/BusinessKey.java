@@ -0,0 +1,58 @@
+package org.project;
+
+/**
+ * The business identity of a product: its name and price.
+ * Two products with the same business key are considered "identical" by the cart,
+ * even though they are different objects with different ids.
+ * Instances are immutable and cache their hash code, so they are cheap to use as hash map keys.
+ */
+public final class BusinessKey {
+    private final String name;
+    private final long priceCents;
+    private final int hash; // Cached, the key never changes.
+
+    /**
+     * Constructs a business key.
+     *
+     * @param name       The product name.
+     * @param priceCents The product price in cents.
+     */
+    public BusinessKey(String name, long priceCents) {
+        this.name = name;
+        this.priceCents = priceCents;
+        this.hash = 31 * name.hashCode() + Long.hashCode(priceCents);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getPriceCents() {
+        return priceCents;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BusinessKey)) {
+            return false;
+        }
+        BusinessKey other = (BusinessKey) o;
+        return hash == other.hash && priceCents == other.priceCents && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "BusinessKey{" +
+                "name='" + name + '\'' +
+                ", price=" + Money.format(priceCents) +
+                '}';
+    }
+}
@@ -1,14 +1,59 @@
 package org.project;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
 
 /**
  * Represents a shopping cart that holds items selected by a customer.
  * Provides functionality to add products, retrieve items, calculate subtotal, and clear the cart.
+ * Items are indexed by the product's business key (name and price), so adding, updating and removing
+ * a line takes constant time regardless of cart size, while iteration keeps insertion order.
+ * <p>
+ * The subtotal, the shippable weight and the number of units are kept as running totals, updated on
+ * every add, quantity change and removal, so reading them (and the shipping estimate) takes constant time.
+ * <p>
+ * When a product in the cart changes its name or price, the {@link CartRepricer} queues the affected line
+ * on this cart. The cart applies queued changes before any other operation: the subtotal moves by the price
+ * difference, and the line is re-filed under the product's new business key (merging with an identical
+ * line if there is one, and keeping its position otherwise).
+ * <p>
+ * A cart may be shared by several sessions of the same customer and is safe for concurrent use. There is no
+ * cart-wide lock on the common path: line operations share the cart lock, and only operations on the same
+ * line serialize, on that line. {@link #snapshot()}, {@link #clear()} and repricing take the cart lock
+ * exclusively, so a snapshot sees every line and total as of one instant.
  */
 public class Cart {
-    private final List<CartItem> items = new ArrayList<CartItem>(); // List of items in the cart.
+    private static final CartRepricer REPRICER = CartRepricer.shared();
+    private static final int CATEGORY_COUNT = ProductCategory.values().length;
+    private static final Comparator<CartItem> INSERTION_ORDER = Comparator.comparingLong(item -> item.sequence);
+
+    private final ConcurrentHashMap<BusinessKey, CartItem> items = new ConcurrentHashMap<>(); // Lines by business key.
+    private final Collection<CartItem> itemsView = new ItemsView(); // Read-only view, in insertion order.
+    private final AtomicLong nextSequence = new AtomicLong(); // Insertion order of the lines
+    private final AtomicLong structureVersion = new AtomicLong(); // Bumped after every change to the set of lines
+    private volatile OrderedLines ordered = new OrderedLines(0, new CartItem[0]); // Lines in insertion order, cached
+    private final StampedLock lock = new StampedLock(); // Shared by line operations, exclusive for cart-wide ones
+
+    // Running totals over all lines
+    private final AtomicLong subtotalCents = new AtomicLong();
+    // Per category, by ordinal, so the rate engine can apply category surcharges; fixed point, so adding and removing lines never drifts
+    private final AtomicLongArray shippableWeightMilligrams = new AtomicLongArray(CATEGORY_COUNT);
+    private final AtomicInteger totalQuantity = new AtomicInteger();
+
+    private final ConcurrentLinkedQueue<CartItem> pendingRepricing = new ConcurrentLinkedQueue<>(); // Filled by product changes
 
     /**
      * Adds a product to the cart with the specified quantity.
@@ -20,6 +65,7 @@ public class Cart {
      *                                  or requested quantity exceeds available stock.
      */
     public void addProduct(Product product, int quantity) {
+        applyRepricing();
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null.");
         }
@@ -31,19 +77,103 @@ public class Cart {
         }
 
         // Check if product is already in cart by comparing business attributes
-        for (CartItem item : items) {
-            if (item.getProduct().hasSameBusinessKey(product)) {
-                int newQuantity = item.getQuantity() + quantity;
-                if (newQuantity > product.getQuantity()) {
+        BusinessKey key = product.getBusinessKey();
+        long stamp = lock.readLock();
+        try {
+            while (true) {
+                CartItem item = items.get(key);
+                if (item == null) {
+                    // If product is not in cart, add it; the new line is locked until its totals are in
+                    item = new CartItem(product, quantity);
+                    synchronized (item) {
+                        if (items.putIfAbsent(key, item) == null) {
+                            attach(item, key);
+                            return;
+                        }
+                    }
+                    continue; // Another session added the line first
+                }
+                synchronized (item) {
+                    if (item.cart != this) {
+                        continue; // Removed by another session meanwhile
+                    }
+                    int newQuantity = item.getQuantity() + quantity;
+                    if (newQuantity > product.getQuantity()) {
+                        throw new IllegalArgumentException("Requested quantity exceeds available stock.");
+                    }
+                    changeQuantity(item, newQuantity);
+                    return;
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets the quantity of a product that is already in the cart.
+     *
+     * @param product The product whose line should be updated.
+     * @param quantity The new quantity.
+     * @throws IllegalArgumentException if the product is null or not in the cart, quantity is non-positive,
+     *                                  or the quantity exceeds available stock.
+     */
+    public void updateQuantity(Product product, int quantity) {
+        applyRepricing();
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        long stamp = lock.readLock();
+        try {
+            CartItem item = items.get(product.getBusinessKey());
+            if (item == null) {
+                throw new IllegalArgumentException("Product is not in the cart.");
+            }
+            synchronized (item) {
+                if (item.cart != this) {
+                    throw new IllegalArgumentException("Product is not in the cart.");
+                }
+                if (quantity > product.getQuantity()) {
                     throw new IllegalArgumentException("Requested quantity exceeds available stock.");
                 }
-                item.setQuantity(newQuantity);
-                return;
+                changeQuantity(item, quantity);
             }
+        } finally {
+            lock.unlockRead(stamp);
         }
+    }
 
-        // If product is not in cart, add it
-        items.add(new CartItem(product, quantity));
+    /**
+     * Removes a product from the cart.
+     *
+     * @param product The product to remove.
+     * @return true if the product was in the cart, false otherwise.
+     */
+    public boolean removeProduct(Product product) {
+        if (product == null) {
+            return false;
+        }
+        applyRepricing();
+        long stamp = lock.readLock();
+        try {
+            CartItem item = items.get(product.getBusinessKey());
+            if (item == null) {
+                return false;
+            }
+            synchronized (item) {
+                if (item.cart != this) {
+                    return false; // Removed by another session meanwhile
+                }
+                items.remove(item.key, item);
+                detach(item);
+                return true;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -52,7 +182,42 @@ public class Cart {
      * @return A copy of the list of items in the cart.
      */
     public List<CartItem> getItems() {
-        return new ArrayList<>(items);
+        applyRepricing();
+        return new ArrayList<>(Arrays.asList(orderedLines()));
+    }
+
+    /**
+     * Retrieves a read-only view of the items in the cart.
+     * The same view instance is returned on every call. Each iteration walks the lines present when it starts,
+     * in insertion order, without copying them while the set of lines is unchanged; use {@link #snapshot()} when the lines must be consistent with each other and the totals.
+     *
+     * @return An unmodifiable view of the items in the cart.
+     */
+    public Collection<CartItem> getItemsView() {
+        applyRepricing();
+        return itemsView;
+    }
+
+    /**
+     * Performs the given action for each item in the cart, in insertion order.
+     *
+     * @param action The action to perform for each item.
+     */
+    public void forEachItem(Consumer<? super CartItem> action) {
+        applyRepricing();
+        for (CartItem item : orderedLines()) {
+            action.accept(item);
+        }
+    }
+
+    /**
+     * Gets the number of distinct lines in the cart.
+     *
+     * @return The number of items in the cart.
+     */
+    public int size() {
+        applyRepricing();
+        return items.size();
     }
 
     /**
@@ -61,6 +226,7 @@ public class Cart {
      * @return true if the cart is empty, false otherwise.
      */
     public boolean isEmpty() {
+        applyRepricing();
         return items.isEmpty();
     }
 
@@ -68,20 +234,309 @@ public class Cart {
      * Clears all items from the cart.
      */
     public void clear() {
-        items.clear();
+        long stamp = lock.writeLock();
+        try {
+            for (CartItem item : items.values()) {
+                item.cart = null;
+                REPRICER.untrack(item);
+            }
+            items.clear();
+            structureVersion.incrementAndGet();
+            pendingRepricing.clear();
+            subtotalCents.set(0);
+            for (int category = 0; category < CATEGORY_COUNT; category++) {
+                shippableWeightMilligrams.set(category, 0);
+            }
+            totalQuantity.set(0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes a consistent copy of the cart: its lines and totals as of one instant, with all pending product
+     * changes applied. Checkout charges a snapshot, so sessions that keep changing the cart meanwhile
+     * can never make the charged lines and the charged totals disagree.
+     *
+     * @return The snapshot of the cart.
+     */
+    public CartSnapshot snapshot() {
+        long stamp = lock.writeLock();
+        try {
+            drainRepricing();
+            CartItem[] lines = orderedLines();
+            List<CartItem> copies = new ArrayList<>(lines.length);
+            int[] quantities = new int[lines.length];
+            for (int i = 0; i < lines.length; i++) {
+                CartItem line = lines[i];
+                quantities[i] = line.getQuantity();
+                copies.add(new CartItem(line.getProduct(), quantities[i]));
+            }
+            return new CartSnapshot(copies, lines, quantities,
+                    subtotalCents.get(), shippableWeightsByCategory(), totalQuantity.get());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes what a snapshot of this cart contained, e.g. after the snapshot was checked out.
+     * Units added to a line since the snapshot stay in the cart, as do lines added since.
+     *
+     * @param snapshot A snapshot taken from this cart.
+     */
+    public void removeSnapshot(CartSnapshot snapshot) {
+        long stamp = lock.writeLock();
+        try {
+            CartItem[] lines = snapshot.lines;
+            for (int i = 0; i < lines.length; i++) {
+                CartItem line = lines[i];
+                if (line.cart != this) {
+                    continue; // Removed since the snapshot
+                }
+                int remaining = line.getQuantity() - snapshot.quantities[i];
+                if (remaining > 0) {
+                    changeQuantity(line, remaining);
+                } else {
+                    items.remove(line.key, line);
+                    detach(line);
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
-     * Calculates the subtotal of all items in the cart.
+     * Gets the subtotal of all items in the cart.
      * The subtotal is the sum of the subtotals of all cart items.
      *
      * @return The subtotal of the cart.
      */
     public double getSubtotal() {
-        double subtotal = 0;
-        for (CartItem item : items) {
-            subtotal += item.getSubtotal();
+        return Money.toUnits(getSubtotalCents());
+    }
+
+    /**
+     * Gets the subtotal of all items in the cart as a fixed-point amount.
+     *
+     * @return The subtotal of the cart in cents.
+     */
+    public long getSubtotalCents() {
+        applyRepricing();
+        return subtotalCents.get();
+    }
+
+    /**
+     * Gets the total weight of all shippable items in the cart.
+     *
+     * @return The weight in kilograms.
+     */
+    public double getShippableWeight() {
+        long weight = 0;
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            weight += shippableWeightMilligrams.get(category);
+        }
+        return weight / 1_000_000.0;
+    }
+
+    /**
+     * Estimates the shipping cost of the cart to the {@link ShippingRateEngine#DEFAULT_ZONE default zone}
+     * from its running weights, with the engine set on {@link ShippingService}.
+     *
+     * @return The shipping cost in cents.
+     */
+    public long getShippingEstimateCents() {
+        return ShippingService.getRateEngine().quoteCents(ShippingRateEngine.DEFAULT_ZONE, shippableWeightsByCategory());
+    }
+
+    /**
+     * Gets the number of units in the cart, summed over all lines.
+     *
+     * @return The total quantity.
+     */
+    public int getTotalQuantity() {
+        return totalQuantity.get();
+    }
+
+    /**
+     * Sets the quantity of a line on behalf of {@link CartItem#setQuantity(int)}.
+     *
+     * @param item     The line to change.
+     * @param quantity The new quantity.
+     * @return true if the item is a line of this cart and was changed, false otherwise.
+     */
+    boolean setLineQuantity(CartItem item, int quantity) {
+        long stamp = lock.readLock();
+        try {
+            synchronized (item) {
+                if (item.cart != this) {
+                    return false;
+                }
+                changeQuantity(item, quantity);
+                return true;
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Queues a line whose product changed its name or price. May be called from any thread.
+     *
+     * @param item The line to reprice.
+     */
+    void repricingNeeded(CartItem item) {
+        if (!item.repricingPending) {
+            item.repricingPending = true;
+            pendingRepricing.add(item);
+        }
+    }
+
+    private void applyRepricing() {
+        if (pendingRepricing.isEmpty()) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            drainRepricing();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Requires the cart lock to be held exclusively
+    private void drainRepricing() {
+        CartItem item;
+        while ((item = pendingRepricing.poll()) != null) {
+            item.repricingPending = false;
+            if (item.cart != this) {
+                continue; // Removed since it was queued
+            }
+            // Price and key from one published key, so they always belong to the same product change
+            BusinessKey key = item.getProduct().getBusinessKey();
+            long price = key.getPriceCents();
+            subtotalCents.addAndGet(Money.times(price - item.pricedCents, item.getQuantity()));
+            item.pricedCents = price;
+
+            if (key.equals(item.key)) {
+                continue;
+            }
+            items.remove(item.key, item);
+            CartItem identical = items.get(key);
+            if (identical == null) {
+                item.key = key;
+                items.put(key, item);
+                structureVersion.incrementAndGet(); // A reader may have missed the line while it was re-filed
+            } else {
+                detach(item);
+                changeQuantity(identical, identical.getQuantity() + item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Gets the lines in insertion order. The sorted array is cached until the set of lines changes, so repeated
+     * reads of an unchanged cart neither copy nor sort. Callers must not modify the array.
+     */
+    private CartItem[] orderedLines() {
+        OrderedLines cached = ordered;
+        long version = structureVersion.get();
+        if (cached.version == version) {
+            return cached.lines;
+        }
+        // Changes bump the version after touching the map, so the lines read now include every change up to it
+        CartItem[] lines = items.values().toArray(new CartItem[0]);
+        Arrays.sort(lines, INSERTION_ORDER);
+        ordered = new OrderedLines(version, lines);
+        return lines;
+    }
+
+    // Requires the line to be locked, or the cart lock to be held exclusively
+    private void changeQuantity(CartItem item, int quantity) {
+        int oldQuantity = item.exchangeQuantity(quantity);
+        addToTotals(item, quantity - oldQuantity);
+    }
+
+    private void attach(CartItem item, BusinessKey key) {
+        item.cart = this;
+        item.key = key;
+        item.sequence = nextSequence.getAndIncrement();
+        item.pricedCents = item.getProduct().getPriceCents();
+        addToTotals(item, item.getQuantity());
+        structureVersion.incrementAndGet();
+        REPRICER.track(item);
+        if (!item.getProduct().getBusinessKey().equals(key)) {
+            repricingNeeded(item); // Changed before the line was indexed, so no notification reached us
+        }
+    }
+
+    private void detach(CartItem item) {
+        item.cart = null;
+        structureVersion.incrementAndGet();
+        addToTotals(item, -item.getQuantity());
+        REPRICER.untrack(item);
+    }
+
+    private void addToTotals(CartItem item, int quantityDelta) {
+        Product product = item.getProduct();
+        subtotalCents.addAndGet(Money.times(item.pricedCents, quantityDelta));
+        if (product instanceof Shippable) {
+            shippableWeightMilligrams.addAndGet(product.getCategory().ordinal(),
+                    Math.round(((Shippable) product).getWeight() * 1_000_000) * quantityDelta);
+        }
+        totalQuantity.addAndGet(quantityDelta);
+    }
+
+    private long[] shippableWeightsByCategory() {
+        long[] weights = new long[CATEGORY_COUNT];
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            weights[category] = shippableWeightMilligrams.get(category);
+        }
+        return weights;
+    }
+
+    /**
+     * The lines in insertion order as of a version of the set of lines.
+     */
+    private static final class OrderedLines {
+        private final long version;
+        private final CartItem[] lines;
+
+        private OrderedLines(long version, CartItem[] lines) {
+            this.version = version;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Read-only view of the lines; every iteration walks the lines present when it starts.
+     */
+    private final class ItemsView extends AbstractCollection<CartItem> {
+        @Override
+        public Iterator<CartItem> iterator() {
+            CartItem[] lines = orderedLines();
+            return new Iterator<CartItem>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < lines.length;
+                }
+
+                @Override
+                public CartItem next() {
+                    if (next == lines.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return lines[next++];
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return items.size();
         }
-        return subtotal;
     }
-}
\ No newline at end of file
+}
@@ -6,16 +6,27 @@ package org.project;
  */
 public class CartItem {
     private final Product product; // The product associated with this cart item.
-    private int quantity; // The quantity of the product in the cart.
+    private volatile int quantity; // The quantity of the product in the cart.
+    // Bookkeeping of the owning cart
+    volatile Cart cart; // The cart this item is a line of, kept informed of quantity changes; null when detached.
+    BusinessKey key; // The key the cart files this line under.
+    long sequence; // Position of this line in the cart's insertion order.
+    long pricedCents; // The unit price this line contributes to the cart's running subtotal.
+    volatile boolean repricingPending; // Queued on the cart for repricing after a product change.
+    CartRepricer.LineReference repricerReference; // The line's entry in the repricer's index; null when not indexed.
 
     /**
      * Constructs a CartItem with the specified product and quantity.
      *
      * @param product The product to be added to the cart.
      * @param quantity The quantity of the product.
-     * @throws IllegalArgumentException if the product is null or quantity is negative.
+     * @throws IllegalArgumentException if the product is null or the quantity is not positive.
      */
     public CartItem(Product product, int quantity) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        validateQuantity(quantity);
         this.product = product;
         this.quantity = quantity;
     }
@@ -40,12 +51,35 @@ public class CartItem {
 
     /**
      * Sets the quantity of the product in the cart.
+     * On a line of a cart this is safe against concurrent changes to the same cart.
      *
      * @param quantity The new quantity.
-     * @throws IllegalArgumentException if the quantity is negative.
+     * @throws IllegalArgumentException if the quantity is not positive; remove the product from the cart instead.
      */
     public void setQuantity(int quantity) {
+        validateQuantity(quantity); // The cart's running totals assume every line holds at least one unit
+        Cart owner = cart;
+        if (owner == null || !owner.setLineQuantity(this, quantity)) {
+            this.quantity = quantity;
+        }
+    }
+
+    private static void validateQuantity(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+    }
+
+    /**
+     * Sets the quantity without informing the cart; the cart does its own bookkeeping.
+     *
+     * @param quantity The new quantity.
+     * @return The quantity before the change.
+     */
+    int exchangeQuantity(int quantity) {
+        int oldQuantity = this.quantity;
         this.quantity = quantity;
+        return oldQuantity;
     }
 
     /**
@@ -55,6 +89,15 @@ public class CartItem {
      * @return The subtotal for this cart item.
      */
     public double getSubtotal() {
-        return product.getPrice() * quantity;
+        return Money.toUnits(getSubtotalCents());
+    }
+
+    /**
+     * Calculates the subtotal for this cart item as a fixed-point amount.
+     *
+     * @return The subtotal for this cart item in cents.
+     */
+    public long getSubtotalCents() {
+        return Money.times(product.getPriceCents(), quantity);
     }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package org.project;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps open carts in line with product changes.
+ * <p>
+ * Holds a reverse index from every product to the cart lines that hold it, so a price or name change
+ * reaches exactly the carts holding the product instead of scanning every cart. The change itself is
+ * only queued on the affected lines' carts; each cart applies its queued changes (new subtotal, re-keyed
+ * line) the next time it is used, on the thread that uses it. A pricing run over many products therefore
+ * costs one queue entry per affected line and never waits for a cart.
+ * <p>
+ * Lines enter the index when they are added to a cart and leave it when they are removed or the cart is cleared.
+ * The index only holds lines weakly, so a cart that is simply dropped, e.g. an abandoned session, is still
+ * collected; its lines are purged from the index on a later add.
+ */
+final class CartRepricer implements ProductChangeListener {
+    private static final CartRepricer SHARED = new CartRepricer();
+
+    static {
+        Product.addChangeListener(SHARED);
+    }
+
+    private final ConcurrentHashMap<Product, Set<LineReference>> linesByProduct = new ConcurrentHashMap<>();
+    private final ReferenceQueue<CartItem> collectedLines = new ReferenceQueue<>();
+
+    private CartRepricer() {
+    }
+
+    /**
+     * Gets the repricer that all carts register their lines with.
+     *
+     * @return The shared repricer, already listening to product changes.
+     */
+    static CartRepricer shared() {
+        return SHARED;
+    }
+
+    void track(CartItem line) {
+        expungeCollectedLines();
+        LineReference reference = new LineReference(line, collectedLines);
+        line.repricerReference = reference;
+        linesByProduct.compute(reference.product, (product, lines) -> {
+            if (lines == null) {
+                lines = ConcurrentHashMap.newKeySet();
+            }
+            lines.add(reference);
+            return lines;
+        });
+    }
+
+    void untrack(CartItem line) {
+        LineReference reference = line.repricerReference;
+        if (reference != null) {
+            line.repricerReference = null;
+            remove(reference);
+        }
+    }
+
+    /**
+     * Gets the number of products that are currently in at least one cart.
+     *
+     * @return The number of indexed products.
+     */
+    int getTrackedProductCount() {
+        expungeCollectedLines();
+        return linesByProduct.size();
+    }
+
+    /**
+     * Tells whether a product is in at least one cart that has not been collected.
+     *
+     * @param product The product.
+     * @return true if the product is indexed.
+     */
+    boolean isTracked(Product product) {
+        expungeCollectedLines();
+        return linesByProduct.containsKey(product);
+    }
+
+    @Override
+    public void productChanged(Product product, BusinessKey oldKey) {
+        Set<LineReference> lines = linesByProduct.get(product);
+        if (lines == null) {
+            return;
+        }
+        for (LineReference reference : lines) {
+            CartItem line = reference.get();
+            Cart cart = line == null ? null : line.cart;
+            if (cart != null) {
+                cart.repricingNeeded(line);
+            }
+        }
+    }
+
+    private void expungeCollectedLines() {
+        for (Reference<? extends CartItem> collected = collectedLines.poll(); collected != null; collected = collectedLines.poll()) {
+            remove((LineReference) collected);
+        }
+    }
+
+    private void remove(LineReference reference) {
+        linesByProduct.computeIfPresent(reference.product, (product, lines) -> {
+            lines.remove(reference);
+            return lines.isEmpty() ? null : lines;
+        });
+    }
+
+    /**
+     * A weak reference to an indexed line. Keeps the product, so the line can be removed from the index
+     * after it was collected. Compared by identity.
+     */
+    static final class LineReference extends WeakReference<CartItem> {
+        private final Product product;
+
+        private LineReference(CartItem line, ReferenceQueue<CartItem> queue) {
+            super(line, queue);
+            this.product = line.getProduct();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.project;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The contents of a {@link Cart} as of one instant: its lines and its running totals, consistent with each other.
+ * Taken by {@link Cart#snapshot()}; later changes to the cart do not affect it.
+ */
+public final class CartSnapshot {
+    private final List<CartItem> items; // Detached copies of the lines, in insertion order.
+    final CartItem[] lines; // The cart lines the copies were taken from.
+    final int[] quantities; // The quantity of each line when the snapshot was taken.
+    private final long subtotalCents;
+    private final long[] shippableWeightMilligrams; // By category ordinal
+    private final int totalQuantity;
+
+    CartSnapshot(List<CartItem> items, CartItem[] lines, int[] quantities,
+                 long subtotalCents, long[] shippableWeightMilligrams, int totalQuantity) {
+        this.items = Collections.unmodifiableList(items);
+        this.lines = lines;
+        this.quantities = quantities;
+        this.subtotalCents = subtotalCents;
+        this.shippableWeightMilligrams = shippableWeightMilligrams;
+        this.totalQuantity = totalQuantity;
+    }
+
+    /**
+     * Gets the lines of the cart. The items are copies, so changing them does not change the cart.
+     *
+     * @return The lines, in insertion order.
+     */
+    public List<CartItem> getItems() {
+        return items;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /**
+     * Gets the subtotal of the cart as a fixed-point amount.
+     *
+     * @return The subtotal in cents.
+     */
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Gets the total weight of all shippable items.
+     *
+     * @return The weight in kilograms.
+     */
+    public double getShippableWeight() {
+        long weight = 0;
+        for (long categoryWeight : shippableWeightMilligrams) {
+            weight += categoryWeight;
+        }
+        return weight / 1_000_000.0;
+    }
+
+    /**
+     * Estimates the shipping cost to the {@link ShippingRateEngine#DEFAULT_ZONE default zone}.
+     *
+     * @return The shipping cost in cents.
+     */
+    public long getShippingEstimateCents() {
+        return getShippingCents(ShippingRateEngine.DEFAULT_ZONE);
+    }
+
+    /**
+     * Prices shipping the snapshot's shippable items to a zone, with the engine set on {@link ShippingService}.
+     *
+     * @param zone The destination zone.
+     * @return The shipping cost in cents.
+     * @throws IllegalArgumentException if the engine does not know the zone.
+     */
+    public long getShippingCents(int zone) {
+        return getShippingCents(ShippingService.getRateEngine(), zone);
+    }
+
+    /**
+     * Prices shipping the snapshot's shippable items to a zone with the given engine, e.g. one a checkout already
+     * checked the zone against.
+     */
+    long getShippingCents(ShippingRateEngine rateEngine, int zone) {
+        return rateEngine.quoteCents(zone, shippableWeightMilligrams);
+    }
+
+    public int getTotalQuantity() {
+        return totalQuantity;
+    }
+}
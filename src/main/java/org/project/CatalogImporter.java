@@ -0,0 +1,847 @@
+package org.project;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Imports products from a feed file, one product per line, in parallel.
+ * <p>
+ * The file is split into fixed-size chunks that worker threads claim one at a time. Every worker reads
+ * its chunk with positional {@link FileChannel} reads into its own buffer and parses the lines straight
+ * from the bytes, so memory stays bounded by the number of threads times the longest line, whatever the
+ * size of the file. A line belongs to the chunk it starts in; the worker of that chunk reads past the
+ * chunk end to finish it.
+ * <p>
+ * Every row is built through the public product constructors, so it passes the same validation as
+ * hand-written products. A row that cannot be parsed or fails validation is reported with its line
+ * number and skipped; the rest of the feed is still imported.
+ * <p>
+ * Supported formats (see {@link Format}):
+ * <pre>
+ * CSV:         category,name,price,quantity,weight,expirationDate
+ *              GROCERY,"Cheese 400g",100.00,10,0.4,2026-01-31
+ * JSON lines:  {"category":"DIGITAL","name":"Mobile Scratch Card","price":50,"quantity":100}
+ * </pre>
+ * Weight is required for grocery and electronics products, the expiration date ({@code yyyy-MM-dd})
+ * for grocery products. Numbers use plain decimal notation. A CSV header line is skipped.
+ */
+public class CatalogImporter {
+    /**
+     * The supported feed formats.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * Picks the format from a file name: {@code .jsonl} and {@code .ndjson} files are JSON lines, anything else CSV.
+         *
+         * @param file The feed file.
+         * @return The format of the file.
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON_LINES : CSV;
+        }
+    }
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int DEFAULT_MAX_ERRORS = 1_000;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_LINE_LENGTH = 1024 * 1024;
+    private static final int TAIL_READ_SIZE = 4 * 1024; // Reads past the chunk end only finish the last line
+
+    private final int threads;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    /**
+     * Constructs an importer that uses all available processors.
+     */
+    public CatalogImporter() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE, DEFAULT_MAX_ERRORS);
+    }
+
+    /**
+     * Constructs an importer.
+     *
+     * @param threads   The number of worker threads.
+     * @param chunkSize The number of bytes a worker claims at a time.
+     * @param maxErrors The number of row errors kept for the result; further errors are only counted.
+     */
+    public CatalogImporter(int threads, int chunkSize, int maxErrors) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive.");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("Error limit cannot be negative.");
+        }
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports every product of a feed file into a catalog.
+     *
+     * @param file    The feed file; its format is picked by {@link Format#of(Path)}.
+     * @param catalog The catalog to add the products to.
+     * @return The number of imported and rejected rows.
+     * @throws IOException if the file cannot be read.
+     */
+    public ImportResult importInto(Path file, ProductCatalog catalog) throws IOException {
+        return importFeed(file, Format.of(file), catalog::add);
+    }
+
+    /**
+     * Imports every product of a feed file.
+     * Products are handed to the sink as soon as they are parsed, from several threads at once and not
+     * in file order, so the sink must be thread-safe. A sink that rejects a product with an
+     * {@link IllegalArgumentException} turns it into a row error.
+     *
+     * @param file   The feed file.
+     * @param format The format of the file.
+     * @param sink   Receives every imported product.
+     * @return The number of imported and rejected rows.
+     * @throws IOException if the file cannot be read.
+     */
+    public ImportResult importFeed(Path file, Format format, Consumer<? super Product> sink) throws IOException {
+        if (format == null || sink == null) {
+            throw new IllegalArgumentException("Format and sink cannot be null.");
+        }
+        long started = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkCount = Math.max(1, (size + chunkSize - 1) / chunkSize);
+            if (chunkCount > Integer.MAX_VALUE) {
+                throw new IOException("Feed is too large for chunks of " + chunkSize + " bytes.");
+            }
+            ImportRun run = new ImportRun(channel, size, (int) chunkCount, format, sink);
+            int workers = (int) Math.min(threads, chunkCount);
+            ExecutorService executor = Executors.newFixedThreadPool(workers);
+            try {
+                List<Future<?>> futures = new ArrayList<>(workers);
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executor.submit(() -> {
+                        run.work();
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import was interrupted.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw (Error) cause;
+            } finally {
+                run.abort();
+                executor.shutdownNow();
+            }
+            return run.result(System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * The shared state of one import: which chunks are taken, and what was found in them.
+     */
+    private final class ImportRun {
+        private final FileChannel channel;
+        private final long size;
+        private final Format format;
+        private final Consumer<? super Product> sink;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final long[] linesPerChunk; // Resolves chunk-relative line numbers at the end
+        private final LongAdder imported = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final PriorityQueue<PendingError> errors; // Guarded by itself; the first errors by line, largest on top
+        private volatile boolean aborted;
+
+        ImportRun(FileChannel channel, long size, int chunks, Format format, Consumer<? super Product> sink) {
+            this.channel = channel;
+            this.size = size;
+            this.format = format;
+            this.sink = sink;
+            this.linesPerChunk = new long[chunks];
+            this.errors = new PriorityQueue<>(Collections.reverseOrder());
+        }
+
+        void abort() {
+            aborted = true;
+        }
+
+        void work() throws IOException {
+            RowParser parser = format == Format.CSV ? new CsvParser() : new JsonLineParser();
+            LineReader reader = new LineReader(channel);
+            int chunk;
+            while (!aborted && (chunk = nextChunk.getAndIncrement()) < linesPerChunk.length) {
+                linesPerChunk[chunk] = processChunk(chunk, reader, parser);
+            }
+        }
+
+        private long processChunk(int chunk, LineReader reader, RowParser parser) throws IOException {
+            long start = (long) chunk * chunkSize;
+            long end = Math.min(start + chunkSize, size);
+            if (start > 0) {
+                // Skip the tail of the line that started in the previous chunk
+                reader.reset(start - 1, end);
+                if (!reader.nextLine()) {
+                    return 0;
+                }
+            } else {
+                reader.reset(0, end);
+            }
+
+            long lines = 0;
+            long importedRows = 0;
+            while (reader.position() < end && reader.nextLine()) {
+                lines++;
+                if (reader.lineLength < 0) {
+                    reportError(chunk, lines, "Line is longer than " + MAX_LINE_LENGTH + " bytes.");
+                    continue;
+                }
+                byte[] buffer = reader.buffer;
+                int offset = reader.lineOffset;
+                int length = reader.lineLength;
+                if (length > 0 && buffer[offset + length - 1] == '\r') {
+                    length--;
+                }
+                if (isBlank(buffer, offset, length) || (chunk == 0 && lines == 1 && isCsvHeader(buffer, offset, length))) {
+                    continue;
+                }
+                try {
+                    sink.accept(parser.parse(buffer, offset, length));
+                    importedRows++;
+                } catch (IllegalArgumentException e) {
+                    reportError(chunk, lines, e.getMessage());
+                }
+            }
+            imported.add(importedRows);
+            return lines;
+        }
+
+        private boolean isCsvHeader(byte[] buffer, int offset, int length) {
+            return format == Format.CSV && regionMatchesIgnoreCase(buffer, offset, length, "category,");
+        }
+
+        private void reportError(int chunk, long line, String message) {
+            failed.increment();
+            if (maxErrors == 0) {
+                return;
+            }
+            PendingError error = new PendingError(chunk, line, message);
+            synchronized (errors) {
+                if (errors.size() < maxErrors) {
+                    errors.add(error);
+                } else if (error.compareTo(errors.peek()) < 0) {
+                    errors.poll();
+                    errors.add(error);
+                }
+            }
+        }
+
+        ImportResult result(long elapsedNanos) {
+            long[] firstLine = new long[linesPerChunk.length];
+            for (int i = 1; i < firstLine.length; i++) {
+                firstLine[i] = firstLine[i - 1] + linesPerChunk[i - 1];
+            }
+            List<PendingError> pending;
+            synchronized (errors) {
+                pending = new ArrayList<>(errors);
+            }
+            pending.sort(null);
+            List<ImportResult.RowError> rowErrors = new ArrayList<>(pending.size());
+            for (PendingError error : pending) {
+                rowErrors.add(new ImportResult.RowError(firstLine[error.chunk] + error.line, error.message));
+            }
+            return new ImportResult(imported.sum(), failed.sum(), rowErrors, size, elapsedNanos);
+        }
+    }
+
+    /**
+     * A row error whose line number is still relative to its chunk.
+     */
+    private static final class PendingError implements Comparable<PendingError> {
+        private final int chunk;
+        private final long line; // 1-based within the chunk
+        private final String message;
+
+        PendingError(int chunk, long line, String message) {
+            this.chunk = chunk;
+            this.line = line;
+            this.message = message;
+        }
+
+        @Override
+        public int compareTo(PendingError other) {
+            int byChunk = Integer.compare(chunk, other.chunk);
+            return byChunk != 0 ? byChunk : Long.compare(line, other.line);
+        }
+    }
+
+    /**
+     * Reads lines from one region of the file into a reusable buffer.
+     * After {@link #nextLine()} the line is {@code buffer[lineOffset, lineOffset + lineLength)} without
+     * its line feed; a line longer than {@link #MAX_LINE_LENGTH} is skipped and reported with a length of -1.
+     */
+    private static final class LineReader {
+        private final FileChannel channel;
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int lineOffset;
+        int lineLength;
+        private long bufferStart; // File position of buffer[0]
+        private int position;
+        private int limit;
+        private long end; // Reads are sized to stop here; past it only the last line is finished
+        private boolean endOfFile;
+
+        LineReader(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void reset(long filePosition, long end) {
+            this.bufferStart = filePosition;
+            this.position = 0;
+            this.limit = 0;
+            this.end = end;
+            this.endOfFile = false;
+        }
+
+        long position() {
+            return bufferStart + position;
+        }
+
+        boolean nextLine() throws IOException {
+            int scan = position;
+            boolean overlong = false;
+            while (true) {
+                for (int i = scan; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        lineOffset = position;
+                        lineLength = overlong ? -1 : i - position;
+                        position = i + 1;
+                        return true;
+                    }
+                }
+                scan = limit;
+                if (endOfFile) {
+                    if (position < limit || overlong) {
+                        lineOffset = position;
+                        lineLength = overlong ? -1 : limit - position;
+                        position = limit;
+                        return true;
+                    }
+                    return false;
+                }
+
+                // Keep the unfinished line and make room behind it
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0, limit - position);
+                    bufferStart += position;
+                    scan -= position;
+                    limit -= position;
+                    position = 0;
+                }
+                if (limit == buffer.length) {
+                    if (buffer.length >= MAX_LINE_LENGTH) {
+                        overlong = true; // Drop what we have and look for the end of the line
+                        bufferStart += limit;
+                        scan = 0;
+                        limit = 0;
+                    } else {
+                        buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+                    }
+                }
+                long filePosition = bufferStart + limit;
+                int space = buffer.length - limit;
+                int wanted = filePosition < end ? (int) Math.min(space, end - filePosition) : Math.min(space, TAIL_READ_SIZE);
+                int read = channel.read(ByteBuffer.wrap(buffer, limit, wanted), filePosition);
+                if (read < 0) {
+                    endOfFile = true;
+                } else {
+                    limit += read;
+                }
+            }
+        }
+    }
+
+    /**
+     * Turns one line into a product. Parsers record where each field's value is in the line and
+     * convert the values straight from the bytes; only text fields become strings.
+     */
+    private abstract static class RowParser {
+        static final int CATEGORY = 0;
+        static final int NAME = 1;
+        static final int PRICE = 2;
+        static final int QUANTITY = 3;
+        static final int WEIGHT = 4;
+        static final int EXPIRATION = 5;
+        static final int FIELD_COUNT = 6;
+
+        static final byte ABSENT = 0;
+        static final byte PLAIN = 1;
+        static final byte CSV_QUOTED = 2; // Contains "" escapes
+        static final byte JSON_ESCAPED = 3; // Contains backslash escapes
+
+        private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+        private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+
+        private final int[] fieldStart = new int[FIELD_COUNT];
+        private final int[] fieldEnd = new int[FIELD_COUNT];
+        private final byte[] fieldKind = new byte[FIELD_COUNT];
+        byte[] line;
+
+        Product parse(byte[] buffer, int offset, int length) {
+            line = buffer;
+            Arrays.fill(fieldKind, ABSENT);
+            split(offset, offset + length);
+
+            ProductCategory category = category();
+            String name = text(NAME);
+            double price = Money.toUnits(cents(PRICE));
+            int quantity = integer(QUANTITY);
+            switch (category) {
+                case GROCERY:
+                    return new GroceryProduct(name, price, quantity, decimal(WEIGHT), date(EXPIRATION));
+                case ELECTRONICS:
+                    return new ElectronicsProduct(name, price, quantity, decimal(WEIGHT));
+                default:
+                    return new DigitalProduct(name, price, quantity);
+            }
+        }
+
+        /**
+         * Records the value span of every field in {@code line[from, to)}.
+         */
+        abstract void split(int from, int to);
+
+        void set(int field, int start, int end, byte kind) {
+            if (field < 0) {
+                return; // Unknown field
+            }
+            fieldStart[field] = start;
+            fieldEnd[field] = end;
+            fieldKind[field] = start == end ? ABSENT : kind;
+        }
+
+        private ProductCategory category() {
+            int start = require(CATEGORY, "category");
+            for (ProductCategory category : CATEGORIES) {
+                if (fieldEnd[CATEGORY] - start == category.name().length()
+                        && regionMatchesIgnoreCase(line, start, category.name().length(), category.name())) {
+                    return category;
+                }
+            }
+            throw invalid("category", CATEGORY);
+        }
+
+        private String text(int field) {
+            if (fieldKind[field] == ABSENT) {
+                return null; // The constructors reject missing names
+            }
+            String value = new String(line, fieldStart[field], fieldEnd[field] - fieldStart[field], StandardCharsets.UTF_8);
+            if (fieldKind[field] == CSV_QUOTED) {
+                return value.replace("\"\"", "\"");
+            }
+            if (fieldKind[field] == JSON_ESCAPED) {
+                return unescapeJson(value);
+            }
+            return value;
+        }
+
+        private long cents(int field) {
+            int i = require(field, "price");
+            int end = fieldEnd[field];
+            boolean negative = line[i] == '-';
+            if (negative) {
+                i++;
+            }
+            long units = 0;
+            int digits = 0;
+            for (; i < end && line[i] != '.'; i++, digits++) {
+                if (!isDigit(line[i]) || digits == 15) {
+                    throw invalid("price", field);
+                }
+                units = units * 10 + (line[i] - '0');
+            }
+            long fraction = 0;
+            int fractionDigits = 0;
+            if (i < end) {
+                for (i++; i < end; i++, fractionDigits++) {
+                    if (!isDigit(line[i])) {
+                        throw invalid("price", field);
+                    }
+                    if (fractionDigits < 2) {
+                        fraction = fraction * 10 + (line[i] - '0');
+                    } else if (fractionDigits == 2 && line[i] >= '5') {
+                        fraction++; // Round half up to whole cents
+                    }
+                }
+                if (fractionDigits == 1) {
+                    fraction *= 10;
+                }
+            }
+            if (digits == 0 && fractionDigits == 0) {
+                throw invalid("price", field);
+            }
+            long cents = units * Money.CENTS_PER_UNIT + fraction;
+            return negative ? -cents : cents;
+        }
+
+        private int integer(int field) {
+            int i = require(field, "quantity");
+            int end = fieldEnd[field];
+            boolean negative = line[i] == '-';
+            if (negative) {
+                i++;
+            }
+            if (i == end || end - i > 10) {
+                throw invalid("quantity", field);
+            }
+            long value = 0;
+            for (; i < end; i++) {
+                if (!isDigit(line[i])) {
+                    throw invalid("quantity", field);
+                }
+                value = value * 10 + (line[i] - '0');
+            }
+            value = negative ? -value : value;
+            if (value != (int) value) {
+                throw invalid("quantity", field);
+            }
+            return (int) value;
+        }
+
+        private double decimal(int field) {
+            int i = require(field, "weight");
+            int end = fieldEnd[field];
+            boolean negative = line[i] == '-';
+            if (negative) {
+                i++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = -1; // Digits after the point, -1 until the point is seen
+            for (; i < end; i++) {
+                if (line[i] == '.' && scale < 0) {
+                    scale = 0;
+                    continue;
+                }
+                if (!isDigit(line[i])) {
+                    throw invalid("weight", field);
+                }
+                mantissa = mantissa * 10 + (line[i] - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            }
+            if (digits == 0) {
+                throw invalid("weight", field);
+            }
+            if (digits > 15) {
+                // Beyond what the exact fast path can represent
+                return Double.parseDouble(text(field));
+            }
+            // Exact: both operands are exactly representable, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[Math.max(scale, 0)];
+            return negative ? -value : value;
+        }
+
+        private LocalDate date(int field) {
+            int start = require(field, "expiration date");
+            if (fieldEnd[field] - start != 10 || line[start + 4] != '-' || line[start + 7] != '-') {
+                throw invalid("expiration date", field);
+            }
+            try {
+                return LocalDate.of(digits(field, start, 4), digits(field, start + 5, 2), digits(field, start + 8, 2));
+            } catch (DateTimeException e) {
+                throw invalid("expiration date", field);
+            }
+        }
+
+        private int digits(int field, int start, int count) {
+            int value = 0;
+            for (int i = start; i < start + count; i++) {
+                if (!isDigit(line[i])) {
+                    throw invalid("expiration date", field);
+                }
+                value = value * 10 + (line[i] - '0');
+            }
+            return value;
+        }
+
+        private int require(int field, String label) {
+            if (fieldKind[field] == ABSENT) {
+                throw new IllegalArgumentException("Missing " + label + ".");
+            }
+            return fieldStart[field];
+        }
+
+        private IllegalArgumentException invalid(String label, int field) {
+            String value = new String(line, fieldStart[field], Math.min(fieldEnd[field] - fieldStart[field], 40), StandardCharsets.UTF_8);
+            return new IllegalArgumentException("Invalid " + label + " '" + value + "'.");
+        }
+
+        private static boolean isDigit(byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        private static String unescapeJson(String value) {
+            StringBuilder text = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c != '\\') {
+                    text.append(c);
+                    continue;
+                }
+                if (++i == value.length()) {
+                    throw new IllegalArgumentException("Invalid escape in string.");
+                }
+                switch (value.charAt(i)) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        text.append(value.charAt(i));
+                        break;
+                    case 'b':
+                        text.append('\b');
+                        break;
+                    case 'f':
+                        text.append('\f');
+                        break;
+                    case 'n':
+                        text.append('\n');
+                        break;
+                    case 'r':
+                        text.append('\r');
+                        break;
+                    case 't':
+                        text.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 4 >= value.length()) {
+                            throw new IllegalArgumentException("Invalid escape in string.");
+                        }
+                        try {
+                            text.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Invalid escape in string.");
+                        }
+                        i += 4;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid escape in string.");
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    /**
+     * Parses {@code category,name,price,quantity,weight,expirationDate}; values may be quoted with {@code "}.
+     */
+    private static final class CsvParser extends RowParser {
+        @Override
+        void split(int from, int to) {
+            int i = from;
+            int field = 0;
+            while (true) {
+                if (field == FIELD_COUNT) {
+                    throw new IllegalArgumentException("Too many columns, expected at most " + FIELD_COUNT + ".");
+                }
+                if (i < to && line[i] == '"') {
+                    int start = i + 1;
+                    boolean escaped = false;
+                    int j = start;
+                    while (true) {
+                        if (j >= to) {
+                            throw new IllegalArgumentException("Unterminated quoted value.");
+                        }
+                        if (line[j] == '"') {
+                            if (j + 1 < to && line[j + 1] == '"') {
+                                escaped = true;
+                                j += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        j++;
+                    }
+                    set(field, start, j, escaped ? CSV_QUOTED : PLAIN);
+                    i = j + 1;
+                    if (i < to && line[i] != ',') {
+                        throw new IllegalArgumentException("Unexpected character after quoted value.");
+                    }
+                } else {
+                    int start = i;
+                    while (i < to && line[i] != ',') {
+                        i++;
+                    }
+                    set(field, start, i, PLAIN);
+                }
+                field++;
+                if (i >= to) {
+                    return;
+                }
+                i++; // Skip the comma
+            }
+        }
+    }
+
+    /**
+     * Parses one flat JSON object per line. Unknown keys are ignored; nested values are rejected.
+     */
+    private static final class JsonLineParser extends RowParser {
+        private static final String[] KEYS = {"category", "name", "price", "quantity", "weight", "expirationDate"};
+
+        @Override
+        void split(int from, int to) {
+            int i = skipWhitespace(from, to);
+            expect(i, to, '{');
+            i = skipWhitespace(i + 1, to);
+            if (i < to && line[i] == '}') {
+                i++;
+            } else {
+                while (true) {
+                    expect(i, to, '"');
+                    int keyStart = i + 1;
+                    int keyEnd = endOfString(keyStart, to);
+                    int field = field(keyStart, keyEnd);
+                    i = skipWhitespace(keyEnd + 1, to);
+                    expect(i, to, ':');
+                    i = skipWhitespace(i + 1, to);
+                    if (i >= to) {
+                        throw new IllegalArgumentException("Missing value.");
+                    }
+
+                    byte first = line[i];
+                    if (first == '"') {
+                        int valueEnd = endOfString(i + 1, to);
+                        set(field, i + 1, valueEnd, hasBackslash(i + 1, valueEnd) ? JSON_ESCAPED : PLAIN);
+                        i = valueEnd + 1;
+                    } else if (first == '{' || first == '[') {
+                        throw new IllegalArgumentException("Nested values are not supported.");
+                    } else {
+                        int start = i;
+                        while (i < to && line[i] != ',' && line[i] != '}' && line[i] != ' ' && line[i] != '\t') {
+                            i++;
+                        }
+                        boolean isNull = i - start == 4 && regionMatchesIgnoreCase(line, start, 4, "null");
+                        set(field, start, isNull ? start : i, PLAIN);
+                    }
+
+                    i = skipWhitespace(i, to);
+                    if (i < to && line[i] == ',') {
+                        i = skipWhitespace(i + 1, to);
+                    } else if (i < to && line[i] == '}') {
+                        i++;
+                        break;
+                    } else {
+                        throw new IllegalArgumentException("Expected ',' or '}'.");
+                    }
+                }
+            }
+            if (skipWhitespace(i, to) != to) {
+                throw new IllegalArgumentException("Unexpected content after the object.");
+            }
+        }
+
+        private int field(int start, int end) {
+            for (int field = 0; field < KEYS.length; field++) {
+                String key = KEYS[field];
+                if (end - start == key.length() && regionMatchesIgnoreCase(line, start, key.length(), key)) {
+                    return field;
+                }
+            }
+            return -1;
+        }
+
+        private int endOfString(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] == '\\') {
+                    i++;
+                } else if (line[i] == '"') {
+                    return i;
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string.");
+        }
+
+        private boolean hasBackslash(int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (line[i] == '\\') {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int skipWhitespace(int from, int to) {
+            while (from < to && (line[from] == ' ' || line[from] == '\t')) {
+                from++;
+            }
+            return from;
+        }
+
+        private void expect(int i, int to, char c) {
+            if (i >= to || line[i] != c) {
+                throw new IllegalArgumentException("Expected '" + c + "'.");
+            }
+        }
+    }
+
+    private static boolean isBlank(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] != ' ' && buffer[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the bytes start with the given ASCII text, ignoring case.
+     */
+    private static boolean regionMatchesIgnoreCase(byte[] buffer, int offset, int length, String ascii) {
+        if (length < ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < ascii.length(); i++) {
+            if (Character.toLowerCase((char) buffer[offset + i]) != Character.toLowerCase(ascii.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,402 @@
+package org.project;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of stock and balance changes.
+ * <p>
+ * Every record is written as {@code length (int) | CRC-32 (int) | body}. Customers are recorded by
+ * {@link Customer#getId() id}, since names need not be unique. A checkout is a single record
+ * holding the customer's debit and all of its stock reductions, so after a crash a checkout is either
+ * replayed completely or not at all; a torn record at the end of the file fails its checksum and ends the replay.
+ * <p>
+ * With group commit, appending threads only copy their record into a shared buffer and wait; a single
+ * flusher thread writes everything that accumulated while the previous flush was running and makes it
+ * durable with one {@code fsync}, so many checkouts share the cost of one flush. Without group commit,
+ * every append is written and synced on its own.
+ * <p>
+ * The journal holds the changes made since the last {@link InventorySnapshot}; start a new journal
+ * whenever a snapshot is written, and on startup {@link #replay(Path, ProductCatalog, LongFunction)} the
+ * journal onto the catalog loaded from the snapshot.
+ */
+public class CheckoutJournal implements AutoCloseable {
+    private static final byte CHECKOUT = 1;
+    private static final byte STOCK = 2;
+    private static final byte BALANCE = 3;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final boolean groupCommit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Thread flusher; // null without group commit
+
+    // Guarded by lock
+    private Block active = new Block(); // Records waiting for the next flush
+    private Block spare = new Block(); // Buffer handed back by the flusher
+    private long appendedBytes;
+    private long durableBytes;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens (or creates) a journal file and appends to it.
+     *
+     * @param file        The journal file.
+     * @param groupCommit true to batch concurrent appends into one fsync, false to sync every append.
+     * @throws IOException if the file cannot be opened.
+     */
+    public CheckoutJournal(Path file, boolean groupCommit) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.groupCommit = groupCommit;
+        if (groupCommit) {
+            this.flusher = new Thread(this::flushLoop, "journal-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+    }
+
+    /**
+     * Records a checkout and waits until it is durable.
+     *
+     * @param customer    The customer who checked out.
+     * @param debitCents  The amount debited from the customer, in cents.
+     * @param items       The purchased lines; each one reduces its product's stock.
+     * @throws IOException if the record could not be made durable.
+     */
+    public void logCheckout(Customer customer, long debitCents, Collection<CartItem> items) throws IOException {
+        RecordWriter record = new RecordWriter(64 + 12 * items.size());
+        record.putByte(CHECKOUT).putLong(customer.getId()).putLong(debitCents).putInt(items.size());
+        for (CartItem item : items) {
+            record.putLong(item.getProduct().getId()).putInt(item.getQuantity());
+        }
+        append(record.finish());
+    }
+
+    /**
+     * Records a stock change made outside of checkout, e.g. a restock, and waits until it is durable.
+     *
+     * @param product The product whose stock changed.
+     * @param delta   The change in units; positive for restocks.
+     * @throws IOException if the record could not be made durable.
+     */
+    public void logStockChange(Product product, int delta) throws IOException {
+        append(new RecordWriter(16).putByte(STOCK).putLong(product.getId()).putInt(delta).finish());
+    }
+
+    /**
+     * Records a balance change made outside of checkout, e.g. a top-up, and waits until it is durable.
+     *
+     * @param customer   The customer whose balance changed.
+     * @param deltaCents The change in cents; positive for credits.
+     * @throws IOException if the record could not be made durable.
+     */
+    public void logBalanceChange(Customer customer, long deltaCents) throws IOException {
+        append(new RecordWriter(17).putByte(BALANCE).putLong(customer.getId()).putLong(deltaCents).finish());
+    }
+
+    /**
+     * Flushes everything that was appended and closes the file.
+     *
+     * @throws IOException if the final flush or closing the file fails.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            dataAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+        if (failure != null) {
+            throw new IOException("Journal flush failed.", failure);
+        }
+    }
+
+    /**
+     * Replays a journal onto products and customers restored from the last snapshot.
+     * Replay stops at the first incomplete or corrupt record, which can only be the last one written before a crash.
+     *
+     * @param file      The journal file.
+     * @param catalog   The catalog holding the restored products.
+     * @param customers Looks up a customer by id; may return null for customers that no longer exist.
+     * @return The number of records replayed.
+     * @throws IOException if the file cannot be read, names a product that is not in the catalog, or takes more
+     *                     than a product's stock or a customer's balance, i.e. the journal does not belong to the
+     *                     restored state.
+     */
+    public static int replay(Path file, ProductCatalog catalog, LongFunction<Customer> customers) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int replayed = 0;
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= RECORD_HEADER_SIZE) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                break; // Torn write at the end of the journal
+            }
+            ByteBuffer body = data.slice(data.position(), length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            data.position(data.position() + length);
+            try {
+                apply(body, catalog, customers, replayed);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Malformed journal record " + replayed + ".", e);
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    private static void apply(ByteBuffer body, ProductCatalog catalog, LongFunction<Customer> customers,
+                              int record) throws IOException {
+        byte type = body.get();
+        switch (type) {
+            case CHECKOUT: {
+                Customer customer = customers.apply(body.getLong());
+                long debitCents = body.getLong();
+                if (customer != null) {
+                    applyDebit(customer, debitCents, record);
+                }
+                int lines = body.getInt();
+                for (int i = 0; i < lines; i++) {
+                    applyStockChange(catalog, body.getLong(), -body.getInt());
+                }
+                break;
+            }
+            case STOCK:
+                applyStockChange(catalog, body.getLong(), body.getInt());
+                break;
+            case BALANCE: {
+                Customer customer = customers.apply(body.getLong());
+                long deltaCents = body.getLong();
+                if (customer != null) {
+                    if (deltaCents >= 0) {
+                        customer.addBalanceCents(deltaCents);
+                    } else {
+                        applyDebit(customer, -deltaCents, record);
+                    }
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + type + ".");
+        }
+    }
+
+    private static void applyStockChange(ProductCatalog catalog, long productId, int delta) throws IOException {
+        Product product = catalog.findById(productId);
+        if (product == null) {
+            throw new IOException("Journal refers to unknown product " + productId + ".");
+        }
+        if (delta >= 0) {
+            product.increaseQuantity(delta);
+        } else if (!product.tryReduceQuantity(-delta)) {
+            throw new IOException("Journal takes " + -delta + " units of product " + productId + ", whose stock is only "
+                    + product.getQuantity() + "; the journal does not match the restored state.");
+        }
+    }
+
+    private static void applyDebit(Customer customer, long debitCents, int record) throws IOException {
+        if (!customer.tryDeductBalanceCents(debitCents)) {
+            throw new IOException("Journal record " + record + " debits " + Money.format(debitCents) + " from customer "
+                    + customer.getId() + ", whose balance is only " + Money.format(customer.getBalanceCents())
+                    + "; the journal does not match the restored state.");
+        }
+    }
+
+    private void append(ByteBuffer record) throws IOException {
+        if (!groupCommit) {
+            lock.lock();
+            try {
+                checkOpen();
+                try {
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    // The record may be half written; anything appended after it would be lost on replay
+                    failure = e;
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+
+        lock.lock();
+        try {
+            checkOpen();
+            active.put(record);
+            appendedBytes += record.limit();
+            long target = appendedBytes;
+            dataAvailable.signal();
+            while (durableBytes < target) {
+                if (failure != null) {
+                    throw new IOException("Journal flush failed.", failure);
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal flush failed.", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal is closed.");
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            Block toWrite;
+            long target;
+            lock.lock();
+            try {
+                while (active.length == 0 && !closed) {
+                    dataAvailable.awaitUninterruptibly();
+                }
+                if (active.length == 0) {
+                    return; // Closed and everything is flushed
+                }
+                toWrite = active;
+                active = spare;
+                target = appendedBytes;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(toWrite.bytes, 0, toWrite.length);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                toWrite.length = 0;
+                spare = toWrite;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableBytes = target;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (error != null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A growable byte buffer that collects records between two flushes.
+     */
+    private static final class Block {
+        private byte[] bytes = new byte[64 * 1024];
+        private int length;
+
+        void put(ByteBuffer record) {
+            int size = record.remaining();
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+            }
+            record.get(bytes, length, size);
+            length += size;
+        }
+    }
+
+    /**
+     * Encodes one record and frames it with its length and checksum.
+     */
+    private static final class RecordWriter {
+        private ByteBuffer buffer;
+
+        RecordWriter(int capacity) {
+            buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + capacity);
+            buffer.position(RECORD_HEADER_SIZE);
+        }
+
+        RecordWriter putByte(byte value) {
+            ensure(1).put(value);
+            return this;
+        }
+
+        RecordWriter putInt(int value) {
+            ensure(4).putInt(value);
+            return this;
+        }
+
+        RecordWriter putLong(long value) {
+            ensure(8).putLong(value);
+            return this;
+        }
+
+        ByteBuffer finish() {
+            int length = buffer.position() - RECORD_HEADER_SIZE;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), RECORD_HEADER_SIZE, length);
+            buffer.putInt(0, length).putInt(4, (int) crc.getValue());
+            buffer.flip();
+            return buffer;
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.project;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms per checkout stage and counters per checkout outcome.
+ * <p>
+ * Install an instance with {@link CheckoutService#setMetrics(CheckoutMetrics)}; without one, checkouts
+ * skip all timing, so metrics cost nothing but a field read when disabled. Recording is lock-free and
+ * safe from any number of checkout threads, and {@link #snapshot()} can be taken at any time.
+ */
+public final class CheckoutMetrics {
+    private static final CheckoutStage[] STAGES = CheckoutStage.values();
+    private static final CheckoutStatus[] STATUSES = CheckoutStatus.values();
+    private static final double[] EXPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LatencyHistogram[] stageLatency = new LatencyHistogram[STAGES.length];
+    private final LongAdder[] outcomes = new LongAdder[STATUSES.length];
+
+    public CheckoutMetrics() {
+        for (int i = 0; i < stageLatency.length; i++) {
+            stageLatency[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records how long a stage took.
+     *
+     * @param stage The stage.
+     * @param nanos The duration in nanoseconds.
+     */
+    public void recordStage(CheckoutStage stage, long nanos) {
+        stageLatency[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records the end of a stage that started at the given time.
+     *
+     * @param stage         The stage that ended.
+     * @param startedNanos  The {@link System#nanoTime()} at which the stage started.
+     * @return The current {@link System#nanoTime()}, i.e. the start of the next stage.
+     */
+    long endStage(CheckoutStage stage, long startedNanos) {
+        long now = System.nanoTime();
+        stageLatency[stage.ordinal()].record(now - startedNanos);
+        return now;
+    }
+
+    /**
+     * Counts the outcome of one checkout.
+     *
+     * @param status The outcome.
+     */
+    public void recordOutcome(CheckoutStatus status) {
+        outcomes[status.ordinal()].increment();
+    }
+
+    /**
+     * Copies the current histograms and counters.
+     *
+     * @return The snapshot of the metrics.
+     */
+    public Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] latencies = new LatencyHistogram.Snapshot[STAGES.length];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = stageLatency[i].snapshot();
+        }
+        long[] counts = new long[STATUSES.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = outcomes[i].sum();
+        }
+        return new Snapshot(latencies, counts);
+    }
+
+    /**
+     * The checkout metrics at one point in time.
+     */
+    public static final class Snapshot {
+        private final LatencyHistogram.Snapshot[] latencies;
+        private final long[] counts;
+
+        private Snapshot(LatencyHistogram.Snapshot[] latencies, long[] counts) {
+            this.latencies = latencies;
+            this.counts = counts;
+        }
+
+        /**
+         * Gets the latency distribution of a stage.
+         *
+         * @param stage The stage.
+         * @return The stage's histogram snapshot.
+         */
+        public LatencyHistogram.Snapshot getLatency(CheckoutStage stage) {
+            return latencies[stage.ordinal()];
+        }
+
+        /**
+         * Gets the number of checkouts with the given outcome.
+         *
+         * @param status The outcome.
+         * @return The number of checkouts.
+         */
+        public long getCount(CheckoutStatus status) {
+            return counts[status.ordinal()];
+        }
+
+        /**
+         * Renders the snapshot in the Prometheus text format: a summary of every stage's latency in nanoseconds
+         * and a counter per outcome.
+         *
+         * @return The exported metrics.
+         */
+        public String export() {
+            StringBuilder out = new StringBuilder(4096);
+            out.append("# TYPE checkout_stage_latency_nanos summary\n");
+            for (CheckoutStage stage : STAGES) {
+                LatencyHistogram.Snapshot latency = getLatency(stage);
+                String label = stage.name().toLowerCase(Locale.ROOT);
+                for (double percentile : EXPORTED_PERCENTILES) {
+                    out.append("checkout_stage_latency_nanos{stage=\"").append(label)
+                            .append("\",quantile=\"").append(percentile / 100).append("\"} ")
+                            .append(latency.getValueAtPercentile(percentile)).append('\n');
+                }
+                out.append("checkout_stage_latency_nanos_count{stage=\"").append(label).append("\"} ")
+                        .append(latency.getCount()).append('\n');
+                out.append("checkout_stage_latency_nanos_max{stage=\"").append(label).append("\"} ")
+                        .append(latency.getMaxNanos()).append('\n');
+            }
+            out.append("# TYPE checkout_outcomes_total counter\n");
+            for (CheckoutStatus status : STATUSES) {
+                out.append("checkout_outcomes_total{status=\"").append(status.name().toLowerCase(Locale.ROOT))
+                        .append("\"} ").append(getCount(status)).append('\n');
+            }
+            return out.toString();
+        }
+
+        @Override
+        public String toString() {
+            return export();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.project;
+
+/**
+ * The outcome of a checkout, returned instead of thrown: its status, the product that caused a rejection,
+ * and the amounts that were (or would have been) charged.
+ * <p>
+ * Rejections are expected business outcomes, e.g. most attempts during a flash sale fail on stock, so building
+ * a result is cheap: there is no stack trace, and the human-readable message is only formatted when
+ * {@link #getMessage()} is called.
+ */
+public final class CheckoutResult {
+    static final CheckoutResult EMPTY_CART = new CheckoutResult(CheckoutStatus.EMPTY_CART, null, 0, 0, 0, null);
+
+    private final CheckoutStatus status;
+    private final Product failingProduct; // The expired or out-of-stock product, null otherwise.
+    private final long subtotalCents;
+    private final long shippingCents;
+    private final long availableCents; // The customer's available balance, for an insufficient balance.
+    private final String detail; // Extra text for the message, e.g. why the journal failed.
+
+    private CheckoutResult(CheckoutStatus status, Product failingProduct, long subtotalCents, long shippingCents,
+                           long availableCents, String detail) {
+        this.status = status;
+        this.failingProduct = failingProduct;
+        this.subtotalCents = subtotalCents;
+        this.shippingCents = shippingCents;
+        this.availableCents = availableCents;
+        this.detail = detail;
+    }
+
+    static CheckoutResult success(long subtotalCents, long shippingCents) {
+        return new CheckoutResult(CheckoutStatus.SUCCESS, null, subtotalCents, shippingCents, 0, null);
+    }
+
+    static CheckoutResult expired(Product product) {
+        return new CheckoutResult(CheckoutStatus.EXPIRED, product, 0, 0, 0, null);
+    }
+
+    static CheckoutResult outOfStock(Product product, long subtotalCents, long shippingCents) {
+        return new CheckoutResult(CheckoutStatus.OUT_OF_STOCK, product, subtotalCents, shippingCents, 0, null);
+    }
+
+    static CheckoutResult insufficientBalance(long subtotalCents, long shippingCents, long availableCents) {
+        return new CheckoutResult(CheckoutStatus.INSUFFICIENT_BALANCE, null, subtotalCents, shippingCents, availableCents, null);
+    }
+
+    static CheckoutResult unknownShippingZone(int zone, long subtotalCents) {
+        return new CheckoutResult(CheckoutStatus.UNKNOWN_SHIPPING_ZONE, null, subtotalCents, 0, 0, String.valueOf(zone));
+    }
+
+    static CheckoutResult notRecorded(long subtotalCents, long shippingCents, String reason) {
+        return new CheckoutResult(CheckoutStatus.NOT_RECORDED, null, subtotalCents, shippingCents, 0, reason);
+    }
+
+    static CheckoutResult duplicateCustomer(Customer customer) {
+        return new CheckoutResult(CheckoutStatus.DUPLICATE_CUSTOMER, null, 0, 0, 0, customer.getName());
+    }
+
+    static CheckoutResult error(Throwable cause) {
+        return new CheckoutResult(CheckoutStatus.ERROR, null, 0, 0, 0, String.valueOf(cause));
+    }
+
+    public CheckoutStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccess() {
+        return status == CheckoutStatus.SUCCESS;
+    }
+
+    /**
+     * Gets the product the checkout was rejected for.
+     *
+     * @return The expired or out-of-stock product, or null for any other status.
+     */
+    public Product getFailingProduct() {
+        return failingProduct;
+    }
+
+    /**
+     * Gets the subtotal of the checked out lines. Known once the checkout got past validation.
+     *
+     * @return The subtotal in cents, or 0 if the checkout was rejected before pricing.
+     */
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    /**
+     * Gets the shipping fees of the checked out lines. Known once the checkout got past validation.
+     *
+     * @return The shipping fees in cents, or 0 if the checkout was rejected before pricing.
+     */
+    public long getShippingCents() {
+        return shippingCents;
+    }
+
+    /**
+     * Gets the total charged, or that would have been charged.
+     *
+     * @return The subtotal plus shipping fees, in cents.
+     */
+    public long getTotalCents() {
+        return subtotalCents + shippingCents;
+    }
+
+    /**
+     * Describes why the checkout was rejected. The message is formatted on every call.
+     *
+     * @return The reason the checkout was rejected, or null if it succeeded.
+     */
+    public String getMessage() {
+        switch (status) {
+            case SUCCESS:
+                return null;
+            case EMPTY_CART:
+                return "Cannot checkout with an empty cart.";
+            case EXPIRED:
+                return "Product " + failingProduct.getName() + " is expired.";
+            case OUT_OF_STOCK:
+                return "Product " + failingProduct.getName() + " is out of stock.";
+            case INSUFFICIENT_BALANCE:
+                return "Insufficient balance. Required: $" + Money.format(getTotalCents())
+                        + ", Available: $" + Money.format(availableCents);
+            case UNKNOWN_SHIPPING_ZONE:
+                return "Cannot ship to zone " + detail + ".";
+            case NOT_RECORDED:
+                return "Checkout could not be recorded: " + detail;
+            case DUPLICATE_CUSTOMER:
+                return "Customer " + detail + " appears more than once in the batch.";
+            default:
+                return "Checkout failed: " + detail;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CheckoutResult{" +
+                "status=" + status +
+                (failingProduct != null ? ", failingProduct=" + failingProduct.getName() : "") +
+                ", total=" + Money.format(getTotalCents()) +
+                '}';
+    }
+}
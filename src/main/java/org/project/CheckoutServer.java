@@ -0,0 +1,387 @@
+package org.project;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An embedded HTTP front end for shopping sessions, built on the JDK's {@link HttpServer}.
+ * Every request runs on its own virtual thread, so tens of thousands of sessions can be open at once
+ * while each handler simply blocks on the cart, the ledgers and the journal.
+ * <p>
+ * Parameters are passed in the query string or as a form-encoded body; responses are JSON:
+ * <ul>
+ *     <li>{@code POST /customers?name=&balance=} opens a session for a new customer.</li>
+ *     <li>{@code DELETE /customers?name=} closes the customer's session.</li>
+ *     <li>{@code POST /cart/add?customer=&product=&quantity=} adds a product of the catalog, by id, to the cart.</li>
+ *     <li>{@code GET /cart?customer=} shows the cart.</li>
+ *     <li>{@code POST /checkout?customer=} checks the cart out; a rejected checkout answers 409 with its status.</li>
+ * </ul>
+ * Invalid parameters answer 400, unknown customers and products 404. A session that receives no request for the
+ * session timeout is closed as well, so clients that go away without closing their sessions do not pile up.
+ * <p>
+ * The JDK server is tuned through system properties that it reads once, before its first instance is created, and
+ * that apply to every server in the JVM. This class does not set them; pass them on the command line, or call
+ * {@link #applyLaunchDefaults()} first thing in the program's entry point as {@link LoadGenerator#main(String[])} does.
+ */
+public final class CheckoutServer implements AutoCloseable {
+    private static final int BACKLOG = 4096; // Pending connections the socket queues during a burst of new sessions
+    private static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    private final ProductCatalog catalog;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>(); // Open sessions by name
+    private final long sessionTimeoutNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-sweeper").daemon().factory());
+    private final HttpServer server;
+
+    /**
+     * Creates a server that closes sessions after 30 minutes without a request; it accepts requests once
+     * {@link #start()} is called.
+     *
+     * @param catalog The catalog products are added from.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException if the address cannot be bound.
+     */
+    public CheckoutServer(ProductCatalog catalog, InetSocketAddress address) throws IOException {
+        this(catalog, address, DEFAULT_SESSION_TIMEOUT);
+    }
+
+    /**
+     * Creates a server; it accepts requests once {@link #start()} is called.
+     *
+     * @param catalog        The catalog products are added from.
+     * @param address        The address to listen on; port 0 picks a free port.
+     * @param sessionTimeout How long a session may go without a request before it is closed.
+     * @throws IOException if the address cannot be bound.
+     * @throws IllegalArgumentException if the catalog or timeout is null, or the timeout is not positive.
+     */
+    public CheckoutServer(ProductCatalog catalog, InetSocketAddress address, Duration sessionTimeout) throws IOException {
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog cannot be null.");
+        }
+        if (sessionTimeout == null || sessionTimeout.isNegative() || sessionTimeout.isZero()) {
+            throw new IllegalArgumentException("Session timeout must be positive.");
+        }
+        this.catalog = catalog;
+        this.sessionTimeoutNanos = sessionTimeout.toNanos();
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/customers", route(Map.of("POST", this::openSession, "DELETE", this::closeSession)));
+        server.createContext("/cart/add", route(Map.of("POST", this::addToCart)));
+        server.createContext("/cart", route(Map.of("GET", this::viewCart)));
+        server.createContext("/checkout", route(Map.of("POST", this::checkout)));
+    }
+
+    /**
+     * Sets the JDK server properties suited to many open sessions, unless they were given on the command line:
+     * {@code sun.net.httpserver.nodelay=true}, as otherwise every response goes out in two segments held back by
+     * Nagle's algorithm, and {@code sun.net.httpserver.maxIdleConnections=1000000}, as otherwise keep-alive
+     * connections beyond 200 idle ones are closed and most open sessions would have to reconnect.
+     * <p>
+     * The properties are global and only take effect if set before the first JDK server of the JVM is created,
+     * so this is meant for a program's entry point, not for library code.
+     */
+    public static void applyLaunchDefaults() {
+        setDefault("sun.net.httpserver.nodelay", "true");
+        setDefault("sun.net.httpserver.maxIdleConnections", "1000000");
+    }
+
+    /**
+     * Starts accepting requests, and closing idle sessions; a session is closed between one and one and a half
+     * session timeouts after its last request.
+     */
+    public void start() {
+        long sweepNanos = Math.max(1, sessionTimeoutNanos / 2);
+        sweeper.scheduleWithFixedDelay(this::closeIdleSessions, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+        server.start();
+    }
+
+    /**
+     * Gets the address the server listens on, with the actual port if port 0 was requested.
+     *
+     * @return The bound address.
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Gets the URI requests are sent to.
+     *
+     * @return The base URI, e.g. {@code http://127.0.0.1:8080}.
+     */
+    public URI getBaseUri() {
+        InetSocketAddress address = getAddress();
+        return URI.create("http://" + address.getHostString() + ":" + address.getPort());
+    }
+
+    /**
+     * Gets the customer of an open session.
+     *
+     * @param name The customer's name.
+     * @return The customer, or null if no session is open under that name.
+     */
+    public Customer getCustomer(String name) {
+        Session session = sessions.get(name);
+        return session != null ? session.customer : null;
+    }
+
+    /**
+     * Gets the number of open sessions.
+     *
+     * @return The number of sessions that were opened and neither closed nor timed out.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops accepting requests and waits for the ones in progress to finish.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        server.stop(0);
+        executor.close();
+    }
+
+    private void closeIdleSessions() {
+        long now = System.nanoTime();
+        // Removes a session only if it is still mapped, so a session reopened under the same name stays
+        sessions.values().removeIf(session -> now - session.lastUsedNanos >= sessionTimeoutNanos);
+    }
+
+    private Response openSession(Map<String, String> parameters) {
+        String name = parameters.get("name");
+        Customer customer = new Customer(name, parseDouble(parameters, "balance"));
+        if (sessions.putIfAbsent(name, new Session(customer)) != null) {
+            return new Response(409, "{\"error\":" + quote("Customer " + name + " already has a session.") + "}");
+        }
+        return new Response(201, "{\"customer\":" + quote(name) + ",\"balance\":\"" + Money.format(customer.getBalanceCents()) + "\"}");
+    }
+
+    private Response closeSession(Map<String, String> parameters) {
+        String name = parameters.get("name");
+        if (name == null || sessions.remove(name) == null) {
+            throw new NotFoundException("Customer " + name + " has no session.");
+        }
+        return new Response(200, "{\"customer\":" + quote(name) + ",\"closed\":true}");
+    }
+
+    private Response addToCart(Map<String, String> parameters) {
+        Customer customer = customer(parameters);
+        long id = parseLong(parameters, "product");
+        Product product = catalog.findById(id);
+        if (product == null) {
+            throw new NotFoundException("Product " + id + " does not exist.");
+        }
+        long quantity = parseLong(parameters, "quantity");
+        if (quantity != (int) quantity) {
+            throw new IllegalArgumentException("Parameter quantity is out of range.");
+        }
+        customer.addToCart(product, (int) quantity);
+        return viewCart(customer);
+    }
+
+    private Response viewCart(Map<String, String> parameters) {
+        return viewCart(customer(parameters));
+    }
+
+    private Response viewCart(Customer customer) {
+        CartSnapshot cart = customer.getCart().snapshot();
+        List<CartItem> items = cart.getItems();
+        StringBuilder json = new StringBuilder(64 + 96 * items.size());
+        json.append("{\"customer\":").append(quote(customer.getName())).append(",\"lines\":[");
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            json.append(i == 0 ? "{" : ",{")
+                    .append("\"product\":").append(item.getProduct().getId())
+                    .append(",\"name\":").append(quote(item.getProduct().getName()))
+                    .append(",\"quantity\":").append(item.getQuantity())
+                    .append(",\"subtotal\":\"").append(Money.format(item.getSubtotalCents())).append("\"}");
+        }
+        json.append("],\"subtotal\":\"").append(Money.format(cart.getSubtotalCents()))
+                .append("\",\"shipping\":\"").append(Money.format(cart.getShippingEstimateCents())).append("\"}");
+        return new Response(200, json.toString());
+    }
+
+    private Response checkout(Map<String, String> parameters) {
+        CheckoutResult result = CheckoutService.tryCheckout(customer(parameters));
+        StringBuilder json = new StringBuilder(160);
+        json.append("{\"status\":\"").append(result.getStatus())
+                .append("\",\"subtotal\":\"").append(Money.format(result.getSubtotalCents()))
+                .append("\",\"shipping\":\"").append(Money.format(result.getShippingCents()))
+                .append("\",\"total\":\"").append(Money.format(result.getTotalCents())).append('"');
+        if (result.getFailingProduct() != null) {
+            json.append(",\"failingProduct\":").append(result.getFailingProduct().getId());
+        }
+        if (!result.isSuccess()) {
+            json.append(",\"message\":").append(quote(result.getMessage()));
+        }
+        json.append('}');
+        return new Response(result.isSuccess() ? 200 : 409, json.toString());
+    }
+
+    private Customer customer(Map<String, String> parameters) {
+        String name = parameters.get("customer");
+        Session session = name == null ? null : sessions.get(name);
+        if (session == null) {
+            throw new NotFoundException("Customer " + name + " has no session.");
+        }
+        session.lastUsedNanos = System.nanoTime();
+        return session.customer;
+    }
+
+    /**
+     * Creates the handler of a path that serves each of the given methods with its endpoint.
+     */
+    private static HttpHandler route(Map<String, Endpoint> endpoints) {
+        String allowed = String.join(" or ", new TreeSet<>(endpoints.keySet()));
+        return exchange -> handle(exchange, endpoints, allowed);
+    }
+
+    private static void handle(HttpExchange exchange, Map<String, Endpoint> endpoints, String allowed) throws IOException {
+        Response response;
+        try {
+            Endpoint endpoint = endpoints.get(exchange.getRequestMethod());
+            if (endpoint == null) {
+                response = new Response(405, "{\"error\":" + quote("Use " + allowed + ".") + "}");
+            } else {
+                response = endpoint.serve(parameters(exchange));
+            }
+        } catch (NotFoundException e) {
+            response = new Response(404, "{\"error\":" + quote(e.getMessage()) + "}");
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            response = new Response(400, "{\"error\":" + quote(e.getMessage()) + "}");
+        } catch (RuntimeException e) {
+            response = new Response(500, "{\"error\":" + quote(String.valueOf(e)) + "}");
+        }
+
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), parameters);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length > 0) {
+                parseForm(new String(body, StandardCharsets.UTF_8), parameters);
+            }
+        }
+        return parameters;
+    }
+
+    private static void parseForm(String form, Map<String, String> parameters) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static long parseLong(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be an integer, was '" + value + "'.");
+        }
+    }
+
+    private static double parseDouble(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        try {
+            return Double.parseDouble(value);
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be a number, was '" + value + "'.");
+        }
+    }
+
+    private static void setDefault(String property, String value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, value);
+        }
+    }
+
+    private static String quote(String value) {
+        String text = String.valueOf(value);
+        StringBuilder quoted = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response serve(Map<String, String> parameters);
+    }
+
+    /**
+     * An open session: its customer and when it last served a request for them.
+     */
+    private static final class Session {
+        private final Customer customer;
+        private volatile long lastUsedNanos = System.nanoTime();
+
+        private Session(Customer customer) {
+            this.customer = customer;
+        }
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static final class NotFoundException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+}
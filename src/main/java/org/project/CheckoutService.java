@@ -1,7 +1,21 @@
 package org.project;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Provides functionality to process the checkout operation for a customer.
@@ -19,88 +33,559 @@ public class CheckoutService {
         throw new UnsupportedOperationException("CheckoutService is a utility class and cannot be instantiated.");
     }
 
+    /**
+     * Reserves stock for all checkouts. Reservations are lock-free per product,
+     * so carts that do not share products never contend with each other.
+     */
+    private static final StockLedger STOCK_LEDGER = new StockLedger();
+
+    /**
+     * Order in which cart lines are reserved. A fixed order by product id means two overlapping carts
+     * always compete for their shared products in the same sequence.
+     */
+    private static final Comparator<CartItem> RESERVATION_ORDER =
+            Comparator.comparingLong((CartItem item) -> item.getProduct().getId());
+
+    /**
+     * Where receipts and shipment notices go. Defaults to the console.
+     */
+    private static volatile ReceiptSink receiptSink = ReceiptSink.console();
+
+    /**
+     * Receipts of committed checkouts that the receipt sink failed to take.
+     */
+    private static final LongAdder lostReceipts = new LongAdder();
+
+    /**
+     * Journal that records every checkout before it is committed, or null to run without one.
+     */
+    private static volatile CheckoutJournal journal;
+
+    /**
+     * Collects stage latencies and outcome counts of every checkout, or null to skip all timing.
+     */
+    private static volatile CheckoutMetrics metrics;
+
+    /**
+     * Merges the shipments of a customer's checkouts, or null to ship every checkout on its own.
+     */
+    private static volatile ShipmentConsolidator shipmentConsolidator;
+
+    /**
+     * Sets the journal that records every checkout. A checkout whose journal record cannot be made durable fails
+     * and leaves stock and balance unchanged.
+     *
+     * @param checkoutJournal The journal, or null to stop journaling.
+     */
+    public static void setJournal(CheckoutJournal checkoutJournal) {
+        journal = checkoutJournal;
+    }
+
+    /**
+     * Gets the journal that records checkouts.
+     *
+     * @return The current journal, or null if checkouts are not journaled.
+     */
+    public static CheckoutJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the metrics that every checkout records its stage latencies and its outcome into.
+     *
+     * @param checkoutMetrics The metrics, or null to disable them.
+     */
+    public static void setMetrics(CheckoutMetrics checkoutMetrics) {
+        metrics = checkoutMetrics;
+    }
+
+    /**
+     * Gets the metrics checkouts are recorded into.
+     *
+     * @return The current metrics, or null if metrics are disabled.
+     */
+    public static CheckoutMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the consolidator that merges the shipments of a customer's checkouts within a time window.
+     * While one is set, receipts carry no shipment notice; the consolidator's dispatched shipments do.
+     *
+     * @param consolidator The shipment consolidator, or null to ship every checkout on its own.
+     */
+    public static void setShipmentConsolidator(ShipmentConsolidator consolidator) {
+        shipmentConsolidator = consolidator;
+    }
+
+    public static ShipmentConsolidator getShipmentConsolidator() {
+        return shipmentConsolidator;
+    }
+
+    /**
+     * Sets the sink that receives every checkout receipt, including its shipment notice.
+     *
+     * @param sink The receipt sink.
+     * @throws IllegalArgumentException if the sink is null.
+     */
+    public static void setReceiptSink(ReceiptSink sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("Receipt sink cannot be null.");
+        }
+        receiptSink = sink;
+    }
+
+    /**
+     * Gets the sink that receives checkout receipts.
+     *
+     * @return The current receipt sink.
+     */
+    public static ReceiptSink getReceiptSink() {
+        return receiptSink;
+    }
+
+    /**
+     * Gets the number of receipts the receipt sink failed to take, e.g. because it was closed or could not write.
+     * The checkouts of these receipts went through; only their receipts are missing.
+     *
+     * @return The number of lost receipts since startup.
+     */
+    public static long getLostReceiptCount() {
+        return lostReceipts.sum();
+    }
+
     /**
      * Processes the checkout for the given customer.
      * Validates the cart, checks product availability and expiration, calculates costs,
      * deducts the customer's balance, and ships items if applicable.
+     * <p>
+     * The checkout is all-or-nothing: stock for every line is reserved first, then the balance is debited.
+     * If any reservation or the debit fails, all reservations taken so far are released and nothing changes.
+     * <p>
+     * The checkout charges a {@link CartSnapshot} of the cart. Units the customer adds from another session while
+     * the checkout runs are not charged and stay in the cart afterwards.
+     * <p>
+     * A rejected checkout is an expected outcome and is reported in the result, not thrown; this makes
+     * rejections cheap enough for flash sales, where most attempts fail on stock.
+     *
+     * @param customer The customer performing the checkout.
+     * @return The outcome of the checkout.
+     */
+    public static CheckoutResult tryCheckout(Customer customer) {
+        return checkout(customer, customer.getCart().snapshot(), null);
+    }
+
+    /**
+     * Processes the checkout for the given customer like {@link #tryCheckout(Customer)}, but throws if it is rejected.
      *
      * @param customer The customer performing the checkout.
      * @throws IllegalStateException if the cart is empty, a product is expired or out of stock,
      *                               or the customer's balance is insufficient.
      */
     public static void processCheckout(Customer customer) {
+        CheckoutResult result = tryCheckout(customer);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+    }
+
+    /**
+     * Processes the checkouts of many customers in one call, running independent carts in parallel
+     * on virtual threads.
+     *
+     * @param customers The customers to check out.
+     * @return The per-customer results and the batch throughput.
+     * @see #processCheckouts(Collection, ExecutorService)
+     */
+    public static BatchCheckoutResult processCheckouts(Collection<Customer> customers) {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            return processCheckouts(customers, executor);
+        }
+    }
+
+    /**
+     * Processes the checkouts of many customers in one call.
+     * <p>
+     * Work that is shared across the batch is done once: every distinct product is checked for expiration
+     * only once, and the stock demand of all carts is summed per product and reserved in a single step.
+     * Only products whose combined demand exceeds the stock fall back to per-cart reservations.
+     * The carts themselves are then checked out in parallel on the given executor; each one is still
+     * all-or-nothing, and a failed cart is reported in the result instead of aborting the batch.
+     *
+     * @param customers The customers to check out. A customer may appear only once.
+     * @param executor  The executor the carts are checked out on.
+     * @return The per-customer results and the batch throughput.
+     */
+    public static BatchCheckoutResult processCheckouts(Collection<Customer> customers, ExecutorService executor) {
+        long start = System.nanoTime();
+
+        // Snapshot each cart once; duplicate customers would share a cart and cannot run in parallel
+        List<Customer> batch = new ArrayList<>(customers);
+        List<CartSnapshot> carts = new ArrayList<>(batch.size());
+        Set<Customer> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        BatchContext context = new BatchContext();
+        for (Customer customer : batch) {
+            if (!seen.add(customer)) {
+                carts.add(null);
+                continue;
+            }
+            CartSnapshot cart = customer.getCart().snapshot();
+            carts.add(cart);
+            context.addDemand(cart.getItems());
+        }
+        context.reservePooledStock();
+
+        List<Future<CheckoutResult>> outcomes = new ArrayList<>(batch.size());
+        List<BatchCheckoutResult.CustomerResult> results = new ArrayList<>(batch.size());
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Customer customer = batch.get(i);
+                CartSnapshot cart = carts.get(i);
+                if (cart == null) {
+                    outcomes.add(CompletableFuture.completedFuture(reject(metrics, CheckoutResult.duplicateCustomer(customer))));
+                } else {
+                    outcomes.add(executor.submit(() -> checkoutInBatch(customer, cart, context)));
+                }
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(new BatchCheckoutResult.CustomerResult(batch.get(i), awaitResult(outcomes.get(i))));
+            }
+        } finally {
+            // On a failed submit or an interrupt, carts that have not started yet are skipped, and the pool is only
+            // settled once the running ones are done claiming from it. Then sell what the successful carts took
+            // from the pooled stock, and return the rest.
+            for (Future<CheckoutResult> outcome : outcomes) {
+                outcome.cancel(false);
+            }
+            context.close();
+            context.completePooledStock();
+        }
+        return new BatchCheckoutResult(results, System.nanoTime() - start);
+    }
+
+    private static CheckoutResult checkoutInBatch(Customer customer, CartSnapshot cart, BatchContext context) {
+        if (!context.enter()) {
+            return CheckoutResult.error(new IllegalStateException("Batch checkout was aborted before this cart started."));
+        }
+        try {
+            return checkout(customer, cart, context);
+        } finally {
+            context.exit();
+        }
+    }
+
+    private static CheckoutResult awaitResult(Future<CheckoutResult> outcome) {
+        try {
+            return outcome.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch checkout.", e);
+        } catch (ExecutionException e) {
+            return reject(metrics, CheckoutResult.error(e.getCause()));
+        }
+    }
+
+    /**
+     * Checks out a snapshot of a customer's cart.
+     *
+     * @param customer The customer performing the checkout.
+     * @param cart     The snapshot of the customer's cart.
+     * @param batch    Shared state of the batch this checkout belongs to, or null for a single checkout.
+     * @return The outcome of the checkout.
+     */
+    private static CheckoutResult checkout(Customer customer, CartSnapshot cart, BatchContext batch) {
+        CheckoutMetrics stageMetrics = metrics; // Read once; null skips all timing
+        long started = stageMetrics != null ? System.nanoTime() : 0;
+        long stageStarted = started;
+        List<CartItem> items = cart.getItems();
+
         // Validate cart
-        if (customer.getCart().isEmpty()) {
-            throw new IllegalStateException("Cannot checkout with an empty cart.");
+        if (items.isEmpty()) {
+            return reject(stageMetrics, started, CheckoutResult.EMPTY_CART);
         }
 
-        // Check product availability and expiration
-        List<Shippable> itemsToShip = new ArrayList<>();
-        double subtotal = 0;
+        // Check product expiration and collect the lines to ship
+        List<ShipmentLine> linesToShip = new ArrayList<>();
 
-        for (CartItem item : customer.getCart().getItems()) {
+        for (CartItem item : items) {
             Product product = item.getProduct();
             int quantity = item.getQuantity();
 
             // Check if product is expired
-            if (product instanceof Expirable && ((Expirable) product).isExpired()) {
-                throw new IllegalStateException("Product " + product.getName() + " is expired.");
+            boolean expired = batch != null
+                    ? batch.isExpired(product)
+                    : product instanceof Expirable && ((Expirable) product).isExpired();
+            if (expired) {
+                return reject(stageMetrics, started, CheckoutResult.expired(product));
             }
 
-            // Check if product is out of stock
-            if (product.getQuantity() < quantity) {
-                throw new IllegalStateException("Product " + product.getName() + " is out of stock.");
+            // Add to shipping list if shippable, one line per cart item regardless of quantity
+            if (product instanceof Shippable) {
+                linesToShip.add(new ShipmentLine((Shippable) product, quantity));
             }
+        }
 
-            // Add to shipping list if shippable
-            if (product instanceof Shippable) {
-                // Add each item individually to match the quantity
-                for (int i = 0; i < quantity; i++) {
-                    itemsToShip.add((Shippable) product);
+        if (stageMetrics != null) {
+            stageStarted = stageMetrics.endStage(CheckoutStage.VALIDATION, stageStarted);
+        }
+
+        // Calculate subtotal and shipping fees, in cents (see Money), from the totals the snapshot took with its lines
+        long subtotal = cart.getSubtotalCents();
+        ShippingRateEngine rateEngine = ShippingService.getRateEngine(); // Read once, so the zone check and the quote agree
+        int zone = customer.getShippingZone();
+        if (!rateEngine.servesZone(zone)) {
+            return reject(stageMetrics, started, CheckoutResult.unknownShippingZone(zone, subtotal));
+        }
+        long shippingFees = cart.getShippingCents(rateEngine, zone);
+
+        // Calculate total cost
+        long totalCost = subtotal + shippingFees;
+        if (stageMetrics != null) {
+            stageStarted = stageMetrics.endStage(CheckoutStage.PRICING, stageStarted);
+        }
+
+        // Reserve stock for every line, then debit the customer; undo the reservations if either step fails.
+        // Lines whose stock the batch already holds need no reservation of their own.
+        List<CartItem> reservationOrder = new ArrayList<>(items);
+        reservationOrder.sort(RESERVATION_ORDER);
+        List<StockLedger.Reservation> reservations = new ArrayList<>(reservationOrder.size());
+        BalanceLedger.Hold payment = null; // Released unless captured
+        boolean paid = false;
+        try {
+            for (CartItem item : reservationOrder) {
+                if (batch != null && batch.isPooled(item.getProduct())) {
+                    continue;
+                }
+                StockLedger.Reservation reservation = STOCK_LEDGER.tryReserve(item.getProduct(), item.getQuantity());
+                if (reservation == null) {
+                    return reject(stageMetrics, started, CheckoutResult.outOfStock(item.getProduct(), subtotal, shippingFees));
                 }
+                reservations.add(reservation);
+            }
+            if (stageMetrics != null) {
+                stageStarted = stageMetrics.endStage(CheckoutStage.STOCK_RESERVATION, stageStarted);
             }
 
-            // Calculate subtotal
-            subtotal += product.getPrice() * quantity;
+            // Hold the total on the customer's balance in one step
+            BalanceLedger ledger = customer.getLedger();
+            payment = ledger.hold(totalCost);
+            if (payment == null) {
+                return reject(stageMetrics, started, CheckoutResult.insufficientBalance(subtotal, shippingFees, customer.getBalanceCents()));
+            }
+            if (stageMetrics != null) {
+                stageStarted = stageMetrics.endStage(CheckoutStage.PAYMENT, stageStarted);
+            }
+
+            // Make the checkout durable before it becomes visible; the hold is released if it cannot be recorded
+            CheckoutJournal currentJournal = journal;
+            if (currentJournal != null) {
+                try {
+                    currentJournal.logCheckout(customer, totalCost, items);
+                } catch (IOException e) {
+                    return reject(stageMetrics, started, CheckoutResult.notRecorded(subtotal, shippingFees, e.getMessage()));
+                }
+                if (stageMetrics != null) {
+                    stageStarted = stageMetrics.endStage(CheckoutStage.JOURNAL, stageStarted);
+                }
+            }
+            ledger.capture(payment);
+            paid = true;
+        } finally {
+            if (!paid) {
+                // Also on unexpected errors, e.g. a journal record that cannot be encoded
+                if (payment != null) {
+                    customer.getLedger().releaseHold(payment);
+                }
+                for (StockLedger.Reservation reservation : reservations) {
+                    STOCK_LEDGER.release(reservation);
+                }
+            }
         }
 
-        // Calculate shipping fees
-        double shippingFees = ShippingService.calculateShippingCost(itemsToShip);
+        // Payment went through, make the stock reduction permanent
+        for (StockLedger.Reservation reservation : reservations) {
+            STOCK_LEDGER.commit(reservation);
+        }
+        if (batch != null) {
+            batch.claimPooledStock(items);
+        }
+        // Remove what was checked out from the cart; nothing after this point can fail the checkout
+        customer.getCart().removeSnapshot(cart);
+        if (stageMetrics != null) {
+            stageStarted = stageMetrics.endStage(CheckoutStage.COMMIT, stageStarted);
+        }
 
-        // Calculate total cost
-        double totalCost = subtotal + shippingFees;
+        // Render checkout details and hand them to the receipt sink in one piece
+        String newLine = System.lineSeparator();
+        StringBuilder receipt = new StringBuilder(128 + 48 * items.size());
+        receipt.append("** Checkout receipt **").append(newLine);
+        for (CartItem item : items) {
+            receipt.append(item.getQuantity()).append("x ").append(item.getProduct().getName()).append(' ');
+            Money.appendTo(receipt, item.getSubtotalCents()).append(newLine);
+        }
+        receipt.append("----------------------").append(newLine);
+        Money.appendTo(receipt.append("Subtotal "), subtotal).append(newLine);
+        Money.appendTo(receipt.append("Shipping "), shippingFees).append(newLine);
+        Money.appendTo(receipt.append("Amount "), totalCost).append(newLine);
 
-        // Check customer balance
-        if (customer.getBalance() < totalCost) {
-            throw new IllegalStateException("Insufficient balance. Required: $" + totalCost + ", Available: $" + customer.getBalance());
+        // Ship items if applicable; a consolidated shipment gets its notice when it is dispatched
+        if (!linesToShip.isEmpty()) {
+            ShipmentConsolidator consolidator = shipmentConsolidator;
+            if (consolidator != null) {
+                consolidator.add(customer, linesToShip);
+                receipt.append("Items ship together with your other recent orders").append(newLine);
+            } else {
+                ShippingService.appendShipmentNotice(receipt, linesToShip);
+            }
+        }
+        try {
+            receiptSink.write(receipt.toString());
+        } catch (RuntimeException e) {
+            lostReceipts.increment(); // The customer has paid and the stock is gone; the checkout stands
         }
+        if (stageMetrics != null) {
+            stageMetrics.endStage(CheckoutStage.RECEIPT, stageStarted);
+            stageMetrics.endStage(CheckoutStage.TOTAL, started);
+            stageMetrics.recordOutcome(CheckoutStatus.SUCCESS);
+        }
+        return CheckoutResult.success(subtotal, shippingFees);
+    }
 
-        // Reduce product quantities
-        for (CartItem item : customer.getCart().getItems()) {
-            Product product = item.getProduct();
-            product.reduceQuantity(item.getQuantity());
+    /**
+     * Counts a checkout rejected after it started and records its total time, if metrics are enabled.
+     *
+     * @param checkoutMetrics The metrics to count into, or null.
+     * @param started         When the checkout started, from {@link System#nanoTime()}.
+     * @param rejection       The result describing the rejection.
+     * @return The result.
+     */
+    private static CheckoutResult reject(CheckoutMetrics checkoutMetrics, long started, CheckoutResult rejection) {
+        if (checkoutMetrics != null) {
+            checkoutMetrics.endStage(CheckoutStage.TOTAL, started);
+        }
+        return reject(checkoutMetrics, rejection);
+    }
+
+    /**
+     * Counts a rejected checkout, if metrics are enabled.
+     *
+     * @param checkoutMetrics The metrics to count into, or null.
+     * @param rejection       The result describing the rejection.
+     * @return The result.
+     */
+    private static CheckoutResult reject(CheckoutMetrics checkoutMetrics, CheckoutResult rejection) {
+        if (checkoutMetrics != null) {
+            checkoutMetrics.recordOutcome(rejection.getStatus());
+        }
+        return rejection;
+    }
+
+    /**
+     * State shared by all checkouts of one batch: the expiration status of every product in the batch
+     * and the stock that was reserved up front for the whole batch.
+     */
+    private static final class BatchContext {
+        private final Map<Product, ProductDemand> demand = new IdentityHashMap<>(); // Written before the checkouts start.
+        private int activeCheckouts; // Guarded by this
+        private boolean closed; // Guarded by this; no checkout may start once set
+
+        /**
+         * Registers a checkout that is about to use the pool.
+         *
+         * @return false if the batch is closed and the checkout must not run.
+         */
+        synchronized boolean enter() {
+            if (closed) {
+                return false;
+            }
+            activeCheckouts++;
+            return true;
+        }
+
+        synchronized void exit() {
+            if (--activeCheckouts == 0) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Stops new checkouts from starting and waits for the running ones to finish, even if interrupted,
+         * so none of them claims pooled stock after it was settled.
+         */
+        synchronized void close() {
+            closed = true;
+            boolean interrupted = false;
+            while (activeCheckouts > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void addDemand(List<CartItem> items) {
+            for (CartItem item : items) {
+                demand.computeIfAbsent(item.getProduct(), ProductDemand::new).quantity += item.getQuantity();
+            }
+        }
+
+        /**
+         * Checks expiration and reserves the summed demand once per product, in reservation order.
+         */
+        void reservePooledStock() {
+            List<ProductDemand> products = new ArrayList<>(demand.values());
+            products.sort(Comparator.comparingLong((ProductDemand entry) -> entry.product.getId()));
+            for (ProductDemand entry : products) {
+                entry.expired = entry.product instanceof Expirable && ((Expirable) entry.product).isExpired();
+                if (!entry.expired && entry.quantity > 0) {
+                    // null when the batch wants more than is in stock; those carts then compete one by one
+                    entry.pooled = STOCK_LEDGER.tryReserve(entry.product, entry.quantity);
+                }
+            }
+        }
+
+        boolean isExpired(Product product) {
+            return demand.get(product).expired;
         }
 
-        // Deduct customer balance
-        customer.deductBalance(totalCost);
+        boolean isPooled(Product product) {
+            return demand.get(product).pooled != null;
+        }
 
-        // Print checkout details
-        System.out.println("** Checkout receipt **");
-        for (CartItem item : customer.getCart().getItems()) {
-            System.out.println(item.getQuantity() + "x " + item.getProduct().getName() + " " +
-                    (int)(item.getProduct().getPrice() * item.getQuantity()));
+        void claimPooledStock(Collection<CartItem> items) {
+            for (CartItem item : items) {
+                ProductDemand entry = demand.get(item.getProduct());
+                if (entry.pooled != null) {
+                    entry.sold.addAndGet(item.getQuantity());
+                }
+            }
         }
-        System.out.println("----------------------");
-        System.out.println("Subtotal " + (int)subtotal);
-        System.out.println("Shipping " + (int)shippingFees);
-        System.out.println("Amount " + (int)totalCost);
 
-        // Ship items if applicable
-        if (!itemsToShip.isEmpty()) {
-            ShippingService.shipItems(itemsToShip);
+        void completePooledStock() {
+            for (ProductDemand entry : demand.values()) {
+                if (entry.pooled != null && entry.pooled.isPending()) {
+                    STOCK_LEDGER.commit(entry.pooled, entry.sold.get());
+                }
+            }
         }
+    }
 
-        // Clear cart
-        customer.getCart().clear();
+    /**
+     * The combined demand of a batch for one product.
+     */
+    private static final class ProductDemand {
+        private final Product product;
+        private final AtomicInteger sold = new AtomicInteger(); // Pooled units taken by successful carts.
+        private int quantity; // Units requested by all carts together.
+        private boolean expired;
+        private StockLedger.Reservation pooled; // Reservation for the whole demand, or null.
+
+        ProductDemand(Product product) {
+            this.product = product;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package org.project;
+
+/**
+ * The stages of a checkout that {@link CheckoutMetrics} times separately.
+ */
+public enum CheckoutStage {
+    /** Checking the cart is not empty and no product is expired, and collecting the lines to ship. */
+    VALIDATION,
+    /** Calculating the subtotal and the shipping fees. */
+    PRICING,
+    /** Reserving stock for every line. */
+    STOCK_RESERVATION,
+    /** Holding the total on the customer's balance. */
+    PAYMENT,
+    /** Making the checkout durable in the journal, if one is set. */
+    JOURNAL,
+    /** Capturing the payment and making the stock reduction permanent. */
+    COMMIT,
+    /** Rendering the receipt and handing it to the receipt sink. */
+    RECEIPT,
+    /** The whole checkout, from the first to the last stage, or to the rejection for a rejected checkout. */
+    TOTAL
+}
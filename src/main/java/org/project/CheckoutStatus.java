@@ -0,0 +1,20 @@
+package org.project;
+
+/**
+ * The outcome of a checkout: success, or the reason it was rejected.
+ */
+public enum CheckoutStatus {
+    SUCCESS,
+    EMPTY_CART,
+    EXPIRED,
+    OUT_OF_STOCK,
+    INSUFFICIENT_BALANCE,
+    /** The customer's shipping zone is not priced by the current shipping rate engine. */
+    UNKNOWN_SHIPPING_ZONE,
+    /** The checkout could not be made durable in the journal. */
+    NOT_RECORDED,
+    /** The customer appeared more than once in a batch. */
+    DUPLICATE_CUSTOMER,
+    /** The checkout failed with an unexpected exception. */
+    ERROR
+}
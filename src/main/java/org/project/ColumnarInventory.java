@@ -0,0 +1,417 @@
+package org.project;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * A compact, column-oriented inventory store for very large catalogs.
+ * Instead of one heap object per product, every attribute lives in its own primitive array
+ * (price, stock, weight, expiration day, category) and names are interned into a shared table,
+ * so a product costs a few dozen bytes and bulk operations such as stock audits or price updates
+ * stream over contiguous memory.
+ * <p>
+ * Products are addressed by their row number. {@link Row} is a reusable flyweight view that exposes
+ * the familiar {@link Product} getters and stock mutators for one row at a time, and
+ * {@link #toProduct(int)} materializes a real product when one is needed, e.g. for checkout.
+ * <p>
+ * This class is not thread-safe; confine it to one thread or synchronize externally.
+ */
+public class ColumnarInventory {
+    /**
+     * Expiration day stored for products that never expire.
+     */
+    public static final long NO_EXPIRATION = Long.MAX_VALUE;
+
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+    private static final int DEFAULT_CAPACITY = 1_024;
+
+    private int size;
+    private long[] priceCents;
+    private int[] quantity;
+    private double[] weight; // 0 for products that are not shippable
+    private long[] expirationEpochDay; // NO_EXPIRATION for products that do not expire
+    private byte[] category; // ProductCategory ordinal
+    private int[] nameId; // Index into names
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    /**
+     * Constructs an empty inventory.
+     */
+    public ColumnarInventory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty inventory sized for the given number of products.
+     *
+     * @param initialCapacity The number of products the inventory can hold before it has to grow.
+     */
+    public ColumnarInventory(int initialCapacity) {
+        if (initialCapacity <= 0) {
+            throw new IllegalArgumentException("Initial capacity must be positive.");
+        }
+        priceCents = new long[initialCapacity];
+        quantity = new int[initialCapacity];
+        weight = new double[initialCapacity];
+        expirationEpochDay = new long[initialCapacity];
+        category = new byte[initialCapacity];
+        nameId = new int[initialCapacity];
+    }
+
+    /**
+     * Copies a product into the inventory.
+     *
+     * @param product The product to add.
+     * @return The row number of the product.
+     */
+    public int add(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        double productWeight = product instanceof Shippable ? ((Shippable) product).getWeight() : 0;
+        long expiration = product instanceof Expirable ? ((Expirable) product).getExpirationEpochDay() : NO_EXPIRATION;
+        return add(product.getName(), product.getPriceCents(), product.getQuantity(), productWeight, expiration, product.getCategory());
+    }
+
+    /**
+     * Adds a product row from raw attributes. The attributes are checked against the category with the rules of the
+     * product classes, so that every row can be turned back into a product by {@link #toProduct(int)}.
+     *
+     * @param name               The product name.
+     * @param priceCents         The price in cents.
+     * @param quantity           The available stock.
+     * @param weight             The unit weight in kg, 0 if not shippable.
+     * @param expirationEpochDay The last good day, or {@link #NO_EXPIRATION}.
+     * @param category           The product category.
+     * @return The row number of the product.
+     * @throws IllegalArgumentException if an attribute is invalid, a grocery or electronics product has no positive
+     *                                  weight, a grocery product has no expiration day, or a product of another
+     *                                  category has a weight or an expiration day.
+     */
+    public int add(String name, long priceCents, int quantity, double weight, long expirationEpochDay, ProductCategory category) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty.");
+        }
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Product price cannot be negative.");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Product quantity cannot be negative.");
+        }
+        if (category == null) {
+            throw new IllegalArgumentException("Category cannot be null.");
+        }
+        validateForCategory(weight, expirationEpochDay, category);
+        if (size == this.quantity.length) {
+            grow();
+        }
+        int row = size++;
+        this.priceCents[row] = priceCents;
+        this.quantity[row] = quantity;
+        this.weight[row] = weight;
+        this.expirationEpochDay[row] = expirationEpochDay;
+        this.category[row] = (byte) category.ordinal();
+        this.nameId[row] = intern(name);
+        return row;
+    }
+
+    private static void validateForCategory(double weight, long expirationEpochDay, ProductCategory category) {
+        boolean shippable = category == ProductCategory.GROCERY || category == ProductCategory.ELECTRONICS;
+        if (shippable && weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive for a shippable product.");
+        }
+        if (!shippable && weight != 0) {
+            throw new IllegalArgumentException("Weight must be 0 for a product that is not shipped.");
+        }
+        if (category == ProductCategory.GROCERY) {
+            if (expirationEpochDay < LocalDate.MIN.toEpochDay() || expirationEpochDay > LocalDate.MAX.toEpochDay()) {
+                throw new IllegalArgumentException("A grocery product needs a valid expiration day.");
+            }
+        } else if (expirationEpochDay != NO_EXPIRATION) {
+            throw new IllegalArgumentException("Only grocery products can have an expiration date.");
+        }
+    }
+
+    /**
+     * Gets the number of products in the inventory.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Creates a flyweight view positioned on the given row.
+     * The same view can be moved to other rows with {@link Row#moveTo(int)}.
+     *
+     * @param row The row number.
+     * @return A view of the row.
+     */
+    public Row row(int row) {
+        return new Row().moveTo(row);
+    }
+
+    /**
+     * Visits every row with one reused flyweight view. The view must not be kept after the callback returns.
+     *
+     * @param action The action to perform for each row.
+     */
+    public void forEach(Consumer<? super Row> action) {
+        Row view = new Row();
+        for (int row = 0; row < size; row++) {
+            action.accept(view.moveTo(row));
+        }
+    }
+
+    /**
+     * Creates a regular product object with the attributes of a row.
+     * The product is a copy: changes to it are not written back to the inventory.
+     *
+     * @param row The row number.
+     * @return A new product of the row's category.
+     */
+    public Product toProduct(int row) {
+        checkRow(row);
+        String name = names.get(nameId[row]);
+        double price = Money.toUnits(priceCents[row]);
+        switch (CATEGORIES[category[row]]) {
+            case GROCERY:
+                return new GroceryProduct(name, price, quantity[row], weight[row], LocalDate.ofEpochDay(expirationEpochDay[row]));
+            case ELECTRONICS:
+                return new ElectronicsProduct(name, price, quantity[row], weight[row]);
+            default:
+                return new DigitalProduct(name, price, quantity[row]);
+        }
+    }
+
+    // --- Bulk operations ---
+
+    /**
+     * Sums the stock of all products.
+     *
+     * @return The total number of units in stock.
+     */
+    public long totalUnits() {
+        long total = 0;
+        int[] stock = quantity;
+        for (int row = 0; row < size; row++) {
+            total += stock[row];
+        }
+        return total;
+    }
+
+    /**
+     * Calculates the value of all stock at current prices.
+     *
+     * @return The sum of price times stock over all products, in cents.
+     * @throws ArithmeticException if the value overflows.
+     */
+    public long stockValueCents() {
+        long total = 0;
+        long[] prices = priceCents;
+        int[] stock = quantity;
+        for (int row = 0; row < size; row++) {
+            total = Math.addExact(total, Money.times(prices[row], stock[row]));
+        }
+        return total;
+    }
+
+    /**
+     * Reports every product whose stock is below a threshold, e.g. for reordering.
+     *
+     * @param threshold The stock level below which a product is reported.
+     * @param action    Receives the row number of every such product.
+     * @return The number of products reported.
+     */
+    public int forEachLowStock(int threshold, IntConsumer action) {
+        int count = 0;
+        int[] stock = quantity;
+        for (int row = 0; row < size; row++) {
+            if (stock[row] < threshold) {
+                action.accept(row);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Changes the price of all products in a category by a relative amount, rounding to the nearest cent.
+     *
+     * @param category    The category to reprice.
+     * @param basisPoints The change in hundredths of a percent, e.g. -1500 for a 15% discount.
+     * @return The number of products repriced.
+     * @throws ArithmeticException if a new price would overflow; no price is changed then.
+     */
+    public int applyPriceChange(ProductCategory category, int basisPoints) {
+        if (basisPoints <= -10_000) {
+            throw new IllegalArgumentException("Price change cannot reach -100% or below.");
+        }
+        byte wanted = (byte) category.ordinal();
+        long factor = 10_000L + basisPoints;
+        long[] prices = priceCents;
+        byte[] categories = this.category;
+
+        // The new price grows with the old one, so if the highest price of the category can be repriced, all can;
+        // checking first means an overflow never leaves the category half repriced
+        long highest = 0;
+        for (int row = 0; row < size; row++) {
+            if (categories[row] == wanted) {
+                highest = Math.max(highest, prices[row]);
+            }
+        }
+        Math.addExact(Math.multiplyExact(highest, factor), 5_000);
+
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (categories[row] == wanted) {
+                prices[row] = (prices[row] * factor + 5_000) / 10_000;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the products that are expired on the given day.
+     *
+     * @param epochDay The day to check, as days since 1970-01-01.
+     * @return The number of products whose last good day is before that day.
+     */
+    public int countExpired(long epochDay) {
+        int count = 0;
+        long[] expirations = expirationEpochDay;
+        for (int row = 0; row < size; row++) {
+            if (expirations[row] < epochDay) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int intern(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void grow() {
+        int capacity = quantity.length * 2;
+        priceCents = Arrays.copyOf(priceCents, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        weight = Arrays.copyOf(weight, capacity);
+        expirationEpochDay = Arrays.copyOf(expirationEpochDay, capacity);
+        category = Arrays.copyOf(category, capacity);
+        nameId = Arrays.copyOf(nameId, capacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " is out of range [0, " + size + ").");
+        }
+    }
+
+    /**
+     * A flyweight view of one inventory row, with the same accessors as {@link Product}.
+     * Reads and writes go straight to the inventory's columns.
+     */
+    public final class Row {
+        private int row;
+
+        private Row() {
+        }
+
+        /**
+         * Moves this view to another row.
+         *
+         * @param row The row number.
+         * @return This view.
+         */
+        public Row moveTo(int row) {
+            checkRow(row);
+            this.row = row;
+            return this;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getName() {
+            return names.get(nameId[row]);
+        }
+
+        public double getPrice() {
+            return Money.toUnits(priceCents[row]);
+        }
+
+        public long getPriceCents() {
+            return priceCents[row];
+        }
+
+        public int getQuantity() {
+            return quantity[row];
+        }
+
+        public double getWeight() {
+            return weight[row];
+        }
+
+        public ProductCategory getCategory() {
+            return CATEGORIES[category[row]];
+        }
+
+        public boolean isShippable() {
+            return weight[row] > 0;
+        }
+
+        public long getExpirationEpochDay() {
+            return expirationEpochDay[row];
+        }
+
+        public void setPriceCents(long priceCents) {
+            if (priceCents < 0) {
+                throw new IllegalArgumentException("Product price cannot be negative.");
+            }
+            ColumnarInventory.this.priceCents[row] = priceCents;
+        }
+
+        public void setQuantity(int quantity) {
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative.");
+            }
+            ColumnarInventory.this.quantity[row] = quantity;
+        }
+
+        /**
+         * Reduces the stock of this row if enough is available.
+         *
+         * @param quantity The amount to reduce the stock by.
+         * @return true if the stock was reduced, false if less than the requested amount was available.
+         */
+        public boolean tryReduceQuantity(int quantity) {
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative.");
+            }
+            int[] stock = ColumnarInventory.this.quantity;
+            if (stock[row] < quantity) {
+                return false;
+            }
+            stock[row] -= quantity;
+            return true;
+        }
+    }
+}
@@ -3,31 +3,59 @@ package org.project;
 /**
  * Represents a customer in the e-commerce system.
  * A customer has a name, a balance, and a shopping cart.
+ * The balance is kept in a {@link BalanceLedger}, so it can be shared safely by many concurrent checkouts.
  */
 public class Customer {
+    private static final int RECENT_MOVEMENTS = 256; // Most recent balance movements kept per customer
+    // Customers have their own id space, independent of the generator set for products; unique across runs
+    private static final TimeSequencedIdGenerator ID_GENERATOR = new TimeSequencedIdGenerator(System.currentTimeMillis());
+    private final long id; // Identifies the customer in the checkout journal; names need not be unique.
     private final String name; // The name of the customer.
-    private double balance; // The current balance of the customer.
+    private final BalanceLedger ledger; // The balance of the customer, in cents.
     private final Cart cart; // The shopping cart associated with the customer.
+    private volatile int shippingZone = ShippingRateEngine.DEFAULT_ZONE; // Where the customer's orders are shipped.
 
     /**
-     * Constructs a Customer with the specified name and initial balance.
+     * Constructs a Customer with the specified name and initial balance, and a newly generated id.
      *
      * @param name The name of the customer.
      * @param initialBalance The initial balance of the customer.
      * @throws IllegalArgumentException if the name is null, empty, or the initial balance is negative.
      */
     public Customer(String name, double initialBalance) {
+        this(ID_GENERATOR.nextId(), name, initialBalance);
+    }
+
+    /**
+     * Constructs a Customer with a known id, e.g. an account restored before a journal is replayed.
+     *
+     * @param id The customer's stable id, as recorded in the checkout journal.
+     * @param name The name of the customer.
+     * @param initialBalance The initial balance of the customer.
+     * @throws IllegalArgumentException if the name is null, empty, or the initial balance is negative.
+     */
+    public Customer(long id, String name, double initialBalance) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Customer name cannot be null or empty.");
         }
         if (initialBalance < 0) {
             throw new IllegalArgumentException("Initial balance cannot be negative.");
         }
+        this.id = id;
         this.name = name;
-        this.balance = initialBalance;
+        this.ledger = new BalanceLedger(Money.ofUnits(initialBalance), RECENT_MOVEMENTS);
         this.cart = new Cart();
     }
 
+    /**
+     * Gets the customer's stable id, which the checkout journal records instead of the name.
+     *
+     * @return The customer's id.
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Gets the name of the customer.
      *
@@ -43,7 +71,26 @@ public class Customer {
      * @return The current balance of the customer.
      */
     public double getBalance() {
-        return balance;
+        return Money.toUnits(getBalanceCents());
+    }
+
+    /**
+     * Gets the current balance of the customer as a fixed-point amount.
+     * Amounts held for checkouts in progress are not included.
+     *
+     * @return The current balance in cents.
+     */
+    public long getBalanceCents() {
+        return ledger.getAvailableCents();
+    }
+
+    /**
+     * Gets the ledger that keeps the customer's balance, for holds and the recent balance movements.
+     *
+     * @return The customer's balance ledger.
+     */
+    public BalanceLedger getLedger() {
+        return ledger;
     }
 
     /**
@@ -55,6 +102,28 @@ public class Customer {
         return cart;
     }
 
+    /**
+     * Gets the zone the customer's orders are shipped to, as priced by the {@link ShippingRateEngine}.
+     *
+     * @return The shipping zone.
+     */
+    public int getShippingZone() {
+        return shippingZone;
+    }
+
+    /**
+     * Sets the zone the customer's orders are shipped to.
+     *
+     * @param shippingZone The shipping zone.
+     * @throws IllegalArgumentException if the zone is negative.
+     */
+    public void setShippingZone(int shippingZone) {
+        if (shippingZone < 0) {
+            throw new IllegalArgumentException("Shipping zone cannot be negative.");
+        }
+        this.shippingZone = shippingZone;
+    }
+
     /**
      * Adds a product to the customer's shopping cart with the specified quantity.
      *
@@ -73,9 +142,45 @@ public class Customer {
      * @throws IllegalArgumentException if the amount exceeds the customer's current balance.
      */
     public void deductBalance(double amount) {
-        if (amount > balance) {
+        if (!tryDeductBalance(amount)) {
             throw new IllegalArgumentException("Insufficient balance.");
         }
-        balance -= amount;
     }
-}
\ No newline at end of file
+
+    /**
+     * Deducts the specified amount if the balance covers it.
+     * The check and the deduction happen atomically, so concurrent checkouts cannot overdraw the balance.
+     *
+     * @param amount The amount to deduct.
+     * @return true if the amount was deducted, false if the balance was insufficient.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public boolean tryDeductBalance(double amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative.");
+        }
+        return tryDeductBalanceCents(Money.ofUnits(amount));
+    }
+
+    /**
+     * Deducts the specified fixed-point amount if the balance covers it.
+     *
+     * @param amountCents The amount to deduct, in cents.
+     * @return true if the amount was deducted, false if the balance was insufficient.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public boolean tryDeductBalanceCents(long amountCents) {
+        return ledger.tryDebit(amountCents);
+    }
+
+    /**
+     * Adds the specified fixed-point amount to the customer's balance.
+     * Used to refund a debit that could not be completed, and when replaying a journal.
+     *
+     * @param amountCents The amount to add, in cents.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public void addBalanceCents(long amountCents) {
+        ledger.credit(amountCents);
+    }
+}
@@ -0,0 +1,85 @@
+package org.project;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * A clock that answers "what day is it?" cheaply.
+ * The current day and the instant of the next midnight are cached; a call only compares the current
+ * time in milliseconds against that boundary and recomputes the date (with its time zone lookup)
+ * once per day instead of on every call, as {@code LocalDate.now()} would.
+ */
+public final class DayClock {
+    private static final DayClock SYSTEM = new DayClock(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Day current; // The cached day, replaced as a whole when it ends.
+
+    /**
+     * Constructs a day clock on top of the given clock.
+     *
+     * @param clock The underlying clock, which also defines the time zone.
+     */
+    public DayClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.clock = clock;
+        this.current = computeDay();
+    }
+
+    /**
+     * Gets the shared day clock for the system time zone.
+     *
+     * @return The system day clock.
+     */
+    public static DayClock system() {
+        return SYSTEM;
+    }
+
+    /**
+     * Gets today's date as a number of days since 1970-01-01.
+     *
+     * @return Today's epoch day.
+     */
+    public long todayEpochDay() {
+        Day day = current;
+        if (clock.millis() >= day.nextDayStartMillis) {
+            day = computeDay();
+            current = day;
+        }
+        return day.epochDay;
+    }
+
+    /**
+     * Gets today's date.
+     *
+     * @return Today's date.
+     */
+    public LocalDate today() {
+        return LocalDate.ofEpochDay(todayEpochDay());
+    }
+
+    private Day computeDay() {
+        ZoneId zone = clock.getZone();
+        LocalDate today = LocalDate.ofInstant(Instant.ofEpochMilli(clock.millis()), zone);
+        ZonedDateTime nextDayStart = today.plusDays(1).atStartOfDay(zone);
+        return new Day(today.toEpochDay(), nextDayStart.toInstant().toEpochMilli());
+    }
+
+    /**
+     * A day and the instant the next day starts.
+     */
+    private static final class Day {
+        private final long epochDay;
+        private final long nextDayStartMillis;
+
+        Day(long epochDay, long nextDayStartMillis) {
+            this.epochDay = epochDay;
+            this.nextDayStartMillis = nextDayStartMillis;
+        }
+    }
+}
@@ -18,4 +18,21 @@ public class DigitalProduct extends Product {
         // Calls the parent constructor to set the common properties.
         super(name, price, quantity);
     }
+
+    /**
+     * Restores a saved DigitalProduct with its original id.
+     *
+     * @param id         The saved identifier.
+     * @param name       The name of the digital product.
+     * @param priceCents The price of the digital product in cents.
+     * @param quantity   The available quantity.
+     */
+    DigitalProduct(long id, String name, long priceCents, int quantity) {
+        super(id, name, priceCents, quantity);
+    }
+
+    @Override
+    public ProductCategory getCategory() {
+        return ProductCategory.DIGITAL;
+    }
 }
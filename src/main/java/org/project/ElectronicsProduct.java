@@ -25,6 +25,28 @@ public class ElectronicsProduct extends Product implements Shippable {
         this.weight = weight;
     }
 
+    /**
+     * Restores a saved ElectronicsProduct with its original id.
+     *
+     * @param id         The saved identifier.
+     * @param name       The name of the electronics product.
+     * @param priceCents The price of the product in cents.
+     * @param quantity   The available quantity.
+     * @param weight     The shipping weight of the product in kg.
+     */
+    ElectronicsProduct(long id, String name, long priceCents, int quantity, double weight) {
+        super(id, name, priceCents, quantity);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive for a shippable product.");
+        }
+        this.weight = weight;
+    }
+
+    @Override
+    public ProductCategory getCategory() {
+        return ProductCategory.ELECTRONICS;
+    }
+
     /**
      * Gets the weight of the product.
      * This method is required by the Shippable interface.
@@ -8,10 +8,24 @@ public interface Expirable {
      */
     String getExpirationDate();
 
+    /**
+     * Returns the expiration date of the product as a number of days since 1970-01-01.
+     * The product is still good on this day and expired from the next day on.
+     *
+     * @return the expiration date as an epoch day
+     */
+    long getExpirationEpochDay();
+
     /**
      * Checks if the product is expired.
      *
      * @return true if the product is expired, false otherwise
      */
     boolean isExpired();
+
+    /**
+     * Flags the product as expired, so later checks are a plain flag read.
+     * Called by the {@link ExpiryIndex} when the product's expiration date has passed.
+     */
+    void markExpired();
 }
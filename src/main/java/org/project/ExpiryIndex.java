@@ -0,0 +1,142 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Indexes expirable products by their expiration day.
+ * Products are kept in one bucket per day, ordered by day, so expiring everything whose date has passed
+ * touches only the buckets that are due, and "what expires in the next N days" reads a contiguous range
+ * of buckets instead of scanning the whole catalog.
+ * <p>
+ * Call {@link #advance()} periodically (e.g. from a daily job); it flips all products whose date has
+ * passed to expired in bulk, after which their {@link Expirable#isExpired()} is a plain flag read.
+ * Reads are lock-free; registration and advancing are serialized.
+ */
+public class ExpiryIndex {
+    private final DayClock clock;
+    private final ConcurrentSkipListMap<Long, Set<Expirable>> byDay = new ConcurrentSkipListMap<>();
+
+    /**
+     * Constructs an index that uses the system day clock.
+     */
+    public ExpiryIndex() {
+        this(DayClock.system());
+    }
+
+    /**
+     * Constructs an index that uses the given day clock.
+     *
+     * @param clock The clock that tells the current day.
+     */
+    public ExpiryIndex(DayClock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a product to the index. Products that are already past their date are flagged right away.
+     *
+     * @param product The product to add.
+     */
+    public synchronized void register(Expirable product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        long day = product.getExpirationEpochDay();
+        if (day < clock.todayEpochDay()) {
+            product.markExpired();
+            return;
+        }
+        byDay.computeIfAbsent(day, d -> ConcurrentHashMap.newKeySet()).add(product);
+    }
+
+    /**
+     * Adds every expirable product of the given collection to the index.
+     *
+     * @param products The products; those that are not expirable are skipped.
+     */
+    public void registerAll(Collection<? extends Product> products) {
+        for (Product product : products) {
+            if (product instanceof Expirable) {
+                register((Expirable) product);
+            }
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param product The product to remove.
+     * @return true if the product was in the index, false otherwise.
+     */
+    public synchronized boolean unregister(Expirable product) {
+        Long day = product.getExpirationEpochDay();
+        Set<Expirable> bucket = byDay.get(day);
+        if (bucket == null || !bucket.remove(product)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            byDay.remove(day);
+        }
+        return true;
+    }
+
+    /**
+     * Flags all products whose expiration date is before today as expired and drops them from the index.
+     *
+     * @return The number of products that were flagged.
+     */
+    public synchronized int advance() {
+        int flagged = 0;
+        Iterator<Map.Entry<Long, Set<Expirable>>> due = byDay.headMap(clock.todayEpochDay(), false).entrySet().iterator();
+        while (due.hasNext()) {
+            for (Expirable product : due.next().getValue()) {
+                product.markExpired();
+                flagged++;
+            }
+            due.remove();
+        }
+        return flagged;
+    }
+
+    /**
+     * Finds the products that expire within the given number of days, e.g. for markdown jobs.
+     * A value of 0 returns the products whose last good day is today.
+     *
+     * @param days The number of days to look ahead.
+     * @return The products expiring from today up to and including today plus {@code days}, soonest first.
+     */
+    public List<Expirable> expiringWithin(int days) {
+        if (days < 0) {
+            throw new IllegalArgumentException("Days cannot be negative.");
+        }
+        long today = clock.todayEpochDay();
+        List<Expirable> expiring = new ArrayList<>();
+        for (Set<Expirable> bucket : byDay.subMap(today, true, today + days, true).values()) {
+            expiring.addAll(bucket);
+        }
+        return expiring;
+    }
+
+    /**
+     * Gets the number of products in the index that are not expired yet.
+     *
+     * @return The number of indexed products.
+     */
+    public int size() {
+        int size = 0;
+        for (Set<Expirable> bucket : byDay.values()) {
+            size += bucket.size();
+        }
+        return size;
+    }
+}
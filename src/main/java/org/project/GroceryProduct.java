@@ -11,7 +11,9 @@ import java.time.format.DateTimeFormatter;
 public class GroceryProduct extends Product implements Shippable, Expirable {
 
     private final double weight; // Weight in kilograms
-    private final LocalDate expirationDate;
+    private final long expirationEpochDay; // Last good day, as days since 1970-01-01
+    private final DayClock clock; // Tells the current day without calling LocalDate.now()
+    private volatile boolean expired; // Set once the expiration date has passed; never cleared
 
     /**
      * Constructs a new GroceryProduct.
@@ -23,6 +25,20 @@ public class GroceryProduct extends Product implements Shippable, Expirable {
      * @param expirationDate The date when the product expires.
      */
     public GroceryProduct(String name, double price, int quantity, double weight, LocalDate expirationDate) {
+        this(name, price, quantity, weight, expirationDate, DayClock.system());
+    }
+
+    /**
+     * Constructs a new GroceryProduct that checks expiration against the given clock.
+     *
+     * @param name           The name of the grocery product.
+     * @param price          The price of the product.
+     * @param quantity       The available quantity.
+     * @param weight         The shipping weight of the product in kg.
+     * @param expirationDate The date when the product expires.
+     * @param clock          The clock that tells the current day.
+     */
+    public GroceryProduct(String name, double price, int quantity, double weight, LocalDate expirationDate, DayClock clock) {
         super(name, price, quantity); // Initialize base product properties
         if (weight <= 0) {
             throw new IllegalArgumentException("Weight must be positive for a shippable product.");
@@ -30,8 +46,41 @@ public class GroceryProduct extends Product implements Shippable, Expirable {
         if (expirationDate == null) {
             throw new IllegalArgumentException("Expiration date cannot be null for a grocery product.");
         }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
+        this.weight = weight;
+        this.expirationEpochDay = expirationDate.toEpochDay();
+        this.clock = clock;
+    }
+
+    /**
+     * Restores a saved GroceryProduct with its original id.
+     *
+     * @param id                 The saved identifier.
+     * @param name               The name of the grocery product.
+     * @param priceCents         The price of the product in cents.
+     * @param quantity           The available quantity.
+     * @param weight             The shipping weight of the product in kg.
+     * @param expirationEpochDay The date when the product expires, as days since 1970-01-01.
+     * @param clock              The clock that tells the current day.
+     */
+    GroceryProduct(long id, String name, long priceCents, int quantity, double weight, long expirationEpochDay, DayClock clock) {
+        super(id, name, priceCents, quantity);
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight must be positive for a shippable product.");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null.");
+        }
         this.weight = weight;
-        this.expirationDate = expirationDate;
+        this.expirationEpochDay = expirationEpochDay;
+        this.clock = clock;
+    }
+
+    @Override
+    public ProductCategory getCategory() {
+        return ProductCategory.GROCERY;
     }
 
     // --- Shippable Interface Implementation ---
@@ -47,12 +96,29 @@ public class GroceryProduct extends Product implements Shippable, Expirable {
     @Override
     public String getExpirationDate() {
         // Format the LocalDate into a user-friendly string as per the interface contract.
-        return this.expirationDate.format(DateTimeFormatter.ISO_LOCAL_DATE); // e.g., "2025-12-31"
+        return LocalDate.ofEpochDay(expirationEpochDay).format(DateTimeFormatter.ISO_LOCAL_DATE); // e.g., "2025-12-31"
+    }
+
+    @Override
+    public long getExpirationEpochDay() {
+        return expirationEpochDay;
     }
 
     @Override
     public boolean isExpired() {
+        if (expired) {
+            return true;
+        }
         // The product is expired if its expiration date is before today's date.
-        return this.expirationDate.isBefore(LocalDate.now());
+        if (expirationEpochDay < clock.todayEpochDay()) {
+            expired = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void markExpired() {
+        expired = true;
     }
 }
@@ -0,0 +1,99 @@
+package org.project;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a catalog import: how many rows were imported or rejected, why rows were rejected,
+ * and the throughput of the whole import. A rejected row does not affect the other rows.
+ */
+public final class ImportResult {
+    private final long importedCount;
+    private final long failedCount;
+    private final List<RowError> errors; // The first rejected rows, ordered by line number.
+    private final long bytes; // Size of the imported file.
+    private final long elapsedNanos; // Wall-clock time of the whole import.
+
+    ImportResult(long importedCount, long failedCount, List<RowError> errors, long bytes, long elapsedNanos) {
+        this.importedCount = importedCount;
+        this.failedCount = failedCount;
+        this.errors = Collections.unmodifiableList(errors);
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the rejected rows. Only the first rows up to the importer's error limit are kept;
+     * {@link #getFailedCount()} counts all of them.
+     *
+     * @return The kept row errors, ordered by line number.
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets the wall-clock time the import took.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Calculates the import throughput.
+     *
+     * @return The number of bytes of the file processed per second.
+     */
+    public double getBytesPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return bytes * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{" +
+                "imported=" + importedCount +
+                ", failed=" + failedCount +
+                ", elapsedMillis=" + elapsedNanos / 1_000_000 +
+                ", megabytesPerSecond=" + (long) (getBytesPerSecond() / (1024 * 1024)) +
+                '}';
+    }
+
+    /**
+     * A row of the feed that could not be imported.
+     */
+    public static final class RowError {
+        private final long line; // 1-based line number in the file.
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
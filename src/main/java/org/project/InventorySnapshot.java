@@ -0,0 +1,253 @@
+package org.project;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * A binary snapshot of the product catalog and its stock levels, read through a memory mapping.
+ * <p>
+ * The file starts with a fixed header, followed by one fixed-size record per product and a string
+ * area with the UTF-8 encoded names:
+ * <pre>
+ * header:  magic (int) | version (int) | product count (int) | string area offset (long)
+ * record:  category (byte) + 3 padding | quantity (int) | price cents (long) | weight (double)
+ *          | expiration epoch day (long) | id (long) | name offset (int) | name length (int)
+ * </pre>
+ * Opening a snapshot only maps the file, so startup does not depend on the catalog size; the operating
+ * system pages in the parts that are actually read, and a product is only decoded when it is requested.
+ * Restored products keep their original ids and all category specific attributes (weight, expiration date).
+ */
+public final class InventorySnapshot {
+    private static final int MAGIC = 0x494E5653; // "INVS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+    private static final int RECORD_SIZE = 48;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private static final int CATEGORY = 0;
+    private static final int QUANTITY = 4;
+    private static final int PRICE = 8;
+    private static final int WEIGHT = 16;
+    private static final int EXPIRATION = 24;
+    private static final int ID = 32;
+    private static final int NAME_OFFSET = 40;
+    private static final int NAME_LENGTH = 44;
+
+    private static final ProductCategory[] CATEGORIES = ProductCategory.values();
+
+    private final MappedByteBuffer data;
+    private final int size;
+    private final int stringsStart;
+    private final DayClock clock; // Given to restored grocery products
+
+    private InventorySnapshot(MappedByteBuffer data, DayClock clock) throws IOException {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not an inventory snapshot.");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + data.getInt(4) + ".");
+        }
+        this.data = data;
+        this.size = data.getInt(8);
+        this.stringsStart = (int) data.getLong(12);
+        this.clock = clock;
+    }
+
+    /**
+     * Writes a snapshot of the given products, replacing the file if it exists.
+     * The snapshot is written to a temporary file next to it, forced to disk and then moved over the file in one
+     * step, so a crash leaves either the previous snapshot or the complete new one, never a mix.
+     *
+     * @param file     The snapshot file.
+     * @param products The products to save, with their current stock. May be a live collection that changes
+     *                 meanwhile; the snapshot holds the products it saw when it started.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path file, Collection<? extends Product> products) throws IOException {
+        Product[] saved = products.toArray(new Product[0]); // Fixes the count the header and the layout rely on
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                writeTo(channel, saved);
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary); // Only still there if writing or moving failed
+        }
+    }
+
+    private static void writeTo(FileChannel channel, Product[] products) throws IOException {
+        long stringsStart = HEADER_SIZE + (long) RECORD_SIZE * products.length;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(products.length).putLong(stringsStart).flip();
+        writeFully(channel, header, 0);
+
+        // Records and strings are written side by side; each buffer is flushed to its own region
+        ByteBuffer records = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer strings = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        long recordPosition = HEADER_SIZE;
+        long stringPosition = stringsStart;
+        long stringOffset = 0; // Relative to the start of the string area
+        for (Product product : products) {
+            byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+            if (stringOffset + name.length > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot string area exceeds 2 GB.");
+            }
+
+            if (records.remaining() < RECORD_SIZE) {
+                recordPosition += flush(channel, records, recordPosition);
+            }
+            records.put((byte) product.getCategory().ordinal()).put((byte) 0).put((byte) 0).put((byte) 0);
+            records.putInt(product.getQuantity());
+            records.putLong(product.getPriceCents());
+            records.putDouble(product instanceof Shippable ? ((Shippable) product).getWeight() : 0);
+            records.putLong(product instanceof Expirable ? ((Expirable) product).getExpirationEpochDay() : 0);
+            records.putLong(product.getId());
+            records.putInt((int) stringOffset).putInt(name.length);
+
+            if (strings.remaining() < name.length) {
+                stringPosition += flush(channel, strings, stringPosition);
+            }
+            if (name.length > strings.capacity()) {
+                writeFully(channel, ByteBuffer.wrap(name), stringPosition);
+                stringPosition += name.length;
+            } else {
+                strings.put(name);
+            }
+            stringOffset += name.length;
+        }
+        flush(channel, records, recordPosition);
+        flush(channel, strings, stringPosition);
+    }
+
+    /**
+     * Opens a snapshot using the system day clock for restored grocery products.
+     *
+     * @param file The snapshot file.
+     * @return The opened snapshot.
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static InventorySnapshot open(Path file) throws IOException {
+        return open(file, DayClock.system());
+    }
+
+    /**
+     * Opens a snapshot. Only maps the file; nothing is decoded until it is read.
+     *
+     * @param file  The snapshot file.
+     * @param clock The day clock restored grocery products check expiration against.
+     * @return The opened snapshot.
+     * @throws IOException if the file cannot be read, is larger than 2 GB or is not a snapshot.
+     */
+    public static InventorySnapshot open(Path file, DayClock clock) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshots larger than 2 GB cannot be mapped.");
+            }
+            // The mapping stays valid after the channel is closed
+            return new InventorySnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), clock);
+        }
+    }
+
+    /**
+     * Gets the number of products in the snapshot.
+     *
+     * @return The number of products.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Reads the saved stock of a product without decoding the rest of it.
+     *
+     * @param index The position of the product in the snapshot.
+     * @return The saved quantity.
+     */
+    public int getQuantity(int index) {
+        return data.getInt(record(index) + QUANTITY);
+    }
+
+    /**
+     * Reads the id of a product without decoding the rest of it.
+     *
+     * @param index The position of the product in the snapshot.
+     * @return The saved product id.
+     */
+    public long getId(int index) {
+        return data.getLong(record(index) + ID);
+    }
+
+    /**
+     * Decodes a product.
+     *
+     * @param index The position of the product in the snapshot.
+     * @return A new product with the saved id, attributes and stock.
+     */
+    public Product get(int index) {
+        int record = record(index);
+        long id = data.getLong(record + ID);
+        String name = string(data.getInt(record + NAME_OFFSET), data.getInt(record + NAME_LENGTH));
+        long priceCents = data.getLong(record + PRICE);
+        int quantity = data.getInt(record + QUANTITY);
+        switch (CATEGORIES[data.get(record + CATEGORY)]) {
+            case GROCERY:
+                return new GroceryProduct(id, name, priceCents, quantity, data.getDouble(record + WEIGHT),
+                        data.getLong(record + EXPIRATION), clock);
+            case ELECTRONICS:
+                return new ElectronicsProduct(id, name, priceCents, quantity, data.getDouble(record + WEIGHT));
+            default:
+                return new DigitalProduct(id, name, priceCents, quantity);
+        }
+    }
+
+    /**
+     * Decodes every product of the snapshot into a catalog.
+     *
+     * @param catalog The catalog to add the products to.
+     */
+    public void loadInto(ProductCatalog catalog) {
+        for (int i = 0; i < size; i++) {
+            catalog.add(get(i));
+        }
+    }
+
+    private int record(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of range [0, " + size + ").");
+        }
+        return HEADER_SIZE + index * RECORD_SIZE;
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        data.get(stringsStart + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long flush(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        int written = buffer.remaining();
+        writeFully(channel, buffer, position);
+        buffer.clear();
+        return written;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
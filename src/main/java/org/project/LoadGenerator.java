@@ -0,0 +1,308 @@
+package org.project;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a {@link CheckoutServer} with many concurrent shopping sessions and reports latency and throughput.
+ * <p>
+ * Every session runs on its own virtual thread with its own keep-alive connection: it opens a customer, then
+ * alternates between adding products, viewing the cart and checking out, and finally closes its session. All sessions start together, so the
+ * server sees them all at once. Requests are written straight to the socket rather than through a full HTTP
+ * client, so on a shared machine the client takes as little CPU away from the server as possible.
+ * Run {@link #main(String[])} to start a server on loopback and load it.
+ */
+public final class LoadGenerator {
+    private final String host;
+    private final int port;
+
+    /**
+     * Creates a load generator for the server at the given URI.
+     *
+     * @param baseUri The server's base URI, see {@link CheckoutServer#getBaseUri()}.
+     */
+    public LoadGenerator(URI baseUri) {
+        if (baseUri == null) {
+            throw new IllegalArgumentException("Base URI cannot be null.");
+        }
+        this.host = baseUri.getHost();
+        this.port = baseUri.getPort();
+    }
+
+    /**
+     * Runs the given number of sessions concurrently and waits for all of them to finish.
+     *
+     * @param sessions           The number of concurrent sessions.
+     * @param requestsPerSession The number of requests each session sends between opening and closing its session.
+     * @param productIds         The catalog products the sessions add to their carts.
+     * @return The latency and throughput of all requests.
+     * @throws IllegalArgumentException if a count is not positive or no products are given.
+     * @throws InterruptedException if interrupted while waiting for the sessions.
+     */
+    public Report run(int sessions, int requestsPerSession, List<Long> productIds) throws InterruptedException {
+        if (sessions <= 0 || requestsPerSession <= 0) {
+            throw new IllegalArgumentException("Sessions and requests per session must be positive.");
+        }
+        if (productIds == null || productIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one product is needed.");
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder rejected = new LongAdder();
+        LongAdder errors = new LongAdder();
+        String run = Long.toString(System.nanoTime(), 36); // Keeps customer names unique across runs
+        CountDownLatch start = new CountDownLatch(1);
+        long started;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int s = 0; s < sessions; s++) {
+                String customer = "load-" + run + "-" + s;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        runSession(customer, requestsPerSession, productIds, latency, rejected, errors);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            started = System.nanoTime();
+            start.countDown();
+        }
+        return new Report(latency.snapshot(), rejected.sum(), errors.sum(), System.nanoTime() - started);
+    }
+
+    private void runSession(String customer, int requests, List<Long> productIds, LatencyHistogram latency,
+                            LongAdder rejected, LongAdder errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try (Connection connection = new Connection(host, port)) {
+            if (!send(connection, "POST", "/customers?name=" + customer + "&balance=1000000", latency, rejected, errors)) {
+                return;
+            }
+            for (int i = 0; i < requests; i++) {
+                if (i % 10 == 9) {
+                    send(connection, "POST", "/checkout?customer=" + customer, latency, rejected, errors);
+                } else if (i % 3 == 2) {
+                    send(connection, "GET", "/cart?customer=" + customer, latency, rejected, errors);
+                } else {
+                    long product = productIds.get(random.nextInt(productIds.size()));
+                    send(connection, "POST", "/cart/add?customer=" + customer + "&product=" + product + "&quantity=1",
+                            latency, rejected, errors);
+                }
+            }
+            send(connection, "DELETE", "/customers?name=" + customer, latency, rejected, errors);
+        } catch (IOException e) {
+            errors.increment(); // Connection lost; the rest of the session is abandoned
+        }
+    }
+
+    /**
+     * Sends one request and records its latency.
+     *
+     * @return true if the server accepted the request.
+     */
+    private static boolean send(Connection connection, String method, String path, LatencyHistogram latency,
+                                LongAdder rejected, LongAdder errors) throws IOException {
+        long sent = System.nanoTime();
+        int status = connection.exchange(method, path);
+        latency.record(System.nanoTime() - sent);
+        if (status >= 500) {
+            errors.increment();
+        } else if (status >= 400) {
+            rejected.increment(); // A business rejection, e.g. a sold-out product
+        }
+        return status < 400;
+    }
+
+    /**
+     * Starts a server on loopback with a demo catalog and loads it.
+     * Arguments: the number of sessions (default 10000) and the requests per session (default 20).
+     *
+     * @param args The optional session and request counts.
+     * @throws Exception if the server cannot be started or the run is interrupted.
+     */
+    public static void main(String[] args) throws Exception {
+        CheckoutServer.applyLaunchDefaults(); // Before the server below is created
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requestsPerSession = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ProductCatalog catalog = new ProductCatalog();
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Product product = i % 2 == 0
+                    ? new ElectronicsProduct("Load Gadget " + i, 5.0 + i % 50, 1_000_000, 0.2 + i % 5)
+                    : new DigitalProduct("Load Voucher " + i, 1.0 + i % 20, 1_000_000);
+            catalog.add(product);
+            productIds.add(product.getId());
+        }
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+
+        try (CheckoutServer server = new CheckoutServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            Report report = new LoadGenerator(server.getBaseUri()).run(sessions, requestsPerSession, productIds);
+            System.out.println(sessions + " sessions x " + requestsPerSession + " requests against " + server.getBaseUri());
+            System.out.println(report);
+        }
+    }
+
+    /**
+     * A keep-alive HTTP/1.1 connection that sends body-less requests and reads the status of each response.
+     */
+    private static final class Connection implements AutoCloseable {
+        private final Socket socket;
+        private final OutputStream out;
+        private final InputStream in;
+        private final byte[] hostHeader;
+
+        Connection(String host, int port) throws IOException {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream());
+            hostHeader = (" HTTP/1.1\r\nHost: " + host + ":" + port + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        /**
+         * Sends a request and reads the whole response.
+         *
+         * @return The response status code.
+         */
+        int exchange(String method, String path) throws IOException {
+            byte[] requestLine = (method + " " + path).getBytes(StandardCharsets.US_ASCII);
+            byte[] request = new byte[requestLine.length + hostHeader.length];
+            System.arraycopy(requestLine, 0, request, 0, requestLine.length);
+            System.arraycopy(hostHeader, 0, request, requestLine.length, hostHeader.length);
+            out.write(request);
+            out.flush();
+
+            String statusLine = readLine();
+            int status = Integer.parseInt(statusLine.substring(9, 12)); // "HTTP/1.1 200 OK"
+            long contentLength = 0;
+            for (String header = readLine(); !header.isEmpty(); header = readLine()) {
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Long.parseLong(header.substring(15).trim());
+                }
+            }
+            while (contentLength > 0) {
+                long skipped = in.skip(contentLength);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        throw new EOFException("Connection closed in the middle of a response.");
+                    }
+                    skipped = 1;
+                }
+                contentLength -= skipped;
+            }
+            return status;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder(64);
+            int c;
+            while ((c = in.read()) != '\n') {
+                if (c < 0) {
+                    throw new EOFException("Connection closed by the server.");
+                }
+                if (c != '\r') {
+                    line.append((char) c);
+                }
+            }
+            return line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    /**
+     * The outcome of a load run.
+     */
+    public static final class Report {
+        private final LatencyHistogram.Snapshot latency;
+        private final long rejectedCount;
+        private final long errorCount;
+        private final long elapsedNanos;
+
+        private Report(LatencyHistogram.Snapshot latency, long rejectedCount, long errorCount, long elapsedNanos) {
+            this.latency = latency;
+            this.rejectedCount = rejectedCount;
+            this.errorCount = errorCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the latency distribution of all requests that got a response.
+         *
+         * @return The latency histogram snapshot, in nanoseconds.
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        public long getRequestCount() {
+            return latency.getCount();
+        }
+
+        /**
+         * Gets the number of requests the server rejected as a business outcome (4xx), e.g. a sold-out checkout.
+         *
+         * @return The number of rejected requests.
+         */
+        public long getRejectedCount() {
+            return rejectedCount;
+        }
+
+        /**
+         * Gets the number of requests that failed with a server error or never got a response.
+         *
+         * @return The number of failed requests.
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Calculates the throughput of the run.
+         *
+         * @return The number of answered requests per second.
+         */
+        public double getRequestsPerSecond() {
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return latency.getCount() * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Report{" +
+                    "requests=" + getRequestCount() +
+                    ", rejected=" + rejectedCount +
+                    ", errors=" + errorCount +
+                    ", p50Micros=" + latency.getValueAtPercentile(50) / 1_000 +
+                    ", p99Micros=" + latency.getValueAtPercentile(99) / 1_000 +
+                    ", requestsPerSecond=" + (long) getRequestsPerSecond() +
+                    '}';
+        }
+    }
+}
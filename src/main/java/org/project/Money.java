@@ -0,0 +1,97 @@
+package org.project;
+
+/**
+ * Fixed-point money arithmetic on amounts stored as a {@code long} number of cents.
+ * Working in whole cents keeps totals exact (no binary rounding errors like with {@code double})
+ * and, unlike {@code BigDecimal}, needs no allocation at all.
+ * This class is not meant to be instantiated, as it only contains static methods.
+ */
+public final class Money {
+    /**
+     * The number of cents in one currency unit.
+     */
+    public static final long CENTS_PER_UNIT = 100;
+
+    private Money() {
+        // Prevent instantiation
+        throw new UnsupportedOperationException("Money is a utility class and cannot be instantiated.");
+    }
+
+    /**
+     * Converts an amount in currency units to cents, rounding half up to the nearest cent.
+     *
+     * @param amount The amount, e.g. 999.99.
+     * @return The amount in cents, e.g. 99999.
+     * @throws IllegalArgumentException if the amount is not a finite number or does not fit into a long.
+     */
+    public static long ofUnits(double amount) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number.");
+        }
+        double cents = amount * CENTS_PER_UNIT;
+        if (cents >= Long.MAX_VALUE || cents <= Long.MIN_VALUE) {
+            throw new IllegalArgumentException("Amount is too large.");
+        }
+        return Math.round(cents);
+    }
+
+    /**
+     * Converts an amount in cents to currency units.
+     *
+     * @param cents The amount in cents.
+     * @return The amount in currency units.
+     */
+    public static double toUnits(long cents) {
+        return (double) cents / CENTS_PER_UNIT;
+    }
+
+    /**
+     * Multiplies a unit price by a quantity.
+     *
+     * @param cents    The unit price in cents.
+     * @param quantity The quantity.
+     * @return The total in cents.
+     * @throws ArithmeticException if the result overflows.
+     */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /**
+     * Formats an amount for receipts: whole amounts without decimals ("1600"),
+     * anything else with two decimals ("82.50").
+     *
+     * @param cents The amount in cents.
+     * @return The formatted amount.
+     */
+    public static String format(long cents) {
+        StringBuilder formatted = new StringBuilder(24);
+        appendTo(formatted, cents);
+        return formatted.toString();
+    }
+
+    /**
+     * Appends an amount formatted as by {@link #format(long)} to the given builder, without creating
+     * intermediate strings.
+     *
+     * @param builder The builder to append to.
+     * @param cents   The amount in cents.
+     * @return The builder.
+     */
+    public static StringBuilder appendTo(StringBuilder builder, long cents) {
+        if (cents < 0) {
+            builder.append('-');
+        }
+        long units = Math.abs(cents / CENTS_PER_UNIT);
+        long fraction = Math.abs(cents % CENTS_PER_UNIT);
+        builder.append(units);
+        if (fraction != 0) {
+            builder.append('.');
+            if (fraction < 10) {
+                builder.append('0');
+            }
+            builder.append(fraction);
+        }
+        return builder;
+    }
+}
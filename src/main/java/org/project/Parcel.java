@@ -0,0 +1,67 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One physical package of a shipment, as packed by a {@link ParcelPacker}: the items it holds, with their quantities.
+ */
+public final class Parcel {
+    private final List<ShipmentLine> lines = new ArrayList<>(4);
+    private final List<ShipmentLine> linesView = Collections.unmodifiableList(lines);
+    private final boolean oversized;
+    private long weightMilligrams;
+
+    Parcel(boolean oversized) {
+        this.oversized = oversized;
+    }
+
+    /**
+     * Puts units of an item into the parcel while it is packed.
+     */
+    void add(Shippable item, int quantity, long weightMilligrams) {
+        lines.add(new ShipmentLine(item, quantity));
+        this.weightMilligrams += weightMilligrams;
+    }
+
+    long getWeightMilligrams() {
+        return weightMilligrams;
+    }
+
+    /**
+     * Gets the contents of the parcel.
+     *
+     * @return The items in the parcel with their quantities.
+     */
+    public List<ShipmentLine> getLines() {
+        return linesView;
+    }
+
+    /**
+     * Gets the weight of the parcel's contents.
+     *
+     * @return The weight in kilograms.
+     */
+    public double getWeight() {
+        return weightMilligrams / 1_000_000.0;
+    }
+
+    /**
+     * Tells whether the parcel holds a single unit that alone exceeds the packer's maximum parcel weight.
+     *
+     * @return true if the parcel is over the maximum weight.
+     */
+    public boolean isOversized() {
+        return oversized;
+    }
+
+    @Override
+    public String toString() {
+        return "Parcel{" +
+                "weight=" + getWeight() +
+                ", lines=" + lines.size() +
+                (oversized ? ", oversized" : "") +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits shipment lines into parcels that stay under a maximum weight, using the first-fit-decreasing heuristic:
+ * units are taken heaviest first, and each goes into the first parcel that still has room for it.
+ * <p>
+ * Packing works on (item, quantity) lines rather than on units. All units of a line weigh the same, so the first
+ * parcel with room takes as many of them as fit before the next parcel is tried, and the parcels opened for the rest
+ * are filled a whole parcel at a time. This places every unit exactly where unit-by-unit first-fit-decreasing would,
+ * at a cost that depends on the number of lines and parcels, not on the number of units; the first parcel with room
+ * for a unit is found in logarithmic time.
+ * A unit heavier than the maximum is shipped alone in an {@link Parcel#isOversized() oversized} parcel.
+ * Packers are immutable and can be shared by any number of threads.
+ */
+public final class ParcelPacker {
+    private static final Comparator<ShipmentLine> HEAVIEST_FIRST =
+            Comparator.comparingDouble((ShipmentLine line) -> line.getItem().getWeight()).reversed();
+
+    private final long maxWeightMilligrams;
+
+    /**
+     * Creates a packer.
+     *
+     * @param maxParcelWeight The maximum weight of a parcel, in kilograms.
+     * @throws IllegalArgumentException if the maximum weight is not positive.
+     */
+    public ParcelPacker(double maxParcelWeight) {
+        if (!(maxParcelWeight > 0) || Double.isInfinite(maxParcelWeight)) {
+            throw new IllegalArgumentException("Maximum parcel weight must be positive.");
+        }
+        this.maxWeightMilligrams = Math.round(maxParcelWeight * 1_000_000);
+    }
+
+    /**
+     * Gets the maximum weight of a parcel.
+     *
+     * @return The maximum weight in kilograms.
+     */
+    public double getMaxParcelWeight() {
+        return maxWeightMilligrams / 1_000_000.0;
+    }
+
+    /**
+     * Packs the given lines into parcels.
+     *
+     * @param lines The lines to pack. Not modified.
+     * @return The parcels, in the order they were opened; empty if there are no lines.
+     */
+    public List<Parcel> pack(List<ShipmentLine> lines) {
+        List<ShipmentLine> heaviestFirst = new ArrayList<>(lines);
+        heaviestFirst.sort(HEAVIEST_FIRST);
+
+        List<Parcel> parcels = new ArrayList<>();
+        FreeRoom room = new FreeRoom(Math.max(16, lines.size()));
+        for (ShipmentLine line : heaviestFirst) {
+            Shippable item = line.getItem();
+            long unit = unitMilligrams(line);
+            int remaining = line.getQuantity();
+
+            if (unit > maxWeightMilligrams) {
+                for (int i = 0; i < remaining; i++) {
+                    Parcel parcel = new Parcel(true);
+                    parcel.add(item, 1, unit);
+                    parcels.add(parcel);
+                    room.add(-1); // Full for every other unit, even weightless ones
+                }
+                continue;
+            }
+
+            // First fit: the first parcel with room takes as many units as fit, then the next one, and so on
+            for (int p = room.firstAtLeast(unit); p >= 0 && remaining > 0; p = room.firstAtLeast(unit)) {
+                int fit = unitsThatFit(room.get(p), unit, remaining);
+                parcels.get(p).add(item, fit, fit * unit);
+                room.set(p, room.get(p) - fit * unit);
+                remaining -= fit;
+            }
+
+            // The rest go into new parcels, each filled as far as it goes
+            while (remaining > 0) {
+                int fit = unitsThatFit(maxWeightMilligrams, unit, remaining);
+                Parcel parcel = new Parcel(false);
+                parcel.add(item, fit, fit * unit);
+                parcels.add(parcel);
+                room.add(maxWeightMilligrams - fit * unit);
+                remaining -= fit;
+            }
+        }
+        return parcels;
+    }
+
+    private static int unitsThatFit(long room, long unit, int wanted) {
+        if (unit == 0) {
+            return wanted;
+        }
+        return (int) Math.min(room / unit, wanted);
+    }
+
+    private static long unitMilligrams(ShipmentLine line) {
+        return Math.round(line.getItem().getWeight() * 1_000_000);
+    }
+
+    /**
+     * The room left in each parcel, as a max tree over the parcels in opening order, so the first parcel with room
+     * for a unit is found in logarithmic time rather than by scanning all parcels.
+     */
+    private static final class FreeRoom {
+        private long[] tree; // tree[1] is the root; the leaves start at capacity
+        private int capacity; // A power of two
+        private int size;
+
+        FreeRoom(int expectedParcels) {
+            capacity = Integer.highestOneBit(expectedParcels - 1) << 1;
+            tree = new long[2 * capacity];
+            Arrays.fill(tree, -1);
+        }
+
+        long get(int parcel) {
+            return tree[capacity + parcel];
+        }
+
+        void add(long room) {
+            if (size == capacity) {
+                long[] leaves = Arrays.copyOfRange(tree, capacity, 2 * capacity);
+                capacity *= 2;
+                tree = new long[2 * capacity];
+                Arrays.fill(tree, -1);
+                System.arraycopy(leaves, 0, tree, capacity, leaves.length);
+                for (int node = capacity - 1; node > 0; node--) {
+                    tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+                }
+            }
+            set(size++, room);
+        }
+
+        void set(int parcel, long room) {
+            int node = capacity + parcel;
+            tree[node] = room;
+            for (node /= 2; node > 0; node /= 2) {
+                tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        /**
+         * Finds the first parcel with at least the given room.
+         *
+         * @return The parcel's index, or -1 if none has enough room.
+         */
+        int firstAtLeast(long needed) {
+            if (tree[1] < needed) {
+                return -1;
+            }
+            int node = 1;
+            while (node < capacity) {
+                node = tree[2 * node] >= needed ? 2 * node : 2 * node + 1;
+            }
+            return node - capacity;
+        }
+    }
+}
@@ -1,9 +1,45 @@
 package org.project;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 public class PerClassSimpleTest {
     public static void main(String[] args) {
+        CheckoutServer.applyLaunchDefaults(); // Before the server test creates the first JDK server
         System.out.println("===== E-Commerce System Testing =====\n");
 
         // Test product creation and validation
@@ -21,6 +57,60 @@ public class PerClassSimpleTest {
         // Test product identification
         testProductIdentification();
 
+        // Test stock reservation under contention
+        testConcurrentStockReservation();
+
+        // Test asynchronous receipt writing
+        testAsyncReceiptSink();
+
+        // Test batch checkout
+        testBatchCheckout();
+
+        // Test fixed-point money
+        testMoney();
+
+        // Test product catalog
+        testProductCatalog();
+
+        // Test expiry index
+        testExpiryIndex();
+
+        // Test columnar inventory
+        testColumnarInventory();
+
+        // Test inventory snapshots
+        testInventorySnapshot();
+
+        // Test the checkout journal and crash recovery
+        testCheckoutJournal();
+
+        // Test product id generation
+        testProductIdGenerator();
+
+        // Test the parallel catalog importer
+        testCatalogImporter();
+
+        // Test product change notifications and cart repricing
+        testCartRepricing();
+
+        // Test a cart shared by concurrent sessions
+        testConcurrentCart();
+
+        // Test the balance ledger
+        testBalanceLedger();
+
+        // Test checkout metrics
+        testCheckoutMetrics();
+
+        // Test non-throwing checkout results
+        testCheckoutResult();
+
+        // Test the HTTP front end
+        testCheckoutServer();
+        testShippingRateEngine();
+        testParcelPacking();
+        testShipmentConsolidation();
+
         System.out.println("\n===== All tests completed =====");
     }
 
@@ -122,6 +212,51 @@ public class PerClassSimpleTest {
                 System.out.println(" Correct: Correctly rejected exceeding available stock");
             }
 
+            // Test updating and removing a line
+            cart.updateQuantity(cheese, 5);
+            if (cart.getItems().size() == 2 && cart.getItems().get(1).getQuantity() == 5) {
+                System.out.println(" Correct: Updated line quantity in place");
+            } else {
+                System.out.println(" Incorrect:  Failed to update line quantity");
+            }
+            if (cart.removeProduct(sameTV) && cart.getItems().size() == 1 && !cart.removeProduct(sameTV)) {
+                System.out.println(" Correct: Removed line by business key");
+            } else {
+                System.out.println(" Incorrect:  Failed to remove line by business key");
+            }
+
+            // Test running totals and their invalidation on a price change
+            if (cart.getSubtotalCents() == 2_995 && cart.getShippableWeight() == 2.5 && cart.getTotalQuantity() == 5
+                    && cart.getShippingEstimateCents() == 1_250) {
+                System.out.println(" Correct: Running subtotal, weight, units and shipping estimate follow cart changes");
+            } else {
+                System.out.println(" Incorrect:  Running cart totals are wrong");
+            }
+            cheese.setPrice(6.49);
+            if (cart.getSubtotalCents() == 3_245) {
+                System.out.println(" Correct: Cart subtotal reflects a product price change");
+            } else {
+                System.out.println(" Incorrect:  Cart subtotal is stale after a price change");
+            }
+
+            // A line cannot be set to zero or fewer units, which would corrupt the running totals
+            CartItem line = cart.getItems().get(0);
+            int rejectedQuantities = 0;
+            for (int invalid : new int[]{0, -3}) {
+                try {
+                    line.setQuantity(invalid);
+                } catch (IllegalArgumentException e) {
+                    rejectedQuantities++;
+                }
+            }
+            line.setQuantity(2);
+            if (rejectedQuantities == 2 && cart.getTotalQuantity() == 2 && cart.getSubtotalCents() == 1_298
+                    && cart.getShippableWeight() == 1.0) {
+                System.out.println(" Correct: Setting a line quantity rejects non-positive values and keeps totals");
+            } else {
+                System.out.println(" Incorrect:  Line quantity change corrupted the totals: " + cart.getTotalQuantity());
+            }
+
             // Test cart clear
             cart.clear();
             if (cart.isEmpty()) {
@@ -220,11 +355,13 @@ public class PerClassSimpleTest {
         }
 
         // Test checkout with insufficient balance
+        ElectronicsProduct unaffordableTv = new ElectronicsProduct("Smart TV", 999.99, 5, 15.0);
+        GroceryProduct unaffordableCheese = new GroceryProduct("Cheddar Cheese", 5.99, 20, 0.5, LocalDate.now().plusDays(30));
         try {
             Customer customer = new Customer("Poor Bob", 100.0);
-            ElectronicsProduct tv = new ElectronicsProduct("Smart TV", 999.99, 5, 15.0);
 
-            customer.addToCart(tv, 1);
+            customer.addToCart(unaffordableCheese, 2);
+            customer.addToCart(unaffordableTv, 1);
 
             System.out.println("\n  Testing checkout with insufficient balance:");
             CheckoutService.processCheckout(customer);
@@ -233,6 +370,13 @@ public class PerClassSimpleTest {
             System.out.println(" Correct: Correctly rejected checkout with insufficient balance");
         }
 
+        // Rejected checkout must leave all stock untouched
+        if (unaffordableTv.getQuantity() == 5 && unaffordableCheese.getQuantity() == 20) {
+            System.out.println(" Correct: Rejected checkout rolled back all stock reservations");
+        } else {
+            System.out.println(" Incorrect:  Rejected checkout left stock partially reduced");
+        }
+
         // Test checkout with expired product
         try {
             Customer customer = new Customer("Alice", 1000.0);
@@ -307,39 +451,1796 @@ public class PerClassSimpleTest {
             System.out.println(" Incorrect:  Products with different prices are incorrectly identified as the same");
         }
 
+        System.out.println();
     }
-}
 
+    private static void testConcurrentStockReservation() {
+        System.out.println("Testing Concurrent Stock Reservation:");
 
-/*
-Product Creation Tests
-    Valid creation of different product types
-    Invalid input validation (empty names, negative values)
+        int stock = 1_000;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int attemptsPerThread = 2_000;
 
+        ElectronicsProduct flashSaleTv = new ElectronicsProduct("Flash Sale TV", 299.99, stock, 15.0);
+        StockLedger ledger = new StockLedger();
+        AtomicInteger reservedUnits = new AtomicInteger();
+        AtomicInteger releasedUnits = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
 
-Cart Functionality Tests
-    Adding products to cart
-    Merging identical products (using hasSameBusinessKey)
-    Subtotal calculation
-    Stock quantity validation
-    Cart clearing
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int threadIndex = t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        int quantity = 1 + (i + threadIndex) % 3;
+                        StockLedger.Reservation reservation = ledger.tryReserve(flashSaleTv, quantity);
+                        if (reservation == null) {
+                            continue;
+                        }
+                        // Every tenth reservation is abandoned, as if the payment failed
+                        if (i % 10 == 0) {
+                            ledger.release(reservation);
+                            releasedUnits.addAndGet(quantity);
+                        } else {
+                            ledger.commit(reservation);
+                        }
+                        reservedUnits.addAndGet(quantity);
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(" Incorrect:  Stress test did not finish in time");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println(" Incorrect:  Stress test was interrupted");
+            return;
+        }
 
+        int sold = reservedUnits.get() - releasedUnits.get();
+        if (flashSaleTv.getQuantity() >= 0 && sold + flashSaleTv.getQuantity() == stock) {
+            System.out.println(" Correct: No oversell under contention (" + sold + " of " + stock + " units sold by " + threads + " threads)");
+        } else {
+            System.out.println(" Incorrect:  Oversold or lost stock: sold " + sold + ", remaining " + flashSaleTv.getQuantity());
+        }
 
-Customer Operations Tests
-    Customer creation and balance management
-    Adding products to customer's cart
-    Balance deduction validation
+        if (ledger.getReservedQuantity(flashSaleTv) == 0) {
+            System.out.println(" Correct: All reservations were committed or released");
+        } else {
+            System.out.println(" Incorrect:  Reservations left open: " + ledger.getReservedQuantity(flashSaleTv));
+        }
+
+        try {
+            flashSaleTv.setQuantity(1);
+            flashSaleTv.reduceQuantity(2);
+            System.out.println(" Incorrect:  reduceQuantity allowed stock to go negative");
+        } catch (IllegalStateException e) {
+            System.out.println(" Correct: reduceQuantity rejects reducing below zero");
+        }
 
+        System.out.println();
+    }
 
-Checkout Process Tests
-    Successful checkout with multiple products
-    Checkout with insufficient balance
-    Checkout with expired products
-    Checkout with empty cart
+    private static void testAsyncReceiptSink() {
+        System.out.println("Testing Async Receipt Sink:");
 
+        Path file = null;
+        ReceiptSink originalSink = CheckoutService.getReceiptSink();
+        try {
+            file = Files.createTempFile("receipts", ".txt");
+            int checkouts = 200;
+            try (AsyncFileReceiptSink sink = new AsyncFileReceiptSink(file, 16)) {
+                CheckoutService.setReceiptSink(sink);
+                DigitalProduct scratchCard = new DigitalProduct("Mobile Scratch Card", 10.0, checkouts);
+                for (int i = 0; i < checkouts; i++) {
+                    Customer customer = new Customer("Receipt Tester " + i, 100.0);
+                    customer.addToCart(scratchCard, 1);
+                    CheckoutService.processCheckout(customer);
+                }
+            } finally {
+                CheckoutService.setReceiptSink(originalSink);
+            }
 
-Product Identification Tests
-    UUID-based equality testing
-    Business key comparison
-    Cart merging of identical products
+            long receipts = Files.readAllLines(file).stream()
+                    .filter(line -> line.equals("** Checkout receipt **"))
+                    .count();
+            if (receipts == checkouts) {
+                System.out.println(" Correct: All " + checkouts + " receipts were flushed to the file on close");
+            } else {
+                System.out.println(" Incorrect:  Expected " + checkouts + " receipts in the file, found " + receipts);
+            }
+
+            // Writers racing close: every receipt that write() accepted must reach the file
+            Files.write(file, new byte[0]);
+            AtomicLong accepted = new AtomicLong();
+            AsyncFileReceiptSink racing = new AsyncFileReceiptSink(file, 4);
+            ExecutorService writers = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                writers.execute(() -> {
+                    try {
+                        while (true) {
+                            racing.write("receipt\n");
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException closed) {
+                        // The sink was closed
+                    }
+                });
+            }
+            Thread.sleep(20);
+            racing.close();
+            writers.shutdown();
+            if (!writers.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.out.println(" Incorrect:  Writers did not stop after the sink was closed");
+            }
+            long written = Files.readAllLines(file).size();
+            if (written == accepted.get() && written > 0) {
+                System.out.println(" Correct: Every receipt accepted while closing was written (" + written + ")");
+            } else {
+                System.out.println(" Incorrect:  Accepted " + accepted.get() + " receipts but wrote " + written);
+            }
+
+            // A committed checkout stands even if its receipt cannot be handed over
+            long lostBefore = CheckoutService.getLostReceiptCount();
+            DigitalProduct lateCard = new DigitalProduct("Late Receipt Card", 10.0, 5);
+            Customer lateBuyer = new Customer("Late Receipt Buyer", 100.0);
+            lateBuyer.addToCart(lateCard, 1);
+            CheckoutService.setReceiptSink(racing); // Already closed
+            CheckoutResult late;
+            try {
+                late = CheckoutService.tryCheckout(lateBuyer);
+            } finally {
+                CheckoutService.setReceiptSink(originalSink);
+            }
+            if (late.isSuccess() && lateBuyer.getCart().isEmpty() && lateCard.getQuantity() == 4
+                    && CheckoutService.getLostReceiptCount() == lostBefore + 1) {
+                System.out.println(" Correct: A receipt sink failure does not fail a committed checkout");
+            } else {
+                System.out.println(" Incorrect:  Checkout with a closed sink returned " + late.getStatus()
+                        + ", cart empty " + lateBuyer.getCart().isEmpty());
+            }
+
+            Path full = Path.of("/dev/full"); // Every write fails with "no space left on device"
+            if (Files.isWritable(full)) {
+                AsyncFileReceiptSink failing = new AsyncFileReceiptSink(full, 4);
+                boolean refused = false;
+                for (int i = 0; i < 10_000 && !refused; i++) {
+                    try {
+                        failing.write("receipt\n");
+                    } catch (UncheckedIOException e) {
+                        refused = true;
+                    }
+                }
+                try {
+                    failing.close();
+                    System.out.println(" Incorrect:  Closing a failed sink reported no error");
+                } catch (UncheckedIOException e) {
+                    if (refused) {
+                        System.out.println(" Correct: A failed sink refuses receipts and reports the failure on close");
+                    } else {
+                        System.out.println(" Incorrect:  A failed sink kept accepting receipts");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println(" Incorrect:  Receipt sink test was interrupted");
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Incorrect:  Unexpected error during receipt sink test: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Best effort cleanup of a temp file
+                }
+            }
+        }
+
+        System.out.println();
+    }
+
+    private static void testBatchCheckout() {
+        System.out.println("Testing Batch Checkout:");
+
+        ElectronicsProduct tv = new ElectronicsProduct("Smart TV", 100.0, 10, 15.0);
+        GroceryProduct cheese = new GroceryProduct("Cheddar Cheese", 5.0, 5, 0.5, LocalDate.now().plusDays(30));
+        GroceryProduct expiredMilk = new GroceryProduct("Expired Milk", 3.0, 10, 0.5, LocalDate.now().minusDays(1));
+
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            // Together they want 8 cheeses but only 5 are in stock
+            Customer customer = new Customer("Batch Buyer " + i, 1_000.0);
+            customer.addToCart(tv, 1);
+            customer.addToCart(cheese, 2);
+            customers.add(customer);
+        }
+        Customer poorCustomer = new Customer("Batch Poor", 10.0);
+        poorCustomer.addToCart(tv, 1);
+        customers.add(poorCustomer);
+        Customer milkCustomer = new Customer("Batch Milk", 1_000.0);
+        milkCustomer.addToCart(expiredMilk, 1);
+        customers.add(milkCustomer);
+
+        ReceiptSink originalSink = CheckoutService.getReceiptSink();
+        BatchCheckoutResult result;
+        try {
+            CheckoutService.setReceiptSink(ReceiptSink.noOp());
+            result = CheckoutService.processCheckouts(customers);
+        } finally {
+            CheckoutService.setReceiptSink(originalSink);
+        }
+
+        if (result.getResults().size() == customers.size() && result.getSuccessCount() == 2 && result.getFailureCount() == 4) {
+            System.out.println(" Correct: Batch reported per-customer results without aborting (" + result + ")");
+        } else {
+            System.out.println(" Incorrect:  Unexpected batch result: " + result);
+        }
+
+        if (tv.getQuantity() == 8 && cheese.getQuantity() == 1 && expiredMilk.getQuantity() == 10) {
+            System.out.println(" Correct: Only successful carts reduced stock");
+        } else {
+            System.out.println(" Incorrect:  Stock after batch is wrong: TV " + tv.getQuantity() + ", cheese " + cheese.getQuantity());
+        }
+
+        BatchCheckoutResult.CustomerResult poorResult = result.getResults().get(4);
+        BatchCheckoutResult.CustomerResult milkResult = result.getResults().get(5);
+        if (!poorResult.isSuccess() && poorResult.getFailureReason().startsWith("Insufficient balance")
+                && !milkResult.isSuccess() && milkResult.getFailureReason().endsWith("is expired.")) {
+            System.out.println(" Correct: Failure reasons reported per customer");
+        } else {
+            System.out.println(" Incorrect:  Wrong failure reasons: " + poorResult.getFailureReason() + ", " + milkResult.getFailureReason());
+        }
+
+        // A batch that cannot be submitted must give its pooled stock back
+        ElectronicsProduct radio = new ElectronicsProduct("Batch Radio", 20.0, 10, 1.0);
+        Customer first = new Customer("Batch Radio Buyer 1", 1_000.0);
+        Customer second = new Customer("Batch Radio Buyer 2", 1_000.0);
+        first.addToCart(radio, 2);
+        second.addToCart(radio, 3);
+        ExecutorService stopped = Executors.newSingleThreadExecutor();
+        stopped.shutdown();
+        try {
+            CheckoutService.processCheckouts(List.of(first, second), stopped);
+            System.out.println(" Incorrect:  Batch was submitted to a stopped executor");
+        } catch (RejectedExecutionException e) {
+            if (radio.getQuantity() == 10) {
+                System.out.println(" Correct: Rejected batch releases its pooled stock");
+            } else {
+                System.out.println(" Incorrect:  Rejected batch kept " + (10 - radio.getQuantity()) + " units reserved");
+            }
+        }
+
+        System.out.println();
+    }
+
+    private static void testMoney() {
+        System.out.println("Testing Money:");
+
+        // Ten items at 0.10 add up to exactly 1.00 in cents, unlike with double
+        DigitalProduct voucher = new DigitalProduct("Voucher", 0.10, 100);
+        Cart cart = new Cart();
+        cart.addProduct(voucher, 10);
+        if (cart.getSubtotalCents() == 100 && voucher.getPriceCents() == 10) {
+            System.out.println(" Correct: Fixed-point subtotal is exact");
+        } else {
+            System.out.println(" Incorrect:  Fixed-point subtotal is " + cart.getSubtotalCents() + " cents");
+        }
+
+        if (Money.format(168250).equals("1682.50") && Money.format(160000).equals("1600")
+                && Money.format(5).equals("0.05") && Money.format(-105).equals("-1.05")) {
+            System.out.println(" Correct: Receipt amounts are formatted without truncation");
+        } else {
+            System.out.println(" Incorrect:  Wrong money formatting: " + Money.format(168250));
+        }
+
+        if (Money.ofUnits(999.99) == 99_999 && Money.ofUnits(0.005) == 1) {
+            System.out.println(" Correct: Amounts are rounded to the nearest cent");
+        } else {
+            System.out.println(" Incorrect:  Wrong rounding to cents");
+        }
+
+        System.out.println();
+    }
+
+    private static void testProductCatalog() {
+        System.out.println("Testing Product Catalog:");
+
+        ProductCatalog catalog = new ProductCatalog();
+        ElectronicsProduct tv = new ElectronicsProduct("Smart TV", 999.99, 5, 15.0);
+        ElectronicsProduct otherTv = new ElectronicsProduct("Smart TV", 899.99, 5, 15.0);
+        GroceryProduct cheese = new GroceryProduct("Cheddar Cheese", 5.99, 20, 0.5, LocalDate.now().plusDays(30));
+        DigitalProduct scratchCard = new DigitalProduct("Mobile Scratch Card", 10.0, 100);
+        catalog.add(tv);
+        catalog.add(otherTv);
+        catalog.add(cheese);
+        catalog.add(scratchCard);
+
+        if (catalog.findById(cheese.getId()) == cheese && catalog.findById(-1) == null) {
+            System.out.println(" Correct: Lookup by id works");
+        } else {
+            System.out.println(" Incorrect:  Lookup by id failed");
+        }
+
+        if (catalog.findByName("Smart TV").size() == 2 && catalog.findByNamePrefix("Smart", 10).size() == 2
+                && catalog.findByNamePrefix("Ch", 10).get(0) == cheese) {
+            System.out.println(" Correct: Exact and prefix name lookup works");
+        } else {
+            System.out.println(" Incorrect:  Name lookup failed");
+        }
+
+        catalog.rename(cheese, "Gouda Cheese");
+        if (catalog.findByName("Cheddar Cheese").isEmpty() && catalog.findByName("Gouda Cheese").get(0) == cheese) {
+            System.out.println(" Correct: Rename keeps the name index in sync");
+        } else {
+            System.out.println(" Incorrect:  Rename left the name index stale");
+        }
+
+        scratchCard.setName("Prepaid Card");
+        if (catalog.findByName("Mobile Scratch Card").isEmpty() && catalog.findByName("Prepaid Card").get(0) == scratchCard
+                && catalog.findByNamePrefix("Prepaid", 10).size() == 1) {
+            System.out.println(" Correct: Renaming a product directly keeps the name index in sync");
+        } else {
+            System.out.println(" Incorrect:  Product.setName left the name index stale");
+        }
+
+        if (catalog.getProducts(ProductCategory.ELECTRONICS).size() == 2 && catalog.getProducts(ProductCategory.DIGITAL).contains(scratchCard)
+                && catalog.remove(otherTv) && catalog.size() == 3 && catalog.findByName("Smart TV").size() == 1) {
+            System.out.println(" Correct: Category iteration and removal work");
+        } else {
+            System.out.println(" Incorrect:  Category index or removal failed");
+        }
+
+        // Each catalog follows the products it holds, and stops following a product once it is removed
+        ProductCatalog outlet = new ProductCatalog();
+        outlet.add(tv);
+        outlet.add(otherTv);
+        tv.setName("Smart TV Pro");
+        otherTv.setName("Refurbished TV");
+        if (catalog.findByName("Smart TV Pro").get(0) == tv && outlet.findByName("Smart TV Pro").get(0) == tv
+                && catalog.findByName("Refurbished TV").isEmpty() && outlet.findByName("Refurbished TV").get(0) == otherTv
+                && outlet.remove(tv) && catalog.findById(tv.getId()) == tv) {
+            System.out.println(" Correct: Catalogs sharing a product each keep their name index in sync");
+        } else {
+            System.out.println(" Incorrect:  Shared or removed products left a name index stale");
+        }
+
+        tv.setName("Smart TV Max");
+        if (outlet.findByNamePrefix("Smart", 10).isEmpty() && catalog.findByName("Smart TV Max").get(0) == tv
+                && catalog.findByName("Smart TV Pro").isEmpty()) {
+            System.out.println(" Correct: Renaming a removed product leaves the catalog it left untouched");
+        } else {
+            System.out.println(" Incorrect:  A catalog still follows a product it no longer holds");
+        }
+
+        System.out.println();
+    }
+
+    private static void testExpiryIndex() {
+        System.out.println("Testing Expiry Index:");
+
+        // A clock the test can move forward by hand
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        AtomicLong now = new AtomicLong(start.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+        Clock manualClock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now.get());
+            }
+        };
+        DayClock dayClock = new DayClock(manualClock);
+        ExpiryIndex index = new ExpiryIndex(dayClock);
+
+        GroceryProduct milk = new GroceryProduct("Milk", 3.99, 10, 1.0, start, dayClock);
+        GroceryProduct yogurt = new GroceryProduct("Yogurt", 1.99, 10, 0.2, start.plusDays(2), dayClock);
+        GroceryProduct cheese = new GroceryProduct("Cheese", 5.99, 10, 0.5, start.plusDays(30), dayClock);
+        index.register(milk);
+        index.register(yogurt);
+        index.register(cheese);
+
+        if (index.expiringWithin(2).size() == 2 && index.expiringWithin(0).get(0) == milk && !milk.isExpired()) {
+            System.out.println(" Correct: Products expiring in the next days are found without scanning");
+        } else {
+            System.out.println(" Incorrect:  Wrong products expiring soon: " + index.expiringWithin(2).size());
+        }
+
+        // Move to the day after tomorrow: milk has expired, yogurt is on its last good day
+        now.addAndGet(2L * 24 * 60 * 60 * 1000);
+        int flagged = index.advance();
+        if (flagged == 1 && milk.isExpired() && !yogurt.isExpired() && index.size() == 2) {
+            System.out.println(" Correct: Advancing the day flips expired products in bulk");
+        } else {
+            System.out.println(" Incorrect:  Advancing flagged " + flagged + " products");
+        }
+
+        if (dayClock.today().equals(start.plusDays(2))) {
+            System.out.println(" Correct: Day clock advances at the day boundary");
+        } else {
+            System.out.println(" Incorrect:  Day clock is on " + dayClock.today());
+        }
+
+        System.out.println();
+    }
+
+    private static void testColumnarInventory() {
+        System.out.println("Testing Columnar Inventory:");
+
+        ColumnarInventory inventory = new ColumnarInventory(1);
+        int tvRow = inventory.add(new ElectronicsProduct("Smart TV", 1000.0, 5, 15.0));
+        int cheeseRow = inventory.add(new GroceryProduct("Cheddar Cheese", 5.0, 20, 0.5, LocalDate.now().plusDays(30)));
+        int cardRow = inventory.add(new DigitalProduct("Mobile Scratch Card", 10.0, 100));
+
+        ColumnarInventory.Row tv = inventory.row(tvRow);
+        if (inventory.size() == 3 && tv.getName().equals("Smart TV") && tv.getPriceCents() == 100_000
+                && tv.getWeight() == 15.0 && inventory.row(cardRow).getCategory() == ProductCategory.DIGITAL) {
+            System.out.println(" Correct: Rows round-trip product attributes");
+        } else {
+            System.out.println(" Incorrect:  Row attributes differ from the product");
+        }
+
+        if (inventory.totalUnits() == 125 && inventory.stockValueCents() == 5 * 100_000 + 20 * 500 + 100 * 1_000) {
+            System.out.println(" Correct: Stock audit over columns");
+        } else {
+            System.out.println(" Incorrect:  Stock audit is wrong: " + inventory.totalUnits());
+        }
+
+        inventory.applyPriceChange(ProductCategory.ELECTRONICS, -1_500);
+        boolean reduced = inventory.row(cheeseRow).tryReduceQuantity(20) && !inventory.row(cheeseRow).tryReduceQuantity(1);
+        Product materialized = inventory.toProduct(tvRow);
+        if (tv.getPriceCents() == 85_000 && reduced && materialized instanceof ElectronicsProduct && materialized.getPrice() == 850.0) {
+            System.out.println(" Correct: Bulk repricing and flyweight stock updates work");
+        } else {
+            System.out.println(" Incorrect:  Bulk repricing or stock update failed");
+        }
+
+        ColumnarInventory luxury = new ColumnarInventory(2);
+        int cheapRow = luxury.add("Luxury Cable", 1_000, 10, 0.1, ColumnarInventory.NO_EXPIRATION, ProductCategory.ELECTRONICS);
+        luxury.add("Luxury Yacht", Long.MAX_VALUE / 5_000, 10_000, 90_000.0, ColumnarInventory.NO_EXPIRATION, ProductCategory.ELECTRONICS);
+        boolean repriceRefused = false;
+        boolean valueRefused = false;
+        try {
+            luxury.applyPriceChange(ProductCategory.ELECTRONICS, 1_000);
+        } catch (ArithmeticException e) {
+            repriceRefused = true;
+        }
+        try {
+            luxury.stockValueCents();
+        } catch (ArithmeticException e) {
+            valueRefused = true;
+        }
+        if (repriceRefused && valueRefused && luxury.row(cheapRow).getPriceCents() == 1_000) {
+            System.out.println(" Correct: Overflowing bulk arithmetic is refused without partial repricing");
+        } else {
+            System.out.println(" Incorrect:  Bulk arithmetic overflowed silently or repriced partially");
+        }
+
+        int rejected = 0;
+        long nextMonth = LocalDate.now().plusDays(30).toEpochDay();
+        Object[][] invalidRows = {
+                {0.5, ColumnarInventory.NO_EXPIRATION, ProductCategory.GROCERY},
+                {0.0, nextMonth, ProductCategory.GROCERY},
+                {0.0, ColumnarInventory.NO_EXPIRATION, ProductCategory.ELECTRONICS},
+                {15.0, nextMonth, ProductCategory.ELECTRONICS},
+                {1.0, ColumnarInventory.NO_EXPIRATION, ProductCategory.DIGITAL}};
+        for (Object[] invalid : invalidRows) {
+            try {
+                inventory.add("Invalid Row", 100, 1, (double) invalid[0], (long) invalid[1], (ProductCategory) invalid[2]);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        int groceryRow = inventory.add("Raw Milk", 150, 10, 1.0, nextMonth, ProductCategory.GROCERY);
+        if (rejected == invalidRows.length && inventory.size() == 4 && inventory.toProduct(groceryRow) instanceof GroceryProduct) {
+            System.out.println(" Correct: Raw rows are validated against their category");
+        } else {
+            System.out.println(" Incorrect:  Only " + rejected + " of " + invalidRows.length + " invalid rows were rejected");
+        }
+
+        System.out.println();
+    }
+
+    private static void testInventorySnapshot() {
+        System.out.println("Testing Inventory Snapshot:");
+
+        GroceryProduct cheese = new GroceryProduct("Fromage Râpé", 5.99, 20, 0.5, LocalDate.now().plusDays(30));
+        ElectronicsProduct tv = new ElectronicsProduct("Smart TV", 999.99, 5, 15.0);
+        DigitalProduct scratchCard = new DigitalProduct("Mobile Scratch Card", 10.0, 100);
+        List<Product> products = List.of(cheese, tv, scratchCard);
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("inventory", ".snapshot");
+            InventorySnapshot.write(file, products);
+            InventorySnapshot snapshot = InventorySnapshot.open(file);
+
+            boolean sameProducts = snapshot.size() == products.size();
+            for (int i = 0; sameProducts && i < products.size(); i++) {
+                Product original = products.get(i);
+                Product restored = snapshot.get(i);
+                sameProducts = restored.equals(original) && restored.getClass() == original.getClass()
+                        && restored.getName().equals(original.getName()) && restored.getPriceCents() == original.getPriceCents()
+                        && restored.getQuantity() == original.getQuantity() && snapshot.getQuantity(i) == original.getQuantity();
+            }
+            if (sameProducts) {
+                System.out.println(" Correct: Snapshot round-trips ids, names, prices and stock of all product types");
+            } else {
+                System.out.println(" Incorrect:  Restored products differ from the originals");
+            }
+
+            GroceryProduct restoredCheese = (GroceryProduct) snapshot.get(0);
+            ElectronicsProduct restoredTv = (ElectronicsProduct) snapshot.get(1);
+            if (restoredCheese.getWeight() == 0.5 && restoredCheese.getExpirationDate().equals(cheese.getExpirationDate())
+                    && !restoredCheese.isExpired() && restoredTv.getWeight() == 15.0) {
+                System.out.println(" Correct: Shippable and Expirable attributes survive the snapshot");
+            } else {
+                System.out.println(" Incorrect:  Weight or expiration date was lost");
+            }
+
+            // Rewriting replaces the file in one step; the header counts the products that were actually written
+            Collection<Product> shrinking = new AbstractCollection<>() {
+                @Override
+                public Iterator<Product> iterator() {
+                    return List.<Product>of(tv, scratchCard).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return products.size(); // Stale, as a concurrently changing catalog may report
+                }
+            };
+            InventorySnapshot.write(file, shrinking);
+            InventorySnapshot rewritten = InventorySnapshot.open(file);
+            long leftovers;
+            try (Stream<Path> siblings = Files.list(file.getParent())) {
+                Path written = file;
+                leftovers = siblings.filter(sibling -> sibling.getFileName().toString()
+                        .startsWith(written.getFileName().toString()) && !sibling.equals(written)).count();
+            }
+            if (rewritten.size() == 2 && rewritten.get(1).equals(scratchCard) && leftovers == 0) {
+                System.out.println(" Correct: Rewriting a snapshot replaces it whole and counts the saved products");
+            } else {
+                System.out.println(" Incorrect:  Rewritten snapshot has " + rewritten.size() + " products, "
+                        + leftovers + " temporary files left");
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Incorrect:  Unexpected error during snapshot test: " + e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Best effort cleanup of a temp file
+                }
+            }
+        }
+
+        System.out.println();
+    }
+
+    private static void testCheckoutJournal() {
+        System.out.println("Testing Checkout Journal:");
+
+        ElectronicsProduct tv = new ElectronicsProduct("Smart TV", 999.99, 5, 15.0);
+        DigitalProduct scratchCard = new DigitalProduct("Mobile Scratch Card", 10.0, 100);
+        List<Product> products = List.of(tv, scratchCard);
+
+        Path snapshotFile = null;
+        Path journalFile = null;
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        try {
+            snapshotFile = Files.createTempFile("inventory", ".snapshot");
+            journalFile = Files.createTempFile("checkout", ".journal");
+            InventorySnapshot.write(snapshotFile, products);
+
+            // Run checkouts with the journal attached, then "crash" and recover from snapshot + journal
+            Customer customer = new Customer("Journal Jane", 3000.0);
+            CheckoutService.setReceiptSink(ReceiptSink.noOp());
+            try (CheckoutJournal journal = new CheckoutJournal(journalFile, true)) {
+                CheckoutService.setJournal(journal);
+                customer.getCart().addProduct(tv, 2);
+                customer.getCart().addProduct(scratchCard, 3);
+                CheckoutService.processCheckout(customer);
+                tv.increaseQuantity(4);
+                journal.logStockChange(tv, 4);
+                customer.addBalanceCents(5_000);
+                journal.logBalanceChange(customer, 5_000);
+            } finally {
+                CheckoutService.setJournal(null);
+            }
+            // A torn record from a crash in the middle of a write must be ignored
+            Files.write(journalFile, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+            ProductCatalog recovered = new ProductCatalog();
+            InventorySnapshot.open(snapshotFile).loadInto(recovered);
+            Customer recoveredCustomer = new Customer(customer.getId(), "Journal Jane", 3000.0);
+            Customer namesake = new Customer("Journal Jane", 3000.0); // Same name, another account
+            int replayed = CheckoutJournal.replay(journalFile, recovered,
+                    id -> id == recoveredCustomer.getId() ? recoveredCustomer : id == namesake.getId() ? namesake : null);
+
+            if (replayed == 3 && recovered.findById(tv.getId()).getQuantity() == tv.getQuantity()
+                    && recovered.findById(scratchCard.getId()).getQuantity() == scratchCard.getQuantity()
+                    && recoveredCustomer.getBalanceCents() == customer.getBalanceCents()
+                    && namesake.getBalanceCents() == 300_000) {
+                System.out.println(" Correct: Replaying the journal onto the snapshot restores stock and balance");
+            } else {
+                System.out.println(" Incorrect:  Recovered state differs, replayed " + replayed + " records");
+            }
+
+            // A journal that debits more than the restored balance does not belong to it
+            ProductCatalog mismatched = new ProductCatalog();
+            InventorySnapshot.open(snapshotFile).loadInto(mismatched);
+            Customer poorer = new Customer(customer.getId(), "Journal Jane", 10.0);
+            try {
+                CheckoutJournal.replay(journalFile, mismatched, id -> id == poorer.getId() ? poorer : null);
+                System.out.println(" Incorrect:  Diverging journal was replayed silently");
+            } catch (IOException e) {
+                System.out.println(" Correct: Replay fails when a debit cannot be applied");
+            }
+
+            // Nor does one that takes more stock than the snapshot restored
+            ProductCatalog lowStock = new ProductCatalog();
+            InventorySnapshot.open(snapshotFile).loadInto(lowStock);
+            lowStock.findById(tv.getId()).tryReduceQuantity(4);
+            Customer richer = new Customer(customer.getId(), "Journal Jane", 3000.0);
+            try {
+                CheckoutJournal.replay(journalFile, lowStock, id -> id == richer.getId() ? richer : null);
+                System.out.println(" Incorrect:  Journal taking missing stock was replayed silently");
+            } catch (IOException e) {
+                System.out.println(" Correct: Replay fails when a stock reduction cannot be applied");
+            }
+
+            // After a failed write the journal refuses appends, so nothing lands behind a half-written record
+            Path full = Path.of("/dev/full");
+            if (Files.isWritable(full)) {
+                try (CheckoutJournal failing = new CheckoutJournal(full, false)) {
+                    String first = null;
+                    String second = null;
+                    try {
+                        failing.logStockChange(tv, 1);
+                    } catch (IOException e) {
+                        first = e.getMessage();
+                    }
+                    try {
+                        failing.logStockChange(tv, 1);
+                    } catch (IOException e) {
+                        second = e.getMessage();
+                    }
+                    if (first != null && "Journal flush failed.".equals(second)) {
+                        System.out.println(" Correct: A journal that failed to write refuses further appends");
+                    } else {
+                        System.out.println(" Incorrect:  Journal kept appending after a failed write: " + second);
+                    }
+                } catch (IOException closeFailure) {
+                    // Closing a journal that failed reports the failure again
+                }
+            }
+
+            // A checkout that cannot be journaled must not change anything
+            CheckoutJournal closedJournal = new CheckoutJournal(journalFile, false);
+            closedJournal.close();
+            CheckoutService.setJournal(closedJournal);
+            try {
+                customer.getCart().addProduct(scratchCard, 1);
+                long balanceBefore = customer.getBalanceCents();
+                int stockBefore = scratchCard.getQuantity();
+                try {
+                    CheckoutService.processCheckout(customer);
+                    System.out.println(" Incorrect:  Checkout succeeded without a journal record");
+                } catch (IllegalStateException e) {
+                    if (customer.getBalanceCents() == balanceBefore && scratchCard.getQuantity() == stockBefore) {
+                        System.out.println(" Correct: Checkout fails and rolls back when the journal cannot record it");
+                    } else {
+                        System.out.println(" Incorrect:  Failed journaling left balance or stock changed");
+                    }
+                }
+            } finally {
+                CheckoutService.setJournal(null);
+            }
+
+            // An unexpected journal error must release the held balance too
+            try (CheckoutJournal journal = new CheckoutJournal(journalFile, false) {
+                @Override
+                public void logCheckout(Customer customer, long debitCents, Collection<CartItem> items) {
+                    throw new IllegalArgumentException("Record cannot be encoded.");
+                }
+            }) {
+                CheckoutService.setJournal(journal);
+                Customer unrecordable = new Customer("Journal Unrecordable", 100.0);
+                unrecordable.addToCart(scratchCard, 1);
+                int stockBefore = scratchCard.getQuantity();
+                try {
+                    CheckoutService.tryCheckout(unrecordable);
+                    System.out.println(" Incorrect:  Unrecordable checkout succeeded");
+                } catch (IllegalArgumentException e) {
+                    if (unrecordable.getLedger().getHeldCents() == 0 && unrecordable.getBalanceCents() == 10_000
+                            && scratchCard.getQuantity() == stockBefore) {
+                        System.out.println(" Correct: Unexpected journal errors release the hold and the stock");
+                    } else {
+                        System.out.println(" Incorrect:  Journal error left " + unrecordable.getLedger().getHeldCents() + " cents held");
+                    }
+                }
+            } finally {
+                CheckoutService.setJournal(null);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Incorrect:  Unexpected error during journal test: " + e);
+        } finally {
+            CheckoutService.setReceiptSink(previousSink);
+            for (Path file : new Path[]{snapshotFile, journalFile}) {
+                if (file != null) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Best effort cleanup of a temp file
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+    }
+
+    private static void testProductIdGenerator() {
+        System.out.println("Testing Product Id Generator:");
+
+        // Products created concurrently get unique ids that increase within each thread
+        int threads = 4;
+        int perThread = 5_000;
+        long[][] ids = new long[threads][perThread];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long[] threadIds = ids[t];
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        threadIds[i] = new DigitalProduct("Id Card " + i, 1.0, 1).getId();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            Set<Long> unique = new HashSet<>();
+            boolean increasing = true;
+            for (long[] threadIds : ids) {
+                for (int i = 0; i < perThread; i++) {
+                    unique.add(threadIds[i]);
+                    increasing &= i == 0 || threadIds[i] > threadIds[i - 1];
+                }
+            }
+            if (unique.size() == threads * perThread && increasing) {
+                System.out.println(" Correct: Concurrently created products get unique, per-thread increasing ids");
+            } else {
+                System.out.println(" Incorrect:  Duplicate or out of order ids were generated");
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during id generation test: " + e);
+        } finally {
+            executor.shutdown();
+        }
+
+        // The id strategy can be replaced
+        ProductIdGenerator previous = Product.getIdGenerator();
+        AtomicLong next = new AtomicLong(42);
+        Product.setIdGenerator(next::getAndIncrement);
+        try {
+            Product first = new DigitalProduct("Gift Card", 25.0, 10);
+            Product second = new DigitalProduct("Gift Card", 25.0, 10);
+            if (first.getId() == 42 && second.getId() == 43 && first.getIdString().equals("42") && !first.equals(second)) {
+                System.out.println(" Correct: A custom id generator assigns the ids of new products");
+            } else {
+                System.out.println(" Incorrect:  Custom id generator was not used");
+            }
+        } finally {
+            Product.setIdGenerator(previous);
+        }
+
+        System.out.println();
+    }
+
+    private static void testCatalogImporter() {
+        System.out.println("Testing Catalog Importer:");
+
+        String expiration = LocalDate.now().plusDays(30).toString();
+        StringBuilder csv = new StringBuilder("category,name,price,quantity,weight,expirationDate\n");
+        for (int i = 0; i < 200; i++) {
+            csv.append("GROCERY,Cheese ").append(i).append(",5.99,20,0.5,").append(expiration).append('\n');
+            csv.append("ELECTRONICS,\"TV, \"\"Smart\"\" ").append(i).append("\",999.99,5,15\r\n");
+            csv.append("DIGITAL,Scratch Card ").append(i).append(",10,100,,\n");
+        }
+        csv.append("GROCERY,Bad Price,abc,1,0.5,").append(expiration).append('\n'); // line 602
+        csv.append("ELECTRONICS,No Weight,10,1\n"); // line 603
+        csv.append("DIGITAL,Negative Stock,10,-1\n"); // line 604
+        csv.append("TOYS,Unknown Category,10,1\n"); // line 605
+        csv.append("DIGITAL,Last Card,1.5,3"); // No trailing line feed
+
+        String jsonLines = "{\"category\":\"grocery\",\"name\":\"Fromage R\\u00e2p\\u00e9\",\"price\":5.99,"
+                + "\"quantity\":20,\"weight\":0.5,\"expirationDate\":\"" + expiration + "\"}\n"
+                + "{\"category\": \"DIGITAL\", \"name\": \"Gift Card\", \"price\": 25, \"quantity\": 10, \"weight\": null}\n"
+                + "{\"category\":\"DIGITAL\",\"name\":\"Broken\"\n";
+
+        Path csvFile = null;
+        Path jsonFile = null;
+        try {
+            csvFile = Files.createTempFile("feed", ".csv");
+            jsonFile = Files.createTempFile("feed", ".jsonl");
+            Files.writeString(csvFile, csv);
+            Files.writeString(jsonFile, jsonLines);
+
+            // Tiny chunks so that many lines cross a chunk boundary
+            CatalogImporter importer = new CatalogImporter(4, 97, 10);
+            ProductCatalog catalog = new ProductCatalog();
+            ImportResult result = importer.importInto(csvFile, catalog);
+            List<Long> errorLines = new ArrayList<>();
+            for (ImportResult.RowError error : result.getErrors()) {
+                errorLines.add(error.getLine());
+            }
+            if (result.getImportedCount() == 601 && catalog.size() == 601 && result.getFailedCount() == 4
+                    && errorLines.equals(List.of(602L, 603L, 604L, 605L))) {
+                System.out.println(" Correct: CSV feed imported in parallel chunks with per-row errors and line numbers");
+            } else {
+                System.out.println(" Incorrect:  Unexpected CSV import result " + result + " " + result.getErrors());
+            }
+
+            List<Product> tvs = catalog.findByName("TV, \"Smart\" 7");
+            Product tv = tvs.isEmpty() ? null : tvs.get(0);
+            if (tv instanceof ElectronicsProduct && tv.getPriceCents() == 99_999 && ((ElectronicsProduct) tv).getWeight() == 15.0
+                    && catalog.getProducts(ProductCategory.GROCERY).size() == 200
+                    && catalog.findByName("Last Card").size() == 1) {
+                System.out.println(" Correct: Quoted names, CRLF line ends and a missing final line feed are handled");
+            } else {
+                System.out.println(" Incorrect:  Imported product attributes are wrong");
+            }
+
+            ProductCatalog jsonCatalog = new ProductCatalog();
+            ImportResult jsonResult = importer.importInto(jsonFile, jsonCatalog);
+            List<Product> cheese = jsonCatalog.findByName("Fromage Râpé");
+            if (jsonResult.getImportedCount() == 2 && jsonResult.getFailedCount() == 1
+                    && jsonResult.getErrors().get(0).getLine() == 3
+                    && cheese.size() == 1 && cheese.get(0) instanceof GroceryProduct) {
+                System.out.println(" Correct: JSON lines feed imported with escapes, nulls and a malformed row");
+            } else {
+                System.out.println(" Incorrect:  Unexpected JSON lines import result " + jsonResult + " " + jsonResult.getErrors());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println(" Incorrect:  Unexpected error during import test: " + e);
+        } finally {
+            for (Path file : new Path[]{csvFile, jsonFile}) {
+                if (file != null) {
+                    try {
+                        Files.deleteIfExists(file);
+                    } catch (IOException ignored) {
+                        // Best effort cleanup of a temp file
+                    }
+                }
+            }
+        }
+
+        System.out.println();
+    }
+
+    private static void testCartRepricing() {
+        System.out.println("Testing Cart Repricing:");
+
+        CartRepricer repricer = CartRepricer.shared();
+        ElectronicsProduct headphones = new ElectronicsProduct("Headphones", 10.0, 50, 0.3);
+        DigitalProduct giftCard = new DigitalProduct("Gift Card", 5.0, 50);
+        DigitalProduct otherGiftCard = new DigitalProduct("Gift Card", 7.0, 50);
+
+        List<BusinessKey> oldKeys = new ArrayList<>();
+        ProductChangeListener listener = (product, oldKey) -> {
+            if (product == headphones) {
+                oldKeys.add(oldKey);
+            }
+        };
+        Product.addChangeListener(listener);
+        Cart cart = new Cart();
+        try {
+            cart.addProduct(headphones, 2);
+            cart.addProduct(giftCard, 1);
+            cart.addProduct(otherGiftCard, 1);
+
+            headphones.setPrice(12.0);
+            boolean notified = oldKeys.size() == 1 && oldKeys.get(0).getPriceCents() == 1_000;
+            cart.updateQuantity(headphones, 3); // Found under the new business key
+            if (notified && cart.getSubtotalCents() == 3 * 1_200 + 500 + 700) {
+                System.out.println(" Correct: Price change notifies listeners and reprices the cart holding the product");
+            } else {
+                System.out.println(" Incorrect:  Cart was not repriced after a price change");
+            }
+
+            otherGiftCard.setPrice(5.0); // Now identical to the first gift card
+            if (cart.size() == 2 && cart.getSubtotalCents() == 3 * 1_200 + 2 * 500 && cart.getTotalQuantity() == 5) {
+                System.out.println(" Correct: Repriced line merges with an identical line");
+            } else {
+                System.out.println(" Incorrect:  Lines were not merged after repricing");
+            }
+
+            headphones.setName("Wireless Headphones");
+            if (cart.removeProduct(headphones) && cart.size() == 1 && cart.getShippableWeight() == 0) {
+                System.out.println(" Correct: Renamed product is re-keyed in the cart");
+            } else {
+                System.out.println(" Incorrect:  Renamed product could not be found in the cart");
+            }
+
+            boolean trackedWhileOpen = repricer.isTracked(giftCard) && !repricer.isTracked(headphones);
+            cart.clear();
+            if (trackedWhileOpen && !repricer.isTracked(giftCard) && !repricer.isTracked(otherGiftCard)) {
+                System.out.println(" Correct: Reverse index only holds products of open cart lines");
+            } else {
+                System.out.println(" Incorrect:  Reverse index is out of sync with the carts");
+            }
+
+            DigitalProduct abandonedVoucher = new DigitalProduct("Abandoned Voucher", 3.0, 50);
+            new Cart().addProduct(abandonedVoucher, 1); // A session that is dropped without clearing its cart
+            boolean collected = false;
+            for (int attempt = 0; attempt < 50 && !collected; attempt++) {
+                System.gc();
+                Thread.sleep(10);
+                collected = !repricer.isTracked(abandonedVoucher);
+            }
+            if (collected) {
+                System.out.println(" Correct: Abandoned carts are collected and leave the reverse index");
+            } else {
+                System.out.println(" Incorrect:  Reverse index keeps an abandoned cart alive");
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during repricing test: " + e);
+        } finally {
+            Product.removeChangeListener(listener);
+        }
+
+        // Concurrent renames and repricings must report a chain of keys that each replaced the previous one
+        DigitalProduct contested = new DigitalProduct("Contested Voucher", 1.0, 10);
+        List<BusinessKey[]> changes = Collections.synchronizedList(new ArrayList<>());
+        ProductChangeListener chain = (product, oldKey) -> {
+            if (product == contested) {
+                changes.add(new BusinessKey[]{oldKey, product.getBusinessKey()});
+            }
+        };
+        BusinessKey initialKey = contested.getBusinessKey();
+        Product.addChangeListener(chain);
+        try {
+            Thread renamer = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    contested.setName("Contested Voucher " + i);
+                }
+            });
+            Thread pricer = new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    contested.setPriceCents(200 + i);
+                }
+            });
+            renamer.start();
+            pricer.start();
+            renamer.join();
+            pricer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            Product.removeChangeListener(chain);
+        }
+        boolean chained = changes.size() == 4_000 && changes.get(0)[0].equals(initialKey);
+        for (int i = 1; chained && i < changes.size(); i++) {
+            chained = changes.get(i)[0].equals(changes.get(i - 1)[1]);
+        }
+        BusinessKey finalKey = contested.getBusinessKey();
+        if (chained && finalKey.equals(changes.get(changes.size() - 1)[1])
+                && finalKey.getName().equals(contested.getName()) && finalKey.getPriceCents() == contested.getPriceCents()) {
+            System.out.println(" Correct: Concurrent name and price changes are reported as one chain of keys");
+        } else {
+            System.out.println(" Incorrect:  Concurrent changes reported keys that were never replaced");
+        }
+
+        System.out.println();
+    }
+
+    private static void testConcurrentCart() {
+        System.out.println("Testing Concurrent Cart:");
+
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int operationsPerThread = 20_000;
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            products.add(new ElectronicsProduct("Shared Item " + i, 1.0 + i, Integer.MAX_VALUE / 2, 0.25 * (i + 1)));
+        }
+        Cart cart = new Cart();
+        AtomicInteger inconsistentSnapshots = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Phase 1: sessions only add, so every unit must be counted exactly once
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int threadIndex = t;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        cart.addProduct(products.get((i + threadIndex) % products.size()), 1);
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(" Incorrect:  Concurrent adds did not finish in time");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println(" Incorrect:  Concurrent cart test was interrupted");
+            return;
+        }
+        if (cart.size() == products.size() && cart.getTotalQuantity() == threads * operationsPerThread
+                && cartTotalsMatchLines(cart)) {
+            System.out.println(" Correct: No lost updates from " + threads + " concurrent sessions adding to one cart");
+        } else {
+            System.out.println(" Incorrect:  Lost updates: " + cart.getTotalQuantity() + " of " + threads * operationsPerThread + " units");
+        }
+
+        // Phase 2: sessions add, update and remove lines while snapshots are taken
+        CountDownLatch mixedStart = new CountDownLatch(1);
+        ExecutorService mixed = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                final int threadIndex = t;
+                mixed.execute(() -> {
+                    try {
+                        mixedStart.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < operationsPerThread; i++) {
+                        Product product = products.get((i * 7 + threadIndex) % products.size());
+                        try {
+                            switch (i % 4) {
+                                case 0:
+                                    cart.removeProduct(product);
+                                    break;
+                                case 1:
+                                    cart.updateQuantity(product, 1 + i % 5);
+                                    break;
+                                case 2:
+                                    CartSnapshot snapshot = cart.snapshot();
+                                    long subtotal = 0;
+                                    int quantity = 0;
+                                    for (CartItem item : snapshot.getItems()) {
+                                        subtotal += item.getSubtotalCents();
+                                        quantity += item.getQuantity();
+                                    }
+                                    if (subtotal != snapshot.getSubtotalCents() || quantity != snapshot.getTotalQuantity()) {
+                                        inconsistentSnapshots.incrementAndGet();
+                                    }
+                                    break;
+                                default:
+                                    cart.addProduct(product, 2);
+                            }
+                        } catch (IllegalArgumentException e) {
+                            // Line was removed by another session
+                        }
+                    }
+                });
+            }
+            mixedStart.countDown();
+            mixed.shutdown();
+            if (!mixed.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(" Incorrect:  Concurrent cart operations did not finish in time");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println(" Incorrect:  Concurrent cart test was interrupted");
+            return;
+        }
+        if (inconsistentSnapshots.get() == 0 && cartTotalsMatchLines(cart)) {
+            System.out.println(" Correct: Snapshots and running totals stay consistent under concurrent changes");
+        } else {
+            System.out.println(" Incorrect:  " + inconsistentSnapshots.get() + " inconsistent snapshots, totals match lines: "
+                    + cartTotalsMatchLines(cart));
+        }
+
+        // Units added after a checkout took its snapshot stay in the cart
+        cart.clear();
+        Product first = products.get(0);
+        Product second = products.get(1);
+        cart.addProduct(first, 2);
+        cart.addProduct(second, 1);
+        CartSnapshot checkedOut = cart.snapshot();
+        cart.addProduct(first, 3);
+        cart.removeSnapshot(checkedOut);
+        if (cart.size() == 1 && cart.getTotalQuantity() == 3 && cart.getItems().get(0).getProduct() == first
+                && cart.getSubtotalCents() == 3 * first.getPriceCents()) {
+            System.out.println(" Correct: Removing a snapshot keeps what was added after it");
+        } else {
+            System.out.println(" Incorrect:  Removing a snapshot left " + cart.getTotalQuantity() + " units");
+        }
+        cart.clear();
+
+        System.out.println();
+    }
+
+
+    private static void testBalanceLedger() {
+        System.out.println("Testing Balance Ledger:");
+
+        long opening = 10_000;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        int debitsPerThread = 5_000;
+        BalanceLedger shared = new BalanceLedger(opening, 0);
+        AtomicLong debited = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < debitsPerThread; i++) {
+                        long amount = 1 + i % 3;
+                        if (shared.tryDebit(amount)) {
+                            debited.addAndGet(amount);
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.out.println(" Incorrect:  Concurrent debits did not finish in time");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println(" Incorrect:  Balance ledger test was interrupted");
+            return;
+        }
+        long remaining = shared.getAvailableCents();
+        if (remaining >= 0 && remaining < 3 && debited.get() + remaining == opening) {
+            System.out.println(" Correct: No overdraft under contention (" + debited.get() + " of " + opening + " cents debited by " + threads + " threads)");
+        } else {
+            System.out.println(" Incorrect:  Overdrawn or lost balance: debited " + debited.get() + ", remaining " + remaining);
+        }
+
+        BalanceLedger ledger = new BalanceLedger(1_000, 16);
+        BalanceLedger.Hold released = ledger.hold(600);
+        BalanceLedger.Hold refused = ledger.hold(600);
+        ledger.releaseHold(released);
+        BalanceLedger.Hold captured = ledger.hold(700);
+        boolean heldWhileOpen = ledger.getHeldCents() == 700 && ledger.getAvailableCents() == 300;
+        ledger.capture(captured);
+        if (refused == null && heldWhileOpen && ledger.getHeldCents() == 0 && ledger.getAvailableCents() == 300) {
+            System.out.println(" Correct: Holds reserve balance until they are captured or released");
+        } else {
+            System.out.println(" Incorrect:  Hold bookkeeping is wrong, available " + ledger.getAvailableCents());
+        }
+
+        try {
+            ledger.releaseHold(captured);
+            System.out.println(" Incorrect:  A captured hold was released");
+        } catch (IllegalStateException e) {
+            System.out.println(" Correct: A hold can be completed only once");
+        }
+
+        ledger.credit(200);
+        List<BalanceLedger.MovementType> types = new ArrayList<>();
+        for (BalanceLedger.Movement movement : ledger.getRecentMovements()) {
+            types.add(movement.getType());
+        }
+        List<BalanceLedger.Movement> trail = ledger.getRecentMovements();
+        if (types.equals(List.of(BalanceLedger.MovementType.CREDIT, BalanceLedger.MovementType.HOLD,
+                BalanceLedger.MovementType.RELEASE, BalanceLedger.MovementType.HOLD,
+                BalanceLedger.MovementType.CAPTURE, BalanceLedger.MovementType.CREDIT))
+                && trail.get(trail.size() - 1).getBalanceAfterCents() == 500 && ledger.getEvictedMovementCount() == 0) {
+            System.out.println(" Correct: Recent movements are recorded in order");
+        } else {
+            System.out.println(" Incorrect:  Unexpected recent movements: " + trail);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            ledger.tryDebit(1);
+        }
+        List<BalanceLedger.Movement> recent = ledger.getRecentMovements();
+        if (recent.size() == 16 && ledger.getEvictedMovementCount() == 10
+                && recent.get(15).getBalanceAfterCents() == 480 && recent.get(0).getType() == BalanceLedger.MovementType.DEBIT) {
+            System.out.println(" Correct: Overwritten movements are counted as evicted");
+        } else {
+            System.out.println(" Incorrect:  Eviction bookkeeping is wrong: kept " + recent.size()
+                    + ", evicted " + ledger.getEvictedMovementCount());
+        }
+
+        // Holds must not use up ring slots: the ring keeps exactly its capacity of the most recent movements
+        BalanceLedger holding = new BalanceLedger(1_000, 8);
+        for (int i = 0; i < 4; i++) {
+            holding.capture(holding.hold(10));
+        }
+        List<BalanceLedger.Movement> kept = holding.getRecentMovements();
+        if (kept.size() == 8 && kept.get(7).getSequence() - kept.get(0).getSequence() == 7
+                && holding.getEvictedMovementCount() == 1 && kept.get(0).getType() == BalanceLedger.MovementType.HOLD
+                && kept.get(7).getHoldId() == 4) {
+            System.out.println(" Correct: Holds and movements are numbered separately");
+        } else {
+            System.out.println(" Incorrect:  Ring lost movements to hold ids: " + kept);
+        }
+
+        System.out.println();
+    }
+
+    private static void testCheckoutMetrics() {
+        System.out.println("Testing Checkout Metrics:");
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+        LatencyHistogram.Snapshot latency = histogram.snapshot();
+        long median = latency.getValueAtPercentile(50);
+        long p99 = latency.getValueAtPercentile(99);
+        if (latency.getCount() == 100_000 && Math.abs(median - 50_000_000) <= 500_000
+                && Math.abs(p99 - 99_000_000) <= 990_000 && latency.getMaxNanos() == 100_000_000) {
+            System.out.println(" Correct: Histogram percentiles are within 1% of the exact values");
+        } else {
+            System.out.println(" Incorrect:  Histogram percentiles are off: p50 " + median + ", p99 " + p99);
+        }
+
+        CheckoutMetrics metrics = new CheckoutMetrics();
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        CheckoutService.setMetrics(metrics);
+        try {
+            ElectronicsProduct speaker = new ElectronicsProduct("Metrics Speaker", 40.0, 10, 1.0);
+            GroceryProduct oldMilk = new GroceryProduct("Metrics Milk", 1.0, 10, 1.0, LocalDate.now().minusDays(1));
+            Customer buyer = new Customer("Metrics Buyer", 100.0);
+            Customer poorBuyer = new Customer("Metrics Poor Buyer", 10.0);
+            Customer unluckyBuyer = new Customer("Metrics Unlucky Buyer", 100.0);
+            buyer.addToCart(speaker, 2);
+            poorBuyer.addToCart(speaker, 1);
+            unluckyBuyer.addToCart(oldMilk, 1);
+            CheckoutService.processCheckout(buyer);
+            for (Customer customer : List.of(poorBuyer, unluckyBuyer, new Customer("Metrics Idle Buyer", 1.0))) {
+                try {
+                    CheckoutService.processCheckout(customer);
+                } catch (IllegalStateException e) {
+                    // Counted by the metrics
+                }
+            }
+
+            CheckoutMetrics.Snapshot snapshot = metrics.snapshot();
+            if (snapshot.getCount(CheckoutStatus.SUCCESS) == 1 && snapshot.getCount(CheckoutStatus.INSUFFICIENT_BALANCE) == 1
+                    && snapshot.getCount(CheckoutStatus.EXPIRED) == 1 && snapshot.getCount(CheckoutStatus.EMPTY_CART) == 1
+                    && snapshot.getCount(CheckoutStatus.OUT_OF_STOCK) == 0) {
+                System.out.println(" Correct: Checkout outcomes are counted by reason");
+            } else {
+                System.out.println(" Incorrect:  Unexpected outcome counts:\n" + snapshot.export());
+            }
+
+            // The successful checkout and the insufficient balance got as far as the payment; all four were timed in total
+            if (snapshot.getLatency(CheckoutStage.VALIDATION).getCount() == 2 && snapshot.getLatency(CheckoutStage.PAYMENT).getCount() == 1
+                    && snapshot.getLatency(CheckoutStage.TOTAL).getCount() == 4 && snapshot.getLatency(CheckoutStage.JOURNAL).getCount() == 0
+                    && snapshot.export().contains("checkout_outcomes_total{status=\"expired\"} 1")) {
+                System.out.println(" Correct: Stage latencies are recorded and exported");
+            } else {
+                System.out.println(" Incorrect:  Unexpected stage latencies:\n" + snapshot.export());
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during metrics test: " + e);
+        } finally {
+            CheckoutService.setMetrics(null);
+            CheckoutService.setReceiptSink(previousSink);
+        }
+
+        System.out.println();
+    }
+
+    private static void testCheckoutResult() {
+        System.out.println("Testing Checkout Result:");
+
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        try {
+            ElectronicsProduct console = new ElectronicsProduct("Result Console", 300.0, 1, 2.0);
+            DigitalProduct game = new DigitalProduct("Result Game", 50.0, 10);
+            Customer first = new Customer("Result First Buyer", 1_000.0);
+            Customer second = new Customer("Result Second Buyer", 1_000.0);
+            first.addToCart(console, 1);
+            second.addToCart(game, 2);
+            second.addToCart(console, 1);
+
+            CheckoutResult success = CheckoutService.tryCheckout(first);
+            if (success.isSuccess() && success.getMessage() == null && success.getSubtotalCents() == 30_000
+                    && success.getTotalCents() == 30_000 + success.getShippingCents() && success.getShippingCents() > 0) {
+                System.out.println(" Correct: Successful checkout reports its totals");
+            } else {
+                System.out.println(" Incorrect:  Unexpected success result: " + success);
+            }
+
+            CheckoutResult soldOut = CheckoutService.tryCheckout(second);
+            if (soldOut.getStatus() == CheckoutStatus.OUT_OF_STOCK && soldOut.getFailingProduct() == console
+                    && soldOut.getSubtotalCents() == 40_000 && second.getBalanceCents() == 100_000
+                    && game.getQuantity() == 10 && second.getCart().size() == 2
+                    && "Product Result Console is out of stock.".equals(soldOut.getMessage())) {
+                System.out.println(" Correct: Rejected checkout returns its status and failing product without side effects");
+            } else {
+                System.out.println(" Incorrect:  Unexpected rejection result: " + soldOut);
+            }
+
+            try {
+                CheckoutService.processCheckout(second);
+                System.out.println(" Incorrect:  processCheckout accepted a sold-out cart");
+            } catch (IllegalStateException e) {
+                if (e.getMessage().equals(soldOut.getMessage())) {
+                    System.out.println(" Correct: processCheckout throws the result's message");
+                } else {
+                    System.out.println(" Incorrect:  Unexpected exception message: " + e.getMessage());
+                }
+            }
+
+            CheckoutResult empty = CheckoutService.tryCheckout(new Customer("Result Idle Buyer", 1.0));
+            BatchCheckoutResult batch = CheckoutService.processCheckouts(List.of(second, second));
+            if (empty.getStatus() == CheckoutStatus.EMPTY_CART
+                    && batch.getResults().get(0).getResult().getStatus() == CheckoutStatus.OUT_OF_STOCK
+                    && batch.getResults().get(1).getResult().getStatus() == CheckoutStatus.DUPLICATE_CUSTOMER) {
+                System.out.println(" Correct: Empty carts and batch checkouts report their status");
+            } else {
+                System.out.println(" Incorrect:  Unexpected statuses: " + empty + ", " + batch.getResults());
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during checkout result test: " + e);
+        } finally {
+            CheckoutService.setReceiptSink(previousSink);
+        }
+
+        System.out.println();
+    }
+
+    private static void testCheckoutServer() {
+        System.out.println("Testing Checkout Server:");
+
+        ProductCatalog catalog = new ProductCatalog();
+        ElectronicsProduct lamp = new ElectronicsProduct("Server Lamp", 25.0, 1_000, 1.5);
+        DigitalProduct ebook = new DigitalProduct("Server E-Book", 8.0, 1_000);
+        catalog.add(lamp);
+        catalog.add(ebook);
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        HttpClient client = HttpClient.newHttpClient();
+        try (CheckoutServer server = new CheckoutServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            URI base = server.getBaseUri();
+
+            HttpResponse<String> opened = post(client, base, "/customers?name=Server+Shopper&balance=100");
+            post(client, base, "/cart/add?customer=Server+Shopper&product=" + lamp.getId() + "&quantity=2");
+            HttpResponse<String> cart = client.send(HttpRequest.newBuilder(base.resolve("/cart?customer=Server+Shopper")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (opened.statusCode() == 201 && cart.statusCode() == 200 && cart.body().contains("\"quantity\":2")
+                    && cart.body().contains("\"subtotal\":\"50\"")) {
+                System.out.println(" Correct: Sessions can open a customer, add to the cart and view it");
+            } else {
+                System.out.println(" Incorrect:  Unexpected cart response " + cart.statusCode() + ": " + cart.body());
+            }
+
+            HttpResponse<String> checkedOut = post(client, base, "/checkout?customer=Server+Shopper");
+            HttpResponse<String> empty = post(client, base, "/checkout?customer=Server+Shopper");
+            HttpResponse<String> unknown = post(client, base, "/checkout?customer=Nobody");
+            HttpResponse<String> invalid = post(client, base, "/cart/add?customer=Server+Shopper&product=" + ebook.getId() + "&quantity=0");
+            if (checkedOut.statusCode() == 200 && checkedOut.body().contains("\"status\":\"SUCCESS\"") && lamp.getQuantity() == 998
+                    && empty.statusCode() == 409 && empty.body().contains("EMPTY_CART")
+                    && unknown.statusCode() == 404 && invalid.statusCode() == 400) {
+                System.out.println(" Correct: Checkout endpoint reports successes, rejections and bad requests");
+            } else {
+                System.out.println(" Incorrect:  Unexpected checkout responses: " + checkedOut.body() + ", " + empty.body()
+                        + ", " + unknown.statusCode() + ", " + invalid.statusCode());
+            }
+
+            HttpResponse<String> closed = client.send(HttpRequest.newBuilder(base.resolve("/customers?name=Server+Shopper"))
+                    .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> afterClose = post(client, base, "/checkout?customer=Server+Shopper");
+            HttpResponse<String> closedAgain = client.send(HttpRequest.newBuilder(base.resolve("/customers?name=Server+Shopper"))
+                    .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+            if (closed.statusCode() == 200 && afterClose.statusCode() == 404 && closedAgain.statusCode() == 404
+                    && server.getCustomer("Server Shopper") == null) {
+                System.out.println(" Correct: Closing a session forgets its customer");
+            } else {
+                System.out.println(" Incorrect:  Unexpected session close responses: " + closed.statusCode() + ", "
+                        + afterClose.statusCode() + ", " + closedAgain.statusCode());
+            }
+
+            LoadGenerator.Report report = new LoadGenerator(base).run(50, 10, List.of(lamp.getId(), ebook.getId()));
+            if (report.getRequestCount() == 50 * 12 && report.getErrorCount() == 0 && report.getRejectedCount() == 0
+                    && report.getLatency().getValueAtPercentile(99) > 0 && server.getSessionCount() == 0) {
+                System.out.println(" Correct: Load generator drives concurrent sessions over loopback (" + report + ")");
+            } else {
+                System.out.println(" Incorrect:  Load run failed: " + report);
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during server test: " + e);
+        }
+
+        try (CheckoutServer server = new CheckoutServer(catalog, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Duration.ofMillis(100))) {
+            server.start();
+            post(client, server.getBaseUri(), "/customers?name=Idle+Shopper&balance=10");
+            boolean opened = server.getSessionCount() == 1;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (server.getSessionCount() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+            if (opened && server.getSessionCount() == 0) {
+                System.out.println(" Correct: Idle sessions are closed after the session timeout");
+            } else {
+                System.out.println(" Incorrect:  Idle session was not closed: " + server.getSessionCount() + " open");
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during session timeout test: " + e);
+        } finally {
+            CheckoutService.setReceiptSink(previousSink);
+        }
+
+        System.out.println();
+    }
+
+    private static HttpResponse<String> post(HttpClient client, URI base, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path)).POST(HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+    private static void testShippingRateEngine() {
+        System.out.println("Testing Shipping Rate Engine:");
+
+        ShippingRateEngine previousEngine = ShippingService.getRateEngine();
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        try {
+            Cart flat = new Cart();
+            flat.addProduct(new ElectronicsProduct("Rate Speaker", 20.0, 5, 2.5), 1);
+            if (flat.getShippingEstimateCents() == 1_250 && flat.snapshot().getShippingCents(7) == 1_250) {
+                System.out.println(" Correct: Default engine charges the flat rate per kg in every zone");
+            } else {
+                System.out.println(" Incorrect:  Unexpected flat estimate: " + flat.getShippingEstimateCents());
+            }
+
+            TableShippingRateEngine engine = new TableShippingRateEngine(
+                    List.of(new TableShippingRateEngine.WeightBracket(0, 5.0, 1_000, 50),
+                            new TableShippingRateEngine.WeightBracket(0, 0.0, 500, 100),
+                            new TableShippingRateEngine.WeightBracket(1, 0.0, 1_500, 200)),
+                    List.of(new TableShippingRateEngine.CategorySurcharge(0, ProductCategory.ELECTRONICS, 300, 0),
+                            new TableShippingRateEngine.CategorySurcharge(1, ProductCategory.GROCERY, 0, 100)));
+            long[] electronics = new long[ProductCategory.values().length];
+            electronics[ProductCategory.ELECTRONICS.ordinal()] = 6_000_000;
+            long[] boundary = new long[ProductCategory.values().length];
+            boundary[ProductCategory.ELECTRONICS.ordinal()] = 5_000_000;
+            long[] groceries = new long[ProductCategory.values().length];
+            groceries[ProductCategory.GROCERY.ordinal()] = 2_000_000;
+            if (engine.getZoneCount() == 2
+                    && engine.quoteCents(0, electronics) == 1_350 && engine.quoteCents(0, boundary) == 1_300
+                    && engine.quoteCents(1, groceries) == 2_100 && engine.quoteCents(0, groceries) == 700
+                    && engine.quoteCents(1, new long[ProductCategory.values().length]) == 0) {
+                System.out.println(" Correct: Table engine applies weight brackets, category surcharges and zones");
+            } else {
+                System.out.println(" Incorrect:  Unexpected quotes: " + engine.quoteCents(0, electronics) + ", "
+                        + engine.quoteCents(0, boundary) + ", " + engine.quoteCents(1, groceries));
+            }
+
+            try {
+                engine.quoteCents(2, electronics);
+                System.out.println(" Incorrect:  Unknown zone was priced");
+            } catch (IllegalArgumentException e) {
+                try {
+                    new TableShippingRateEngine(List.of(new TableShippingRateEngine.WeightBracket(0, 1.0, 0, 100)), List.of());
+                    System.out.println(" Incorrect:  Zone without a bracket at 0 kg was accepted");
+                } catch (IllegalArgumentException expected) {
+                    System.out.println(" Correct: Unknown zones and incomplete brackets are rejected");
+                }
+            }
+
+            ShippingService.setRateEngine(engine);
+            Customer customer = new Customer("Rate Zone Buyer", 1_000.0);
+            customer.setShippingZone(1);
+            customer.addToCart(new GroceryProduct("Rate Flour", 3.0, 10, 1.0, LocalDate.now().plusDays(30)), 2);
+            CheckoutResult result = CheckoutService.tryCheckout(customer);
+            if (result.isSuccess() && result.getShippingCents() == 2_100 && customer.getBalanceCents() == 100_000 - 600 - 2_100) {
+                System.out.println(" Correct: Checkout charges the engine's rate for the customer's zone");
+            } else {
+                System.out.println(" Incorrect:  Unexpected zone checkout: " + result);
+            }
+
+            customer.setShippingZone(2);
+            customer.addToCart(new GroceryProduct("Rate Rice", 2.0, 10, 1.0, LocalDate.now().plusDays(30)), 1);
+            long balanceBefore = customer.getBalanceCents();
+            CheckoutResult unknown = CheckoutService.tryCheckout(customer);
+            if (unknown.getStatus() == CheckoutStatus.UNKNOWN_SHIPPING_ZONE && customer.getBalanceCents() == balanceBefore
+                    && !customer.getCart().isEmpty() && unknown.getMessage().equals("Cannot ship to zone 2.")) {
+                System.out.println(" Correct: Checkout to a zone the engine does not serve is rejected, not thrown");
+            } else {
+                System.out.println(" Incorrect:  Unexpected unknown zone checkout: " + unknown.getStatus());
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during shipping rate engine test: " + e);
+        } finally {
+            ShippingService.setRateEngine(previousEngine);
+            CheckoutService.setReceiptSink(previousSink);
+        }
+
+        System.out.println();
+    }
+
+    private static void testParcelPacking() {
+        System.out.println("Testing Parcel Packing:");
+
+        ParcelPacker packer = new ParcelPacker(10.0);
+        ElectronicsProduct amplifier = new ElectronicsProduct("Pack Amplifier", 80.0, 100, 4.0);
+        ElectronicsProduct router = new ElectronicsProduct("Pack Router", 60.0, 100, 3.0);
+        ElectronicsProduct cable = new ElectronicsProduct("Pack Cable", 5.0, 100, 1.0);
+        ElectronicsProduct server = new ElectronicsProduct("Pack Server", 900.0, 100, 12.0);
+        List<Parcel> parcels = packer.pack(List.of(new ShipmentLine(cable, 4), new ShipmentLine(amplifier, 5),
+                new ShipmentLine(server, 1), new ShipmentLine(router, 3)));
+        double[] weights = new double[parcels.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = parcels.get(i).getWeight();
+        }
+        if (Arrays.equals(weights, new double[]{12.0, 10.0, 10.0, 10.0, 3.0})
+                && parcels.get(0).isOversized() && !parcels.get(1).isOversized()
+                && parcels.get(3).getLines().size() == 2 && parcels.get(3).getLines().get(1).getQuantity() == 2) {
+            System.out.println(" Correct: Lines are packed first-fit-decreasing under the maximum weight");
+        } else {
+            System.out.println(" Incorrect:  Unexpected parcels: " + parcels);
+        }
+
+        // Packing whole lines must place units exactly as packing them one by one would
+        Random random = new Random(7);
+        List<ShipmentLine> lines = new ArrayList<>();
+        List<Long> units = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            double weight = (1 + random.nextInt(80)) / 10.0;
+            int quantity = 1 + random.nextInt(20);
+            lines.add(new ShipmentLine(new ElectronicsProduct("Pack Part " + i, 1.0, quantity, weight), quantity));
+            for (int u = 0; u < quantity; u++) {
+                units.add(Math.round(weight * 1_000_000));
+            }
+        }
+        units.sort(Collections.reverseOrder());
+        List<Long> unitParcels = new ArrayList<>();
+        for (long unit : units) {
+            int p = 0;
+            while (p < unitParcels.size() && unitParcels.get(p) + unit > 10_000_000) {
+                p++;
+            }
+            if (p == unitParcels.size()) {
+                unitParcels.add(unit);
+            } else {
+                unitParcels.set(p, unitParcels.get(p) + unit);
+            }
+        }
+        List<Long> lineParcels = new ArrayList<>();
+        for (Parcel parcel : packer.pack(lines)) {
+            lineParcels.add(Math.round(parcel.getWeight() * 1_000_000));
+        }
+        if (lineParcels.equals(unitParcels)) {
+            System.out.println(" Correct: Packing lines matches unit-by-unit first-fit-decreasing");
+        } else {
+            System.out.println(" Incorrect:  Line packing " + lineParcels + " differs from unit packing " + unitParcels);
+        }
+
+        ParcelPacker previousPacker = ShippingService.getParcelPacker();
+        ShippingService.setParcelPacker(packer);
+        try {
+            StringBuilder notice = new StringBuilder();
+            ShippingService.appendShipmentNotice(notice, List.of(new ShipmentLine(amplifier, 3)));
+            String text = notice.toString();
+            if (text.contains("Parcel 1 of 2, 8.0kg") && text.contains("Parcel 2 of 2, 4.0kg")
+                    && text.contains("Total package weight 12.0kg")) {
+                System.out.println(" Correct: Shipment notice lists every parcel");
+            } else {
+                System.out.println(" Incorrect:  Unexpected notice: " + text);
+            }
+        } finally {
+            ShippingService.setParcelPacker(previousPacker);
+        }
+
+        System.out.println();
+    }
+
+    private static void testShipmentConsolidation() {
+        System.out.println("Testing Shipment Consolidation:");
+
+        AtomicLong now = new AtomicLong(1_000_000);
+        Clock manualClock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(now.get());
+            }
+        };
+        ShipmentConsolidator consolidator = new ShipmentConsolidator(new ParcelPacker(20.0), Duration.ofMinutes(10), manualClock);
+        ShipmentConsolidator previousConsolidator = CheckoutService.getShipmentConsolidator();
+        ReceiptSink previousSink = CheckoutService.getReceiptSink();
+        CheckoutService.setShipmentConsolidator(consolidator);
+        CheckoutService.setReceiptSink(ReceiptSink.noOp());
+        try {
+            ElectronicsProduct lamp = new ElectronicsProduct("Consolidated Lamp", 30.0, 100, 3.0);
+            GroceryProduct rice = new GroceryProduct("Consolidated Rice", 4.0, 100, 5.0, LocalDate.now().plusDays(90));
+            Customer regular = new Customer("Consolidated Regular", 1_000.0);
+            Customer other = new Customer("Consolidated Other", 1_000.0);
+
+            regular.addToCart(lamp, 2);
+            CheckoutService.tryCheckout(regular);
+            now.addAndGet(5 * 60_000);
+            regular.addToCart(lamp, 1);
+            regular.addToCart(rice, 4);
+            CheckoutService.tryCheckout(regular);
+            other.addToCart(rice, 1);
+            CheckoutService.tryCheckout(other);
+
+            List<Shipment> early = consolidator.dispatchDue();
+            now.addAndGet(5 * 60_000);
+            List<Shipment> due = consolidator.dispatchDue();
+            if (early.isEmpty() && due.size() == 1 && due.get(0).getCustomer() == regular
+                    && due.get(0).getCheckoutCount() == 2 && due.get(0).getLines().size() == 2
+                    && due.get(0).getLines().get(0).getQuantity() == 3 && due.get(0).getParcels().size() == 2
+                    && due.get(0).getNotice().contains("Parcel 2 of 2")) {
+                System.out.println(" Correct: Checkouts within the window ship as one packed shipment");
+            } else {
+                System.out.println(" Incorrect:  Unexpected shipments: " + early + ", " + due);
+            }
+
+            // The other customer's window is still open; a checkout after the regular's window ends opens a new one
+            regular.addToCart(lamp, 1);
+            CheckoutService.tryCheckout(regular);
+            now.addAndGet(10 * 60_000);
+            regular.addToCart(lamp, 1);
+            CheckoutService.tryCheckout(regular);
+            List<Shipment> rest = consolidator.dispatchAll();
+            int regularShipments = 0;
+            for (Shipment shipment : rest) {
+                if (shipment.getCustomer() == regular && shipment.getCheckoutCount() == 1) {
+                    regularShipments++;
+                }
+            }
+            if (rest.size() == 3 && regularShipments == 2 && consolidator.getPendingCount() == 0) {
+                System.out.println(" Correct: Ended windows ship separately and dispatchAll empties the consolidator");
+            } else {
+                System.out.println(" Incorrect:  Unexpected remaining shipments: " + rest);
+            }
+        } catch (Exception e) {
+            System.out.println(" Incorrect:  Unexpected error during shipment consolidation test: " + e);
+        } finally {
+            CheckoutService.setShipmentConsolidator(previousConsolidator);
+            CheckoutService.setReceiptSink(previousSink);
+        }
+
+        System.out.println();
+    }
+
+    private static boolean cartTotalsMatchLines(Cart cart) {
+        long subtotal = 0;
+        long weightMilligrams = 0;
+        int quantity = 0;
+        for (CartItem item : cart.getItems()) {
+            subtotal += item.getSubtotalCents();
+            weightMilligrams += Math.round(((Shippable) item.getProduct()).getWeight() * 1_000_000) * item.getQuantity();
+            quantity += item.getQuantity();
+        }
+        return subtotal == cart.getSubtotalCents() && quantity == cart.getTotalQuantity()
+                && Math.round(cart.getShippableWeight() * 1_000_000) == weightMilligrams;
+    }
+}
+
+
+/*
+Product Creation Tests
+    Valid creation of different product types
+    Invalid input validation (empty names, negative values)
+
+
+Cart Functionality Tests
+    Adding products to cart
+    Merging identical products (using hasSameBusinessKey)
+    Subtotal calculation
+    Stock quantity validation
+    Updating and removing lines
+    Cart clearing
+
+
+Customer Operations Tests
+    Customer creation and balance management
+    Adding products to customer's cart
+    Balance deduction validation
+
+
+Checkout Process Tests
+    Successful checkout with multiple products
+    Checkout with insufficient balance
+    Rollback of stock reservations on a rejected checkout
+    Checkout with expired products
+    Checkout with empty cart
+
+
+Product Identification Tests
+    UUID-based equality testing
+    Business key comparison
+    Cart merging of identical products
+
+
+Concurrent Stock Reservation Tests
+    No oversell with many threads reserving the same product
+    Committed and released reservations balance the ledger
+    reduceQuantity never drives stock negative
+
+
+Async Receipt Sink Tests
+    Receipts written through a small ring buffer all reach the file on close
+
+
+Batch Checkout Tests
+    Per-customer results instead of failing the whole batch
+    Pooled and contended stock is only sold to successful carts
+    Failure reasons for balance and expiration
+
+
+Money Tests
+    Exact fixed-point subtotals
+    Receipt formatting without truncation
+    Rounding to whole cents
+
+
+Product Catalog Tests
+    Lookup by id
+    Exact and prefix lookup by name
+    Renaming through the catalog
+    Category iteration and removal
+
+
+Expiry Index Tests
+    Products expiring within N days
+    Bulk expiration when the day advances
+    Cached day clock crossing a day boundary
+
+
+Columnar Inventory Tests
+    Rows round-trip product attributes
+    Stock audit over columns
+    Bulk repricing, flyweight stock updates and materialization
+
+
+Inventory Snapshot Tests
+    Round trip of all product types with their ids and stock
+    Shippable and Expirable attributes survive
  */
\ No newline at end of file
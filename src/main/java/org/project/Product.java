@@ -1,6 +1,7 @@
 package org.project;
 
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Represents the base for all products in the e-commerce system.
@@ -8,21 +9,39 @@ import java.util.UUID;
  * Every product must belong to a specific category (e.g., Electronics, Grocery).
  */
 public abstract class Product {
-    private final String id; // Unique identifier
-    protected String name;
-    protected double price;
-    protected int quantity; // Available stock
+    private static final AtomicIntegerFieldUpdater<Product> QUANTITY =
+            AtomicIntegerFieldUpdater.newUpdater(Product.class, "quantity");
+
+    /**
+     * Assigns ids to new products; replaced through {@link #setIdGenerator(ProductIdGenerator)}.
+     */
+    private static volatile ProductIdGenerator idGenerator = ProductIdGenerator.timeSequenced();
+
+    private static final ProductChangeListener[] NO_LISTENERS = new ProductChangeListener[0];
+
+    /**
+     * Notified after any product's name or price changed. Copy-on-write, so notifying never locks or allocates.
+     */
+    private static volatile ProductChangeListener[] changeListeners = NO_LISTENERS;
+
+    private final long id; // Unique identifier
+    // Volatile, so a thread that sees a change notification also sees the new value; the business key holds both
+    protected volatile String name;
+    protected volatile long priceCents; // Price in cents, see Money
+    private volatile int quantity; // Available stock, only ever changed through CAS or plain volatile writes
+    private volatile BusinessKey businessKey; // Cached (name, price) key, rebuilt when either changes
+    private ProductChangeListener[] listeners = NO_LISTENERS; // Of this product only; guarded by its monitor
 
     /**
      * Constructor for the Product class.
      * It's called by subclasses to initialize common properties.
      *
      * @param name     The name of the product.
-     * @param price    The price of the product.
+     * @param price    The price of the product. Rounded to whole cents.
      * @param quantity The available quantity in stock.
      */
     public Product(String name, double price, int quantity) {
-        this.id = UUID.randomUUID().toString();
+        this.id = idGenerator.nextId();
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be null or empty.");
         }
@@ -33,8 +52,127 @@ public abstract class Product {
             throw new IllegalArgumentException("Product quantity cannot be negative.");
         }
         this.name = name;
-        this.price = price;
+        this.priceCents = Money.ofUnits(price);
+        this.quantity = quantity;
+        this.businessKey = new BusinessKey(name, priceCents);
+    }
+
+    /**
+     * Constructor used when restoring a previously saved product, e.g. from an {@link InventorySnapshot}.
+     * Keeps the saved id instead of generating a new one.
+     *
+     * @param id         The saved identifier.
+     * @param name       The name of the product.
+     * @param priceCents The price of the product in cents.
+     * @param quantity   The available quantity in stock.
+     */
+    Product(long id, String name, long priceCents, int quantity) {
+        if (name == null || name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty.");
+        }
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Product price cannot be negative.");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Product quantity cannot be negative.");
+        }
+        this.id = id;
+        this.name = name;
+        this.priceCents = priceCents;
         this.quantity = quantity;
+        this.businessKey = new BusinessKey(name, priceCents);
+    }
+
+    /**
+     * Sets the strategy that assigns ids to products created from now on.
+     *
+     * @param generator The id generator.
+     * @throws IllegalArgumentException if the generator is null.
+     */
+    public static void setIdGenerator(ProductIdGenerator generator) {
+        if (generator == null) {
+            throw new IllegalArgumentException("Id generator cannot be null.");
+        }
+        idGenerator = generator;
+    }
+
+    /**
+     * Gets the strategy that assigns ids to new products.
+     *
+     * @return The current id generator.
+     */
+    public static ProductIdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    /**
+     * Registers a listener that is notified after the name or price of any product changed.
+     *
+     * @param listener The listener to add.
+     * @throws IllegalArgumentException if the listener is null.
+     */
+    public static synchronized void addChangeListener(ProductChangeListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        changeListeners = with(changeListeners, listener);
+    }
+
+    /**
+     * Unregisters a product change listener.
+     *
+     * @param listener The listener to remove.
+     * @return true if the listener was registered, false otherwise.
+     */
+    public static synchronized boolean removeChangeListener(ProductChangeListener listener) {
+        ProductChangeListener[] remaining = without(changeListeners, listener);
+        if (remaining == changeListeners) {
+            return false;
+        }
+        changeListeners = remaining;
+        return true;
+    }
+
+    /**
+     * Registers a listener that is notified after the name or price of this product changed, e.g. by the
+     * {@link ProductCatalog} holding it. Unlike a global listener it is released together with the product.
+     *
+     * @param listener The listener to add.
+     */
+    synchronized void addListener(ProductChangeListener listener) {
+        listeners = with(listeners, listener);
+    }
+
+    /**
+     * Unregisters a listener of this product.
+     *
+     * @param listener The listener to remove.
+     */
+    synchronized void removeListener(ProductChangeListener listener) {
+        listeners = without(listeners, listener);
+    }
+
+    private static ProductChangeListener[] with(ProductChangeListener[] listeners, ProductChangeListener listener) {
+        ProductChangeListener[] added = Arrays.copyOf(listeners, listeners.length + 1);
+        added[added.length - 1] = listener;
+        return added;
+    }
+
+    /**
+     * Copies the listeners without the first occurrence of the given one.
+     *
+     * @return The same array if the listener was not registered.
+     */
+    private static ProductChangeListener[] without(ProductChangeListener[] listeners, ProductChangeListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ProductChangeListener[] remaining = new ProductChangeListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                return remaining;
+            }
+        }
+        return listeners;
     }
 
     /**
@@ -42,10 +180,19 @@ public abstract class Product {
      *
      * @return The product's unique identifier.
      */
-    public String getId() {
+    public long getId() {
         return id;
     }
 
+    /**
+     * Renders the unique identifier of the product as text.
+     *
+     * @return The product's identifier in decimal.
+     */
+    public String getIdString() {
+        return Long.toString(id);
+    }
+
     // --- Getters ---
 
     public String getName() {
@@ -53,13 +200,29 @@ public abstract class Product {
     }
 
     public double getPrice() {
-        return price;
+        return Money.toUnits(priceCents);
+    }
+
+    /**
+     * Gets the price of the product as a fixed-point amount.
+     *
+     * @return The price in cents.
+     */
+    public long getPriceCents() {
+        return priceCents;
     }
 
     public int getQuantity() {
         return quantity;
     }
 
+    /**
+     * Gets the category of this product.
+     *
+     * @return The category matching the concrete product type.
+     */
+    public abstract ProductCategory getCategory();
+
     // --- Mutators ---
 
     /**
@@ -76,23 +239,46 @@ public abstract class Product {
     /**
      * Reduces the quantity of the product by a specified amount.
      * This method is used during checkout to decrease stock.
+     * The check and the decrement happen as one atomic step, so concurrent callers can never oversell.
      *
      * @param quantity The amount to reduce the quantity by.
+     * @throws IllegalStateException if less than the requested amount is in stock.
      */
     public void reduceQuantity(int quantity) {
+        if (!tryReduceQuantity(quantity)) {
+            throw new IllegalStateException("Product " + name + " is out of stock.");
+        }
+    }
+
+    /**
+     * Atomically reduces the quantity of the product if enough stock is available.
+     * Uses a compare-and-set loop instead of a lock, so many threads can compete for the same product.
+     *
+     * @param quantity The amount to reduce the quantity by.
+     * @return true if the stock was reduced, false if less than the requested amount was available.
+     */
+    public boolean tryReduceQuantity(int quantity) {
         validateQuantity(quantity);
-        this.quantity -= quantity;
+        while (true) {
+            int current = this.quantity;
+            if (current < quantity) {
+                return false;
+            }
+            if (QUANTITY.compareAndSet(this, current, current - quantity)) {
+                return true;
+            }
+        }
     }
 
     /**
      * Increases the quantity of the product by a specified amount.
-     * This method is used when restocking products.
+     * This method is used when restocking products and when releasing reserved stock.
      *
      * @param quantity The amount to increase the quantity by.
      */
     public void increaseQuantity(int quantity) {
         validateQuantity(quantity);
-        this.quantity += quantity;
+        QUANTITY.addAndGet(this, quantity);
     }
 
     private void validateQuantity(int quantity) {
@@ -106,20 +292,67 @@ public abstract class Product {
         if (price < 0) {
             throw new IllegalArgumentException("Product price cannot be negative.");
         }
-        this.price = price;
+        setPriceCents(Money.ofUnits(price));
+    }
+
+    /**
+     * Sets the price of the product as a fixed-point amount.
+     * Name and price changes of a product are applied one at a time, and listeners are notified of each in order.
+     *
+     * @param priceCents The new price in cents.
+     */
+    public synchronized void setPriceCents(long priceCents) {
+        if (priceCents < 0) {
+            throw new IllegalArgumentException("Product price cannot be negative.");
+        }
+        BusinessKey oldKey = businessKey;
+        this.priceCents = priceCents;
+        publishKey(oldKey, new BusinessKey(oldKey.getName(), priceCents));
     }
 
     /**
      * Sets the name of the product.
-     * This method is used to update the product's name.
+     * This method is used to update the product's name. The name index of any {@link ProductCatalog} holding the
+     * product is updated by the listener the catalog registered on the product. Like {@link #setPriceCents(long)}, applied one change at
+     * a time.
      *
      * @param name The new name of the product.
      */
-    public void setName(String name) {
+    public synchronized void setName(String name) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be null or empty.");
         }
+        BusinessKey oldKey = businessKey;
         this.name = name;
+        publishKey(oldKey, new BusinessKey(name, oldKey.getPriceCents()));
+    }
+
+    /**
+     * Publishes the key of a name or price change and notifies the listeners with the key it replaced.
+     * Only called while holding the product's monitor, so the old key is the one actually replaced and
+     * listeners see the changes of one product in the order they were made.
+     */
+    private void publishKey(BusinessKey oldKey, BusinessKey newKey) {
+        this.businessKey = newKey;
+        if (oldKey.equals(newKey)) {
+            return;
+        }
+        for (ProductChangeListener listener : changeListeners) {
+            listener.productChanged(this, oldKey);
+        }
+        for (ProductChangeListener listener : listeners) {
+            listener.productChanged(this, oldKey);
+        }
+    }
+
+    /**
+     * Gets the business key of this product, i.e. its name and price.
+     * The cart uses it to identify "identical" products.
+     *
+     * @return The product's current business key.
+     */
+    public BusinessKey getBusinessKey() {
+        return businessKey;
     }
 
     /**
@@ -133,7 +366,7 @@ public abstract class Product {
         if (other == null) {
             return false;
         }
-        return name.equals(other.name) && price == other.price;
+        return businessKey.equals(other.businessKey);
     }
 
     // --- Overridden Methods from Object ---
@@ -141,9 +374,9 @@ public abstract class Product {
     @Override
     public String toString() {
         return "Product{" +
-                "id='" + id + '\'' +
+                "id=" + id +
                 ", name='" + name + '\'' +
-                ", price=" + price +
+                ", price=" + Money.format(priceCents) +
                 ", quantity=" + quantity +
                 '}';
     }
@@ -154,6 +387,11 @@ public abstract class Product {
             return false;
         }
         Product product = (Product) o;
-        return id.equals(product.id);
+        return id == product.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
     }
 }
\ No newline at end of file
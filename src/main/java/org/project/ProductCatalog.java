@@ -0,0 +1,212 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Stores the products on sale and indexes them for lookup.
+ * <ul>
+ *     <li>by id, in constant time;</li>
+ *     <li>by exact name or name prefix, in logarithmic time (names are not unique);</li>
+ *     <li>by category, as a live collection that can be iterated.</li>
+ * </ul>
+ * All indexes are concurrent maps, so lookups never block and scale with the number of reading threads.
+ * The name index follows every rename, whether through {@link #rename(Product, String)} or
+ * {@link Product#setName(String)}: a catalog registers a {@link ProductChangeListener} on each product it adds and
+ * unregisters it when the product is removed, so renames of other products never reach it and a product no longer
+ * refers to a catalog it left.
+ */
+public class ProductCatalog {
+    private final ConcurrentHashMap<Long, Product> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<NameKey, Product> byName = new ConcurrentSkipListMap<>();
+    private final Map<ProductCategory, Set<Product>> byCategory = new EnumMap<>(ProductCategory.class);
+    private final ProductChangeListener nameIndexUpdater = this::nameChanged; // Registered on every product held
+
+    /**
+     * Constructs an empty catalog.
+     */
+    public ProductCatalog() {
+        for (ProductCategory category : ProductCategory.values()) {
+            byCategory.put(category, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Adds a product to the catalog.
+     *
+     * @param product The product to add.
+     * @throws IllegalArgumentException if the product is null or already in the catalog.
+     */
+    public void add(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        synchronized (product) { // Holds off renames, and a concurrent remove, until the listener follows them
+            if (byId.putIfAbsent(product.getId(), product) != null) {
+                throw new IllegalArgumentException("Product " + product.getId() + " is already in the catalog.");
+            }
+            product.addListener(nameIndexUpdater);
+            byName.put(new NameKey(product.getName(), product.getId()), product);
+            byCategory.get(product.getCategory()).add(product);
+        }
+    }
+
+    /**
+     * Removes a product from the catalog.
+     *
+     * @param product The product to remove.
+     * @return true if the product was in the catalog, false otherwise.
+     */
+    public boolean remove(Product product) {
+        if (product == null) {
+            return false;
+        }
+        synchronized (product) {
+            if (!byId.remove(product.getId(), product)) {
+                return false;
+            }
+            product.removeListener(nameIndexUpdater);
+            byName.remove(new NameKey(product.getName(), product.getId()));
+            byCategory.get(product.getCategory()).remove(product);
+            return true;
+        }
+    }
+
+    /**
+     * Renames a product of this catalog. The name index is updated as for any call to {@link Product#setName(String)}.
+     *
+     * @param product The product to rename.
+     * @param newName The new name.
+     * @throws IllegalArgumentException if the product is not in the catalog or the name is invalid.
+     */
+    public void rename(Product product, String newName) {
+        if (product == null || byId.get(product.getId()) != product) {
+            throw new IllegalArgumentException("Product is not in the catalog.");
+        }
+        product.setName(newName);
+    }
+
+    /**
+     * Moves a renamed product of this catalog to its new name in the name index. Called while the product's
+     * monitor is held, so renames of a product are applied one at a time.
+     *
+     * @param product The renamed product.
+     * @param oldKey  The business key the product had before.
+     */
+    private void nameChanged(Product product, BusinessKey oldKey) {
+        long id = product.getId();
+        String newName = product.getName();
+        if (newName.equals(oldKey.getName())) {
+            return; // A price change
+        }
+        byName.put(new NameKey(newName, id), product);
+        byName.remove(new NameKey(oldKey.getName(), id));
+    }
+
+    /**
+     * Finds a product by its id.
+     *
+     * @param id The product id.
+     * @return The product, or null if no product has this id.
+     */
+    public Product findById(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Finds all products with exactly the given name.
+     *
+     * @param name The product name.
+     * @return The matching products, ordered by id; empty if there are none.
+     */
+    public List<Product> findByName(String name) {
+        return new ArrayList<>(byName.subMap(NameKey.lowest(name), true, NameKey.highest(name), true).values());
+    }
+
+    /**
+     * Finds products whose name starts with the given prefix.
+     *
+     * @param prefix The name prefix.
+     * @param limit  The maximum number of products to return.
+     * @return Up to {@code limit} matching products, ordered by name.
+     */
+    public List<Product> findByNamePrefix(String prefix, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        NavigableMap<NameKey, Product> range = byName.subMap(
+                NameKey.lowest(prefix), true, NameKey.lowest(prefix + Character.MAX_VALUE), false);
+        List<Product> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Product product : range.values()) {
+            if (matches.size() == limit) {
+                break;
+            }
+            matches.add(product);
+        }
+        return matches;
+    }
+
+    /**
+     * Gets all products of a category.
+     *
+     * @param category The category.
+     * @return A read-only live view of the products in the category.
+     */
+    public Collection<Product> getProducts(ProductCategory category) {
+        return Collections.unmodifiableCollection(byCategory.get(category));
+    }
+
+    /**
+     * Gets the number of products in the catalog.
+     *
+     * @return The number of products.
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Key of the name index. Products with the same name are kept apart (and ordered) by their id.
+     */
+    private static final class NameKey implements Comparable<NameKey> {
+        private final String name;
+        private final long id;
+
+        NameKey(String name, long id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        static NameKey lowest(String name) {
+            return new NameKey(name, Long.MIN_VALUE);
+        }
+
+        static NameKey highest(String name) {
+            return new NameKey(name, Long.MAX_VALUE);
+        }
+
+        @Override
+        public int compareTo(NameKey other) {
+            int byName = name.compareTo(other.name);
+            return byName != 0 ? byName : Long.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof NameKey && compareTo((NameKey) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Long.hashCode(id);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.project;
+
+/**
+ * The categories a product can belong to, one per concrete product type.
+ */
+public enum ProductCategory {
+    GROCERY,
+    ELECTRONICS,
+    DIGITAL
+}
@@ -0,0 +1,21 @@
+package org.project;
+
+/**
+ * Receives a notification whenever the name or price of any product changes, i.e. whenever its
+ * {@link BusinessKey} changes. Register listeners with {@link Product#addChangeListener(ProductChangeListener)}; a {@link ProductCatalog} registers
+ * one on each of its products instead.
+ * <p>
+ * Listeners are called synchronously on the thread that changed the product, after the change and while it still
+ * holds the product's monitor, so they should only record what needs to be done and return quickly. The changes of
+ * one product are reported one at a time, in the order they were made.
+ */
+@FunctionalInterface
+public interface ProductChangeListener {
+    /**
+     * Called after the name or price of a product changed.
+     *
+     * @param product The changed product, already carrying its new name and price.
+     * @param oldKey  The business key the product had before the change.
+     */
+    void productChanged(Product product, BusinessKey oldKey);
+}
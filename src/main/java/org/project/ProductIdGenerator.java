@@ -0,0 +1,28 @@
+package org.project;
+
+/**
+ * Strategy that assigns the unique id of every newly created {@link Product}.
+ * <p>
+ * Ids are primitive 64-bit numbers, so comparing, hashing and storing them costs no more than a {@code long};
+ * {@link Product#getIdString()} renders one as text only when it is needed, e.g. for display.
+ * Implementations must be thread-safe and must never return the same id twice.
+ */
+@FunctionalInterface
+public interface ProductIdGenerator {
+    /**
+     * Returns the next unused id.
+     *
+     * @return A unique product id.
+     */
+    long nextId();
+
+    /**
+     * Creates the default generator: time-prefixed ids handed out from per-thread blocks.
+     *
+     * @return A new generator.
+     * @see TimeSequencedIdGenerator
+     */
+    static ProductIdGenerator timeSequenced() {
+        return new TimeSequencedIdGenerator(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,34 @@
+package org.project;
+
+/**
+ * Destination for rendered checkout receipts and shipment notices.
+ * Checkout renders each receipt into a single string and hands it over in one call,
+ * so a sink never sees half a receipt and never needs to lock per line.
+ */
+public interface ReceiptSink {
+    /**
+     * Writes a fully rendered receipt.
+     *
+     * @param receipt The receipt text, including its trailing line separator.
+     */
+    void write(String receipt);
+
+    /**
+     * Returns a sink that prints receipts to the console.
+     *
+     * @return A console sink.
+     */
+    static ReceiptSink console() {
+        return receipt -> System.out.print(receipt);
+    }
+
+    /**
+     * Returns a sink that discards all receipts, e.g. for benchmarks.
+     *
+     * @return A no-op sink.
+     */
+    static ReceiptSink noOp() {
+        return receipt -> {
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package org.project;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A shipment dispatched by a {@link ShipmentConsolidator}: everything a customer ordered within one
+ * consolidation window, merged by item and packed into parcels.
+ */
+public final class Shipment {
+    private final Customer customer;
+    private final List<ShipmentLine> lines;
+    private final List<Parcel> parcels;
+    private final int checkoutCount;
+
+    Shipment(Customer customer, List<ShipmentLine> lines, List<Parcel> parcels, int checkoutCount) {
+        this.customer = customer;
+        this.lines = Collections.unmodifiableList(lines);
+        this.parcels = Collections.unmodifiableList(parcels);
+        this.checkoutCount = checkoutCount;
+    }
+
+    public Customer getCustomer() {
+        return customer;
+    }
+
+    /**
+     * Gets the items of the shipment, with the quantities of all merged checkouts added up per item.
+     *
+     * @return The merged lines, in the order the items were first ordered.
+     */
+    public List<ShipmentLine> getLines() {
+        return lines;
+    }
+
+    public List<Parcel> getParcels() {
+        return parcels;
+    }
+
+    /**
+     * Gets the number of checkouts merged into this shipment.
+     *
+     * @return The number of checkouts.
+     */
+    public int getCheckoutCount() {
+        return checkoutCount;
+    }
+
+    /**
+     * Renders the shipment notice, listing every parcel with its contents.
+     *
+     * @return The notice.
+     */
+    public String getNotice() {
+        StringBuilder notice = new StringBuilder(64 + 32 * lines.size() + 32 * parcels.size());
+        ShippingService.appendParcelNotice(notice, parcels);
+        return notice.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Shipment{" +
+                "customer=" + customer.getName() +
+                ", checkouts=" + checkoutCount +
+                ", lines=" + lines.size() +
+                ", parcels=" + parcels.size() +
+                '}';
+    }
+}
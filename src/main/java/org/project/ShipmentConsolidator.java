@@ -0,0 +1,157 @@
+package org.project;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Merges the shipments of a customer's checkouts within a time window into one shipment.
+ * <p>
+ * A customer's first checkout opens a window; checkouts until it ends add their lines to the same pending shipment.
+ * Pending shipments are only packed and handed out by {@link #dispatchDue()}, which callers run periodically, e.g.
+ * from a scheduled executor. Any number of checkout threads can add at once; checkouts of different customers never
+ * contend with each other.
+ * Install one with {@link CheckoutService#setShipmentConsolidator(ShipmentConsolidator)}.
+ */
+public final class ShipmentConsolidator {
+    private final ParcelPacker packer;
+    private final long windowMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<Customer, Pending> pending = new ConcurrentHashMap<>(); // Open windows by customer
+    private final ConcurrentLinkedQueue<Pending> closed = new ConcurrentLinkedQueue<>(); // Ended windows replaced by a newer checkout
+
+    /**
+     * Creates a consolidator on the system clock.
+     *
+     * @param packer The packer that splits dispatched shipments into parcels.
+     * @param window How long a customer's checkouts are merged, counted from the first one.
+     * @throws IllegalArgumentException if the packer or window is null, or the window is negative.
+     */
+    public ShipmentConsolidator(ParcelPacker packer, Duration window) {
+        this(packer, window, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a consolidator.
+     *
+     * @param packer The packer that splits dispatched shipments into parcels.
+     * @param window How long a customer's checkouts are merged, counted from the first one.
+     * @param clock  The clock windows are measured with.
+     * @throws IllegalArgumentException if an argument is null or the window is negative.
+     */
+    public ShipmentConsolidator(ParcelPacker packer, Duration window, Clock clock) {
+        if (packer == null || window == null || clock == null) {
+            throw new IllegalArgumentException("Packer, window and clock cannot be null.");
+        }
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window cannot be negative.");
+        }
+        this.packer = packer;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * Adds the lines of a checkout to the customer's pending shipment, opening a new window if none is open.
+     *
+     * @param customer The customer who checked out.
+     * @param lines    The shippable lines of the checkout. Not modified.
+     * @throws IllegalArgumentException if the customer or lines are null.
+     */
+    public void add(Customer customer, List<ShipmentLine> lines) {
+        if (customer == null || lines == null) {
+            throw new IllegalArgumentException("Customer and lines cannot be null.");
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        long now = clock.millis();
+        pending.compute(customer, (key, open) -> {
+            if (open == null || now >= open.dueMillis) {
+                if (open != null) {
+                    closed.add(open); // Its window ended before it was dispatched; it ships on its own
+                }
+                open = new Pending(key, now + windowMillis);
+            }
+            open.merge(lines);
+            return open;
+        });
+    }
+
+    /**
+     * Packs and hands out every pending shipment whose window has ended.
+     *
+     * @return The dispatched shipments; empty if none was due.
+     */
+    public List<Shipment> dispatchDue() {
+        return dispatch(false);
+    }
+
+    /**
+     * Packs and hands out every pending shipment, whether or not its window has ended, e.g. on shutdown.
+     *
+     * @return The dispatched shipments.
+     */
+    public List<Shipment> dispatchAll() {
+        return dispatch(true);
+    }
+
+    /**
+     * Gets the number of shipments waiting to be dispatched.
+     *
+     * @return The number of pending shipments.
+     */
+    public int getPendingCount() {
+        return pending.size() + closed.size();
+    }
+
+    private List<Shipment> dispatch(boolean all) {
+        long now = clock.millis();
+        List<Shipment> shipments = new ArrayList<>();
+        for (Pending ended = closed.poll(); ended != null; ended = closed.poll()) {
+            shipments.add(ended.toShipment(packer));
+        }
+        for (Pending open : pending.values()) {
+            // Removal is atomic with add(), so no checkout can merge into a shipment once it is taken
+            if ((all || now >= open.dueMillis) && pending.remove(open.customer, open)) {
+                shipments.add(open.toShipment(packer));
+            }
+        }
+        return shipments;
+    }
+
+    /**
+     * The merged lines of one customer's window. Only changed inside {@code pending.compute}.
+     */
+    private static final class Pending {
+        private final Customer customer;
+        private final long dueMillis;
+        private final Map<Shippable, Integer> quantities = new LinkedHashMap<>();
+        private int checkoutCount;
+
+        private Pending(Customer customer, long dueMillis) {
+            this.customer = customer;
+            this.dueMillis = dueMillis;
+        }
+
+        private void merge(List<ShipmentLine> lines) {
+            for (ShipmentLine line : lines) {
+                quantities.merge(line.getItem(), line.getQuantity(), Math::addExact);
+            }
+            checkoutCount++;
+        }
+
+        private Shipment toShipment(ParcelPacker packer) {
+            List<ShipmentLine> lines = new ArrayList<>(quantities.size());
+            for (Map.Entry<Shippable, Integer> entry : quantities.entrySet()) {
+                lines.add(new ShipmentLine(entry.getKey(), entry.getValue()));
+            }
+            return new Shipment(customer, lines, packer.pack(lines), checkoutCount);
+        }
+    }
+}
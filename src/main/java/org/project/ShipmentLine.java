@@ -0,0 +1,46 @@
+package org.project;
+
+/**
+ * Represents one line of a shipment: a shippable item and how many units of it are shipped.
+ * Shipping works on lines instead of individual units, so the cost of shipping an order
+ * depends on the number of distinct items, not on the number of units.
+ */
+public final class ShipmentLine {
+    private final Shippable item; // The item being shipped.
+    private final int quantity; // The number of units shipped.
+
+    /**
+     * Constructs a ShipmentLine.
+     *
+     * @param item     The item being shipped.
+     * @param quantity The number of units shipped.
+     * @throws IllegalArgumentException if the item is null or the quantity is not positive.
+     */
+    public ShipmentLine(Shippable item, int quantity) {
+        if (item == null) {
+            throw new IllegalArgumentException("Shippable item cannot be null.");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        this.item = item;
+        this.quantity = quantity;
+    }
+
+    public Shippable getItem() {
+        return item;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Calculates the total weight of this line.
+     *
+     * @return The weight of one unit multiplied by the quantity, in kilograms.
+     */
+    public double getTotalWeight() {
+        return item.getWeight() * quantity;
+    }
+}
@@ -0,0 +1,57 @@
+package org.project;
+
+/**
+ * Prices the shipping of an order from its weight per product category and its destination zone.
+ * Implementations are called for every checkout and cart estimate, so they must be thread-safe and should not allocate.
+ *
+ * @see TableShippingRateEngine
+ */
+@FunctionalInterface
+public interface ShippingRateEngine {
+    /**
+     * The zone used when no destination is known, e.g. for cart estimates.
+     */
+    int DEFAULT_ZONE = 0;
+
+    /**
+     * Prices the shipping of an order.
+     *
+     * @param zone                       The destination zone.
+     * @param weightMilligramsByCategory The shippable weight of the order per category, indexed by
+     *                                   {@link ProductCategory#ordinal()}, in milligrams. Not modified.
+     * @return The shipping cost in cents; 0 if nothing is shipped.
+     * @throws IllegalArgumentException if the zone is unknown to this engine.
+     */
+    long quoteCents(int zone, long[] weightMilligramsByCategory);
+
+    /**
+     * Tells whether this engine prices a zone, so callers can turn an unknown zone into a rejection instead of
+     * an exception.
+     *
+     * @param zone The destination zone.
+     * @return true if {@link #quoteCents(int, long[])} accepts the zone; engines that price every zone return true.
+     */
+    default boolean servesZone(int zone) {
+        return true;
+    }
+
+    /**
+     * Creates an engine that charges the same rate per kilogram for every zone and category.
+     *
+     * @param centsPerKg The rate per kilogram, in cents.
+     * @return The flat-rate engine.
+     * @throws IllegalArgumentException if the rate is negative.
+     */
+    static ShippingRateEngine flatRate(long centsPerKg) {
+        if (centsPerKg < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative.");
+        }
+        return (zone, weightMilligramsByCategory) -> {
+            long weight = 0;
+            for (long categoryWeight : weightMilligramsByCategory) {
+                weight += categoryWeight;
+            }
+            return TableShippingRateEngine.perKilogram(centsPerKg, weight);
+        };
+    }
+}
@@ -7,6 +7,8 @@ import java.util.Map;
 /**
  * Provides shipping-related functionality for the e-commerce system.
  * Includes methods to ship items and calculate shipping costs based on item weights.
+ * The {@code calculateShippingCost} methods charge the flat {@link #SHIPPING_RATE_PER_KG}; cart estimates and
+ * checkouts are priced by the {@link #getRateEngine() rate engine}, which defaults to the same flat rate.
  */
 public class ShippingService {
     /**
@@ -15,6 +17,47 @@ public class ShippingService {
      */
     public static final double SHIPPING_RATE_PER_KG = 5.0; // $5 per kg
 
+    /**
+     * Prices cart estimates and checkouts. Defaults to {@link #SHIPPING_RATE_PER_KG} for every zone and category.
+     */
+    private static volatile ShippingRateEngine rateEngine = ShippingRateEngine.flatRate(Money.ofUnits(SHIPPING_RATE_PER_KG));
+
+    /**
+     * Sets the engine that prices cart estimates and checkouts, e.g. a {@link TableShippingRateEngine}
+     * with weight brackets, category surcharges and zones.
+     *
+     * @param engine The rate engine.
+     * @throws IllegalArgumentException if the engine is null.
+     */
+    public static void setRateEngine(ShippingRateEngine engine) {
+        if (engine == null) {
+            throw new IllegalArgumentException("Rate engine cannot be null.");
+        }
+        rateEngine = engine;
+    }
+
+    public static ShippingRateEngine getRateEngine() {
+        return rateEngine;
+    }
+
+    /**
+     * Splits shipments into parcels for shipment notices, or null to ship every order as one package.
+     */
+    private static volatile ParcelPacker parcelPacker;
+
+    /**
+     * Sets the packer that splits shipments into parcels, so shipment notices list every parcel with its contents.
+     *
+     * @param packer The parcel packer, or null to ship every order as one package.
+     */
+    public static void setParcelPacker(ParcelPacker packer) {
+        parcelPacker = packer;
+    }
+
+    public static ParcelPacker getParcelPacker() {
+        return parcelPacker;
+    }
+
     /**
      * Ships the given list of shippable items.
      * Prints the details of each item being shipped to the console.
@@ -68,4 +111,104 @@ public class ShippingService {
         }
         return totalWeight * SHIPPING_RATE_PER_KG;
     }
-}
\ No newline at end of file
+
+    /**
+     * Ships the given shipment lines.
+     * Prints one line per item with its quantity, followed by the total package weight.
+     * Works directly on (item, quantity) lines, so no per-unit list is ever built.
+     *
+     * @param lines The lines to be shipped.
+     */
+    public static void shipLines(List<ShipmentLine> lines) {
+        shipLines(lines, ReceiptSink.console());
+    }
+
+    /**
+     * Ships the given shipment lines, writing the shipment notice to the given sink.
+     *
+     * @param lines The lines to be shipped.
+     * @param sink  The sink the shipment notice is written to.
+     */
+    public static void shipLines(List<ShipmentLine> lines, ReceiptSink sink) {
+        StringBuilder notice = new StringBuilder(64 + 32 * lines.size());
+        appendShipmentNotice(notice, lines);
+        sink.write(notice.toString());
+    }
+
+    /**
+     * Renders the shipment notice for the given lines: one row per item with its quantity,
+     * followed by the total package weight. If a {@link #setParcelPacker(ParcelPacker) parcel packer} is set,
+     * the lines are packed first and the notice lists every parcel, see {@link #appendParcelNotice(StringBuilder, List)}.
+     *
+     * @param notice The builder the notice is appended to.
+     * @param lines  The lines to be shipped.
+     */
+    public static void appendShipmentNotice(StringBuilder notice, List<ShipmentLine> lines) {
+        ParcelPacker packer = parcelPacker;
+        if (packer != null) {
+            appendParcelNotice(notice, packer.pack(lines));
+            return;
+        }
+        String newLine = System.lineSeparator();
+        notice.append("** Shipment notice **").append(newLine);
+
+        double totalWeight = 0;
+        for (ShipmentLine line : lines) {
+            notice.append(line.getQuantity()).append("x ").append(line.getItem().getName()).append(newLine);
+            totalWeight += line.getTotalWeight();
+        }
+
+        notice.append("Total package weight ").append(totalWeight).append("kg").append(newLine);
+    }
+
+    /**
+     * Renders the shipment notice for packed parcels: a header per parcel with its weight, one row per item
+     * in it with its quantity, followed by the total weight of all parcels.
+     *
+     * @param notice  The builder the notice is appended to.
+     * @param parcels The parcels to be shipped.
+     */
+    public static void appendParcelNotice(StringBuilder notice, List<Parcel> parcels) {
+        String newLine = System.lineSeparator();
+        notice.append("** Shipment notice **").append(newLine);
+
+        long totalWeight = 0;
+        for (int i = 0; i < parcels.size(); i++) {
+            Parcel parcel = parcels.get(i);
+            notice.append("Parcel ").append(i + 1).append(" of ").append(parcels.size())
+                    .append(", ").append(parcel.getWeight()).append("kg")
+                    .append(parcel.isOversized() ? " (oversized)" : "").append(newLine);
+            for (ShipmentLine line : parcel.getLines()) {
+                notice.append("  ").append(line.getQuantity()).append("x ").append(line.getItem().getName()).append(newLine);
+            }
+            totalWeight += parcel.getWeightMilligrams();
+        }
+
+        notice.append("Total package weight ").append(totalWeight / 1_000_000.0).append("kg").append(newLine);
+    }
+
+    /**
+     * Calculates the total shipping cost for the given shipment lines.
+     * Each line contributes its unit weight multiplied by its quantity.
+     *
+     * @param lines The lines to calculate the shipping cost for.
+     * @return The total shipping cost for the lines.
+     */
+    public static double calculateShippingCostForLines(List<ShipmentLine> lines) {
+        double totalWeight = 0;
+        for (ShipmentLine line : lines) {
+            totalWeight += line.getTotalWeight();
+        }
+        return calculateShippingCostForWeight(totalWeight);
+    }
+
+    /**
+     * Calculates the shipping cost for a known total weight, e.g. the running weight of a cart.
+     *
+     * @param totalWeight The total weight to ship, in kilograms.
+     * @return The shipping cost for that weight.
+     */
+    public static double calculateShippingCostForWeight(double totalWeight) {
+        return totalWeight * SHIPPING_RATE_PER_KG;
+    }
+}
@@ -0,0 +1,144 @@
+package org.project;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reserves product stock for in-flight checkouts without a global lock.
+ * A reservation takes the units out of the product's available stock immediately (using the
+ * product's compare-and-set counter), so two checkouts can never both claim the last unit.
+ * The reservation is later either committed (the sale went through) or released (the units go back on the shelf).
+ * The ledger also keeps, per product id, how many units are currently held by open reservations.
+ */
+public class StockLedger {
+    private final ConcurrentHashMap<Product, LongAdder> reserved = new ConcurrentHashMap<>(); // Units held per product, keyed by id equality.
+
+    /**
+     * Tries to reserve the given quantity of a product.
+     *
+     * @param product  The product to reserve.
+     * @param quantity The number of units to reserve.
+     * @return The reservation, or null if less than the requested quantity is in stock.
+     * @throws IllegalArgumentException if the product is null or the quantity is not positive.
+     */
+    public Reservation tryReserve(Product product, int quantity) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null.");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive.");
+        }
+        if (!product.tryReduceQuantity(quantity)) {
+            return null;
+        }
+        reservedCounter(product).add(quantity);
+        return new Reservation(product, quantity);
+    }
+
+    /**
+     * Commits a reservation. The reserved units stay deducted from stock for good.
+     *
+     * @param reservation The reservation to commit.
+     * @throws IllegalStateException if the reservation was already committed or released.
+     */
+    public void commit(Reservation reservation) {
+        reservation.complete(Reservation.COMMITTED);
+        reservedCounter(reservation.product).add(-reservation.quantity);
+    }
+
+    /**
+     * Commits part of a reservation and releases the rest.
+     * Used when one reservation was taken on behalf of several buyers and only some of them completed.
+     *
+     * @param reservation The reservation to complete.
+     * @param quantity    The number of units to keep deducted; the remaining units return to stock.
+     * @throws IllegalArgumentException if the quantity is negative or larger than the reservation.
+     * @throws IllegalStateException if the reservation was already committed or released.
+     */
+    public void commit(Reservation reservation, int quantity) {
+        if (quantity < 0 || quantity > reservation.quantity) {
+            throw new IllegalArgumentException("Committed quantity must be between 0 and the reserved quantity.");
+        }
+        reservation.complete(Reservation.COMMITTED);
+        reservedCounter(reservation.product).add(-reservation.quantity);
+        int unused = reservation.quantity - quantity;
+        if (unused > 0) {
+            reservation.product.increaseQuantity(unused);
+        }
+    }
+
+    /**
+     * Releases a reservation, returning the reserved units to the product's stock.
+     *
+     * @param reservation The reservation to release.
+     * @throws IllegalStateException if the reservation was already committed or released.
+     */
+    public void release(Reservation reservation) {
+        reservation.complete(Reservation.RELEASED);
+        reservedCounter(reservation.product).add(-reservation.quantity);
+        reservation.product.increaseQuantity(reservation.quantity);
+    }
+
+    /**
+     * Gets the number of units of a product currently held by open reservations.
+     *
+     * @param product The product to look up.
+     * @return The number of reserved units.
+     */
+    public int getReservedQuantity(Product product) {
+        LongAdder counter = reserved.get(product);
+        return counter == null ? 0 : counter.intValue();
+    }
+
+    private LongAdder reservedCounter(Product product) {
+        // get() first so the common case never touches the map's bin locks
+        LongAdder counter = reserved.get(product);
+        if (counter == null) {
+            counter = reserved.computeIfAbsent(product, key -> new LongAdder());
+        }
+        return counter;
+    }
+
+    /**
+     * A quantity of a single product held for a checkout.
+     * A reservation can be completed exactly once, either by committing or by releasing it.
+     */
+    public static final class Reservation {
+        private static final int PENDING = 0;
+        private static final int COMMITTED = 1;
+        private static final int RELEASED = 2;
+
+        private final Product product;
+        private final int quantity;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        private Reservation(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        public Product getProduct() {
+            return product;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Checks whether the reservation is still open.
+         *
+         * @return true if the reservation was neither committed nor released yet.
+         */
+        public boolean isPending() {
+            return state.get() == PENDING;
+        }
+
+        private void complete(int newState) {
+            if (!state.compareAndSet(PENDING, newState)) {
+                throw new IllegalStateException("Reservation for " + product.getName() + " is already completed.");
+            }
+        }
+    }
+}
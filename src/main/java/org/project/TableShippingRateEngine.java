@@ -0,0 +1,225 @@
+package org.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link ShippingRateEngine} that compiles rate rules into flat lookup tables once, so quoting an order is a binary
+ * search over the bracket boundaries of its zone plus one table read per category, with no allocation.
+ * <p>
+ * Zones are numbered from 0, and every zone up to the highest one used must have a bracket starting at 0 kg.
+ * An order is priced as:
+ * <ul>
+ *     <li>the weight bracket its total weight falls into: the bracket's base charge plus its rate per kilogram
+ *     for the weight above the bracket's start;</li>
+ *     <li>plus, for every category the order ships, the zone's flat surcharge for that category plus its rate per
+ *     kilogram of that category's weight. Several surcharges for the same zone and category add up.</li>
+ * </ul>
+ * An order without shippable weight costs nothing.
+ */
+public final class TableShippingRateEngine implements ShippingRateEngine {
+    private static final int CATEGORY_COUNT = ProductCategory.values().length;
+    private static final long MILLIGRAMS_PER_KG = 1_000_000;
+
+    private final int zoneCount;
+    // Brackets of all zones, zone by zone, each zone's sorted by start; zone z owns [zoneStart[z], zoneStart[z + 1])
+    private final int[] zoneStart;
+    private final long[] bracketStartMilligrams;
+    private final long[] bracketBaseCents;
+    private final long[] bracketCentsPerKg;
+    // Surcharges indexed by zone * CATEGORY_COUNT + category ordinal
+    private final long[] surchargeCents;
+    private final long[] surchargeCentsPerKg;
+
+    /**
+     * Compiles the given rules.
+     *
+     * @param brackets   The weight brackets of all zones; at least one.
+     * @param surcharges The category surcharges; may be empty.
+     * @throws IllegalArgumentException if a rule is null, a zone has no bracket starting at 0 kg, two brackets of a
+     *                                  zone start at the same weight, or a surcharge is for a zone without brackets.
+     */
+    public TableShippingRateEngine(List<WeightBracket> brackets, List<CategorySurcharge> surcharges) {
+        if (brackets == null || brackets.isEmpty()) {
+            throw new IllegalArgumentException("At least one weight bracket is needed.");
+        }
+        if (surcharges == null) {
+            throw new IllegalArgumentException("Surcharges cannot be null.");
+        }
+
+        List<WeightBracket> sorted = new ArrayList<>(brackets);
+        for (WeightBracket bracket : sorted) {
+            if (bracket == null) {
+                throw new IllegalArgumentException("Weight bracket cannot be null.");
+            }
+        }
+        sorted.sort(Comparator.comparingInt((WeightBracket bracket) -> bracket.zone)
+                .thenComparingLong(bracket -> bracket.startMilligrams));
+        zoneCount = sorted.get(sorted.size() - 1).zone + 1;
+
+        zoneStart = new int[zoneCount + 1];
+        bracketStartMilligrams = new long[sorted.size()];
+        bracketBaseCents = new long[sorted.size()];
+        bracketCentsPerKg = new long[sorted.size()];
+        int zone = -1;
+        for (int i = 0; i < sorted.size(); i++) {
+            WeightBracket bracket = sorted.get(i);
+            if (bracket.zone != zone) {
+                if (bracket.zone != zone + 1 || bracket.startMilligrams != 0) {
+                    throw new IllegalArgumentException("Zone " + (zone + 1) + " has no bracket starting at 0 kg.");
+                }
+                zone = bracket.zone;
+                zoneStart[zone] = i;
+            } else if (bracket.startMilligrams == bracketStartMilligrams[i - 1]) {
+                throw new IllegalArgumentException("Zone " + zone + " has two brackets starting at "
+                        + bracket.startMilligrams / (double) MILLIGRAMS_PER_KG + " kg.");
+            }
+            bracketStartMilligrams[i] = bracket.startMilligrams;
+            bracketBaseCents[i] = bracket.baseCents;
+            bracketCentsPerKg[i] = bracket.centsPerKg;
+        }
+        zoneStart[zoneCount] = sorted.size();
+
+        surchargeCents = new long[zoneCount * CATEGORY_COUNT];
+        surchargeCentsPerKg = new long[zoneCount * CATEGORY_COUNT];
+        for (CategorySurcharge surcharge : surcharges) {
+            if (surcharge == null) {
+                throw new IllegalArgumentException("Category surcharge cannot be null.");
+            }
+            if (surcharge.zone >= zoneCount) {
+                throw new IllegalArgumentException("Zone " + surcharge.zone + " of a surcharge has no brackets.");
+            }
+            int index = surcharge.zone * CATEGORY_COUNT + surcharge.category.ordinal();
+            surchargeCents[index] += surcharge.cents;
+            surchargeCentsPerKg[index] += surcharge.centsPerKg;
+        }
+    }
+
+    /**
+     * Gets the number of zones this engine prices; zones are numbered from 0.
+     *
+     * @return The number of zones.
+     */
+    public int getZoneCount() {
+        return zoneCount;
+    }
+
+    @Override
+    public boolean servesZone(int zone) {
+        return zone >= 0 && zone < zoneCount;
+    }
+
+    @Override
+    public long quoteCents(int zone, long[] weightMilligramsByCategory) {
+        if (!servesZone(zone)) {
+            throw new IllegalArgumentException("Unknown shipping zone " + zone + ".");
+        }
+        if (weightMilligramsByCategory.length != CATEGORY_COUNT) {
+            throw new IllegalArgumentException("Expected a weight for each of the " + CATEGORY_COUNT + " categories.");
+        }
+
+        long totalWeight = 0;
+        long cents = 0;
+        int surcharges = zone * CATEGORY_COUNT;
+        for (int category = 0; category < CATEGORY_COUNT; category++) {
+            long weight = weightMilligramsByCategory[category];
+            if (weight > 0) {
+                totalWeight += weight;
+                cents += surchargeCents[surcharges + category]
+                        + perKilogram(surchargeCentsPerKg[surcharges + category], weight);
+            }
+        }
+        if (totalWeight == 0) {
+            return 0;
+        }
+
+        int bracket = Arrays.binarySearch(bracketStartMilligrams, zoneStart[zone], zoneStart[zone + 1], totalWeight);
+        if (bracket < 0) {
+            bracket = -bracket - 2; // The last bracket starting below the weight; the first one starts at 0
+        }
+        return cents + bracketBaseCents[bracket]
+                + perKilogram(bracketCentsPerKg[bracket], totalWeight - bracketStartMilligrams[bracket]);
+    }
+
+    /**
+     * Prices a weight at a rate per kilogram, rounding half up to the cent.
+     *
+     * @param centsPerKg        The rate per kilogram, in cents.
+     * @param weightMilligrams  The weight, in milligrams.
+     * @return The charge in cents.
+     */
+    static long perKilogram(long centsPerKg, long weightMilligrams) {
+        return (centsPerKg * weightMilligrams + MILLIGRAMS_PER_KG / 2) / MILLIGRAMS_PER_KG;
+    }
+
+    private static void checkRule(int zone, long cents, long centsPerKg) {
+        if (zone < 0) {
+            throw new IllegalArgumentException("Zone cannot be negative.");
+        }
+        if (cents < 0 || centsPerKg < 0) {
+            throw new IllegalArgumentException("Rates cannot be negative.");
+        }
+    }
+
+    /**
+     * A weight bracket of a zone: applies to orders from its start weight up to the start of the zone's next bracket.
+     */
+    public static final class WeightBracket {
+        private final int zone;
+        private final long startMilligrams;
+        private final long baseCents;
+        private final long centsPerKg;
+
+        /**
+         * Creates a weight bracket.
+         *
+         * @param zone       The zone the bracket belongs to.
+         * @param startKg    The total order weight the bracket starts at, in kilograms.
+         * @param baseCents  The charge for an order weighing exactly the start weight, in cents.
+         * @param centsPerKg The charge per kilogram above the start weight, in cents.
+         * @throws IllegalArgumentException if the zone, the weight or a charge is negative.
+         */
+        public WeightBracket(int zone, double startKg, long baseCents, long centsPerKg) {
+            checkRule(zone, baseCents, centsPerKg);
+            if (!(startKg >= 0)) {
+                throw new IllegalArgumentException("Bracket start cannot be negative.");
+            }
+            this.zone = zone;
+            this.startMilligrams = Math.round(startKg * MILLIGRAMS_PER_KG);
+            this.baseCents = baseCents;
+            this.centsPerKg = centsPerKg;
+        }
+    }
+
+    /**
+     * A surcharge for shipping products of one category to one zone.
+     */
+    public static final class CategorySurcharge {
+        private final int zone;
+        private final ProductCategory category;
+        private final long cents;
+        private final long centsPerKg;
+
+        /**
+         * Creates a category surcharge.
+         *
+         * @param zone       The zone the surcharge applies to.
+         * @param category   The category the surcharge applies to.
+         * @param cents      The flat charge for an order that ships any product of the category, in cents.
+         * @param centsPerKg The charge per kilogram of the category's products, in cents.
+         * @throws IllegalArgumentException if the category is null, or the zone or a charge is negative.
+         */
+        public CategorySurcharge(int zone, ProductCategory category, long cents, long centsPerKg) {
+            checkRule(zone, cents, centsPerKg);
+            if (category == null) {
+                throw new IllegalArgumentException("Category cannot be null.");
+            }
+            this.zone = zone;
+            this.category = category;
+            this.cents = cents;
+            this.centsPerKg = centsPerKg;
+        }
+    }
+}
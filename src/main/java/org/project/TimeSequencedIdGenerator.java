@@ -0,0 +1,46 @@
+package org.project;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style id generator, the default {@link ProductIdGenerator} and the source of {@link Customer} ids;
+ * each user has its own instance and therefore its own id space. The id space starts at the creation time in
+ * milliseconds (since 2025-01-01) shifted left by 22 bits, so a later process starts above every id an earlier one
+ * could have handed out unless it created more than four million ids per millisecond of its run.
+ * <p>
+ * Each thread takes a block of {@value #BLOCK_SIZE} consecutive ids from one shared counter and then
+ * hands them out without any synchronization, so id generation scales with the number of creating
+ * threads. Ids are increasing per thread but interleave between threads. Short-lived threads
+ * (e.g. one virtual thread per task) leave the unused rest of their block behind, which only wastes id space.
+ */
+final class TimeSequencedIdGenerator implements ProductIdGenerator {
+    private static final long EPOCH_MILLIS = 1_735_689_600_000L; // 2025-01-01T00:00:00Z
+    private static final int SEQUENCE_BITS = 22;
+    private static final int BLOCK_SIZE = 1_024;
+
+    private final AtomicLong nextBlock;
+    private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[2]); // {next id, end of block}
+
+    /**
+     * Constructs a generator whose ids start at the given time.
+     *
+     * @param nowMillis The current time in milliseconds since 1970-01-01.
+     */
+    TimeSequencedIdGenerator(long nowMillis) {
+        if (nowMillis < EPOCH_MILLIS) {
+            throw new IllegalArgumentException("Clock is set before 2025-01-01.");
+        }
+        this.nextBlock = new AtomicLong((nowMillis - EPOCH_MILLIS) << SEQUENCE_BITS);
+    }
+
+    @Override
+    public long nextId() {
+        long[] range = block.get();
+        if (range[0] == range[1]) {
+            long start = nextBlock.getAndAdd(BLOCK_SIZE);
+            range[0] = start;
+            range[1] = start + BLOCK_SIZE;
+        }
+        return range[0]++;
+    }
+}